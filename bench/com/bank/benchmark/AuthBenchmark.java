@@ -0,0 +1,41 @@
+package com.bank.benchmark;
+
+import com.bank.exception.BankingException;
+import com.bank.model.User;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dbank.db.url=jdbc:h2:mem:bench_auth;DB_CLOSE_DELAY=-1")
+public class AuthBenchmark {
+    private static final String EMAIL = "auth-bench@bank.test";
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private BankFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() throws BankingException {
+        fixture = new BankFixture();
+        fixture.registerUser(EMAIL, PASSWORD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public User login() throws BankingException {
+        return fixture.authService.login(EMAIL, PASSWORD);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public User loginConcurrent() throws BankingException {
+        return fixture.authService.login(EMAIL, PASSWORD);
+    }
+}
@@ -0,0 +1,60 @@
+package com.bank.benchmark;
+
+import com.bank.exception.BankingException;
+import com.bank.model.*;
+import com.bank.repository.*;
+import com.bank.service.*;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Wires the services against the in-memory H2 database and seeds benchmark data
+public class BankFixture {
+    final UserRepository userRepo = new UserRepository();
+    final AccountRepository accountRepo = new AccountRepository();
+    final TransactionRepository transactionRepo = new TransactionRepository();
+    final AuditLogRepository auditLogRepo = new AuditLogRepository();
+
+    final AuthService authService = new AuthService(userRepo, auditLogRepo);
+    final AccountService accountService = new AccountService(accountRepo, userRepo, auditLogRepo);
+    final TransactionService transactionService = new TransactionService(accountRepo, transactionRepo, auditLogRepo);
+    final FraudDetectionService fraudService = new FraudDetectionService(new AccountStatsRepository(), auditLogRepo);
+
+    BankFixture() {
+        transactionService.addListener(fraudService);
+    }
+
+    User registerUser(String email, String password) throws BankingException {
+        return authService.register("Benchmark User", email, password);
+    }
+
+    // Creates accounts funded with the given opening balance
+    List<String> createAccounts(User owner, int count, BigDecimal openingBalance) throws BankingException {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Account account = accountService.createAccount(owner.getId(), AccountType.CHECKING);
+            transactionService.deposit(account.getId(), openingBalance, owner.getId());
+            ids.add(account.getId());
+        }
+        return ids;
+    }
+
+    // Builds a history of the given size between two accounts using batched transfers
+    void seedHistory(String fromAccountId, String toAccountId, int size, String userId) throws BankingException {
+        int chunk = 10_000;
+        for (int done = 0; done < size; done += chunk) {
+            List<TransferRequest> batch = new ArrayList<>();
+            for (int i = done; i < Math.min(size, done + chunk); i++) {
+                batch.add(new TransferRequest(fromAccountId, toAccountId, BigDecimal.valueOf(1 + i % 97), userId));
+            }
+            BatchTransferResult result = transactionService.transferBatch(batch);
+            if (!result.allSucceeded()) {
+                throw new IllegalStateException("Seeding failed: " + result.getFailures().get(0));
+            }
+        }
+    }
+
+    void close() {
+        DatabaseConnection.closeConnection();
+    }
+}
@@ -0,0 +1,63 @@
+package com.bank.benchmark;
+
+import com.bank.exception.BankingException;
+import com.bank.model.*;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Account history reads and fraud scoring as the history grows
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dbank.db.url=jdbc:h2:mem:bench_history;DB_CLOSE_DELAY=-1")
+public class HistoryBenchmark {
+    private static final BigDecimal PROBE_AMOUNT = new BigDecimal("250.00");
+
+    @Param({"100", "10000", "100000"})
+    public int historySize;
+
+    private BankFixture fixture;
+    private User user;
+    private String accountId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws BankingException {
+        fixture = new BankFixture();
+        user = fixture.registerUser("history-bench@bank.test", "secret");
+        List<String> ids = fixture.createAccounts(user, 2, new BigDecimal("1000000000.00"));
+        accountId = ids.get(0);
+        fixture.seedHistory(accountId, ids.get(1), historySize, user.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public List<Transaction> fullHistory() throws BankingException {
+        return fixture.transactionService.getAccountHistory(accountId);
+    }
+
+    @Benchmark
+    public TransactionPage firstPage() throws BankingException {
+        return fixture.transactionService.getAccountHistory(accountId, null, null, null, 50);
+    }
+
+    @Benchmark
+    public void streamHistory(Blackhole blackhole) throws BankingException {
+        try (var stream = fixture.transactionService.streamAccountHistory(accountId, null, null)) {
+            stream.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void analyzeTransaction() throws Exception {
+        fixture.fraudService.analyzeTransaction(accountId, PROBE_AMOUNT, user.getId());
+    }
+}
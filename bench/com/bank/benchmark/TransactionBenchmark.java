@@ -0,0 +1,112 @@
+package com.bank.benchmark;
+
+import com.bank.exception.BankingException;
+import com.bank.model.User;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * deposit / withdraw / transfer throughput. accountCount = 1 is the contended
+ * single-hot-account case; larger counts spread the load. A transfer always moves money
+ * between two distinct accounts, so it draws from at least two: with accountCount = 1
+ * every transfer contends on the same pair of rows. Thread counts come from the
+ * concrete subclasses below, since JMH cannot take @Threads as a @Param.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dbank.db.url=jdbc:h2:mem:bench_txn;DB_CLOSE_DELAY=-1")
+public abstract class TransactionBenchmark {
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"1", "100", "10000"})
+    public int accountCount;
+
+    private BankFixture fixture;
+    private User user;
+    private String[] accounts;
+
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    // operations rejected after exhausting optimistic retries, reported next to throughput
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long rejected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rejected = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws BankingException {
+        fixture = new BankFixture();
+        user = fixture.registerUser("txn-bench@bank.test", "secret");
+        List<String> ids = fixture.createAccounts(user, Math.max(accountCount, 2), OPENING_BALANCE);
+        accounts = ids.toArray(new String[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void deposit(Picker picker, Outcomes outcomes) {
+        try {
+            fixture.transactionService.deposit(accounts[picker.next(accountCount)], AMOUNT, user.getId());
+        } catch (BankingException e) {
+            outcomes.rejected++;
+        }
+    }
+
+    @Benchmark
+    public void withdraw(Picker picker, Outcomes outcomes) {
+        try {
+            fixture.transactionService.withdraw(accounts[picker.next(accountCount)], AMOUNT, user.getId());
+        } catch (BankingException e) {
+            outcomes.rejected++;
+        }
+    }
+
+    @Benchmark
+    public void transfer(Picker picker, Outcomes outcomes) {
+        // a self-transfer would touch one row; pick the receiver among the other accounts
+        int fromIndex = picker.next(accounts.length);
+        int toIndex = (fromIndex + 1 + picker.next(accounts.length - 1)) % accounts.length;
+        String from = accounts[fromIndex];
+        String to = accounts[toIndex];
+        try {
+            fixture.transactionService.transfer(from, to, AMOUNT, user.getId());
+        } catch (BankingException e) {
+            outcomes.rejected++;
+        }
+    }
+
+    @Threads(1)
+    public static class SingleThread extends TransactionBenchmark {
+    }
+
+    @Threads(4)
+    public static class FourThreads extends TransactionBenchmark {
+    }
+
+    @Threads(16)
+    public static class SixteenThreads extends TransactionBenchmark {
+    }
+}
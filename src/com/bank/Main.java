@@ -1,26 +1,130 @@
 package com.bank;
 
 import com.bank.exception.BankingException;
+import com.bank.fraud.InstrumentedVelocityRuleEngine;
+import com.bank.fraud.VelocityRuleSet;
+import com.bank.metrics.MetricsRegistry;
 import com.bank.model.*;
+import com.bank.readmodel.*;
 import com.bank.repository.*;
 import com.bank.service.*;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
 
 public class Main {
     public static void main(String[] args) {
+        LedgerEngine ledger = null;
+        AsyncAuditLogRepository auditWriter = null;
+        JournalTransactionRepository journal = null;
+        BalanceSnapshotService snapshots = null;
+        ReadStore readStore = null;
+        ReadModelProjector projector = null;
+        ShardRouter shards = null;
+        CrossShardTransfers crossShard = null;
+        FraudDetectionService fraudService = null;
         try {
+            // optional: accounts, transactions and their statistics spread over -Dbank.shards=N databases,
+            // shard i > 0 at -Dbank.shard.i.url; everything else stays on the primary
+            int shardCount = Integer.getInteger("bank.shards", 1);
+            if (shardCount > 1) {
+                if (Boolean.getBoolean("bank.ledger") || System.getProperty("bank.journal.dir") != null
+                        || System.getProperty("bank.snapshot.intervalSeconds") != null
+                        || System.getProperty("bank.interest.rate") != null) {
+                    throw new IllegalStateException(
+                        "bank.shards cannot be combined with the ledger, the journal, balance snapshots or interest accrual");
+                }
+                shards = ShardRouter.open(shardCount);
+            }
+            if (Boolean.getBoolean("bank.ledger") && System.getProperty("bank.journal.dir") != null) {
+                // the ledger's write-behind inserts into the transactions table, so its postings would miss the journal
+                throw new IllegalStateException("bank.ledger cannot be combined with bank.journal.dir");
+            }
+            
             // initialize repositories
             UserRepository userRepo = new UserRepository();
-            AccountRepository accountRepo = new AccountRepository();
-            TransactionRepository transactionRepo = new TransactionRepository();
-            AuditLogRepository auditLogRepo = new AuditLogRepository();
-            
-            // initialize services
-            AuthService authService = new AuthService(userRepo, auditLogRepo);
-            AccountService accountService = new AccountService(accountRepo, userRepo, auditLogRepo);
-            TransactionService transactionService = new TransactionService(accountRepo, transactionRepo, auditLogRepo);
+            // hot accounts are served from memory; writes refresh or invalidate their entry
+            AccountRepository accountRepo = shards != null
+                ? new ShardedAccountRepository(shards, shard -> new CachingAccountRepository(shard, 10_000, 30_000))
+                : new CachingAccountRepository(10_000, 30_000);
+            TransactionRepository transactionRepo = shards != null
+                ? new ShardedTransactionRepository(shards) : new TransactionRepository();
+            // optional memory-mapped transaction journal instead of the transactions table (-Dbank.journal.dir=...)
+            String journalDir = System.getProperty("bank.journal.dir");
+            if (journalDir != null) {
+                transactionRepo = journal = JournalTransactionRepository.open(Path.of(journalDir), 64 << 20, 5);
+            }
+            // audit rows are group-committed off the caller's path
+            AuditLogRepository auditLogRepo = auditWriter = AsyncAuditLogRepository.start(10_000, 256, 10, 100);
+            
+            // optional in-memory ledger with write-behind persistence (-Dbank.ledger=true)
+            if (Boolean.getBoolean("bank.ledger")) {
+                ledger = new LedgerEngine(accountRepo, LedgerWriteBehind.start(accountRepo, 10_000, 500, 2), 64,
+                    LedgerEngine.Durability.SYNC, 5_000);
+                ledger.recover();
+            }
+            
+            // initialize services; latency histograms are published over JMX as com.bank:type=Metrics
+            MetricsRegistry metrics = MetricsRegistry.getDefault();
+            metrics.registerMBean();
+            AuthService authService = new InstrumentedAuthService(metrics, userRepo, auditLogRepo);
+            AccountService accountService = new InstrumentedAccountService(metrics, accountRepo, userRepo, auditLogRepo, ledger);
+            // deposits, withdrawals and transfers sent with an idempotency key run once per key for 24 hours
+            IdempotencyKeyRepository idempotencyKeys = new CachingIdempotencyKeyRepository(100_000, Duration.ofHours(24));
+            TransactionService transactionService = new InstrumentedTransactionService(metrics, accountRepo, transactionRepo,
+                auditLogRepo, ledger, idempotencyKeys);
+            AuditService auditService = new AuditService(auditLogRepo);
+            
+            // history, account lists and recent audit events are read from a separately maintained
+            // store fed by committed writes (-Dbank.readdb.url=...); its lag is published as com.bank:type=ReadModel
+            readStore = ReadStore.open();
+            projector = shards != null
+                ? ReadModelProjector.start(readStore, shards.shards(), 100_000, 500, 250)
+                : ReadModelProjector.start(readStore, 100_000, 500, 250);
+            projector.registerMBean();
+            transactionService.addListener(projector);
+            accountService.addListener(projector);
+            ReadModel readModel = new ReadModel(readStore);
+            if (journal == null) {
+                // a rebuild copies the transactions table, which journaled history never reaches
+                transactionService.routeReadsTo(readModel);
+            }
+            accountService.routeReadsTo(readModel);
+            auditService.routeReadsTo(readModel);
 
-            FraudDetectionService fraudService = new FraudDetectionService(transactionRepo, auditLogRepo);
+            fraudService = new InstrumentedFraudDetectionService(metrics,
+                shards != null ? new ShardedAccountStatsRepository(shards) : new AccountStatsRepository(), auditLogRepo);
+            transactionService.addListener(fraudService);
+            // statistics are folded in memory on commit and written to account_stats in the background
+            fraudService.start(Duration.ofSeconds(1));
+            // sliding-window velocity limits from resources/velocity-rules.properties (-Dbank.fraud.rules=...)
+            transactionService.addListener(new InstrumentedVelocityRuleEngine(metrics, VelocityRuleSet.load(),
+                accountRepo, transactionRepo, auditLogRepo));
+            if (shards != null) {
+                // transfers between shards run as a logged saga; half-done ones are settled now and every 30s
+                crossShard = transactionService.shardAcross(shards);
+                crossShard.recover(Duration.ZERO);
+                crossShard.start(Duration.ofSeconds(30), Duration.ofSeconds(30));
+            }
+            
+            // periodic balance checkpoints for point-in-time queries (-Dbank.snapshot.intervalSeconds=...)
+            snapshots = new BalanceSnapshotService(new BalanceSnapshotRepository(), transactionRepo, accountRepo,
+                Duration.ofMinutes(1));
+            Long snapshotInterval = Long.getLong("bank.snapshot.intervalSeconds");
+            if (snapshotInterval != null) {
+                snapshots.start(Duration.ofSeconds(snapshotInterval));
+            }
+            // optional end-of-day interest for savings accounts (-Dbank.interest.rate=0.02, run for
+            // -Dbank.interest.date, default today); it cannot be combined with the ledger
+            InterestAccrualService interest = null;
+            String interestRate = System.getProperty("bank.interest.rate");
+            if (interestRate != null) {
+                interest = new InterestAccrualService(accountRepo, transactionRepo, auditLogRepo,
+                    new InterestRunRepository(), ledger, new BigDecimal(interestRate),
+                    Integer.getInteger("bank.interest.partitions", 8), Integer.getInteger("bank.interest.chunkSize", 500),
+                    Integer.getInteger("bank.interest.parallelism", Runtime.getRuntime().availableProcessors()));
+            }
             System.out.println("=== ONLINE BANKING SYSTEM (SQL) ===\n");
             
             // register users
@@ -58,6 +162,11 @@ public class Main {
             System.out.println();
 
             // show results
+            if (ledger != null) {
+                ledger.flush();
+            }
+            auditWriter.flush();
+            projector.flush();
             System.out.println("=== ACCOUNT BALANCES ===");
             for (Account acc : accountService.getUserAccounts(user1.getId())) {
                 System.out.println(acc);
@@ -70,7 +179,7 @@ public class Main {
             transactionService.getAccountHistory(acc1.getId()).forEach(System.out::println);
             
             System.out.println("\n=== AUDIT LOGS (Last 10) ===");
-            auditLogRepo.findAll().stream().limit(10).forEach(System.out::println);
+            auditService.latest(10).forEach(System.out::println);
             
             // testing account freeze
             System.out.println("\n=== TESTING ACCOUNT FREEZE ===");
@@ -82,10 +191,49 @@ public class Main {
                 System.out.println("✓ Frozen account prevented transaction: " + e.getMessage());
             }
             
+            if (interest != null) {
+                System.out.println("\n=== END-OF-DAY INTEREST ===");
+                String date = System.getProperty("bank.interest.date");
+                System.out.println(interest.accrue(date != null ? LocalDate.parse(date) : LocalDate.now(), user1.getId()));
+                projector.rebuild(); // the credits bypass the projector's queue
+            }
+            
+            if (Boolean.getBoolean("bank.metrics.report")) {
+                System.out.println("\n=== OPERATION METRICS (ms) ===");
+                System.out.print(metrics.getReport());
+            }
+            
         } catch (Exception e) {
             System.err.println("Error: " + e.getMessage());
             e.printStackTrace();
         } finally {
+            if (crossShard != null) {
+                crossShard.close();
+            }
+            if (snapshots != null) {
+                snapshots.close();
+            }
+            if (ledger != null) {
+                ledger.close();
+            }
+            if (fraudService != null) {
+                fraudService.close();
+            }
+            if (auditWriter != null) {
+                auditWriter.close();
+            }
+            if (projector != null) {
+                projector.close();
+            }
+            if (readStore != null) {
+                readStore.close();
+            }
+            if (journal != null) {
+                journal.close();
+            }
+            if (shards != null) {
+                shards.close();
+            }
             DatabaseConnection.closeConnection();
         }
     }
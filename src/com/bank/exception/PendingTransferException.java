@@ -0,0 +1,15 @@
+package com.bank.exception;
+
+// A transfer whose debit committed but whose outcome is not settled yet; recovery completes or refunds it
+public class PendingTransferException extends BankingException {
+    private static final long serialVersionUID = 1L;
+
+    private final String transactionId;
+
+    public PendingTransferException(String message, String transactionId) {
+        super(message);
+        this.transactionId = transactionId;
+    }
+
+    public String getTransactionId() {return transactionId;}
+}
@@ -0,0 +1,164 @@
+package com.bank.fraud;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The most recent transactions of one account in a ring, plus the counterparties it has
+ * dealt with. The ring starts small and doubles, up to maxCapacity, whenever the entry
+ * it would overwrite is still inside the longest rule window. Not thread-safe; callers
+ * lock the window.
+ */
+final class ActivityWindow {
+    private static final int OUTGOING = 1 << 30;
+    private static final int NEW_COUNTERPARTY = 1 << 29;
+
+    final String userId;
+    final String accountNumber;
+
+    private final int maxCapacity;
+    private long[] times;
+    private long[] amounts;
+    // transaction type bit, plus the OUTGOING and NEW_COUNTERPARTY flags
+    private int[] flags;
+    private int next;
+    private int size;
+    // time of the newest entry; read without the lock to pick idle windows for eviction
+    private volatile long lastSeen = Long.MIN_VALUE;
+    boolean overflowReported;
+
+    // per rule: the measured values of the last evaluation, and when it last alerted
+    private final long[] values;
+    private final long[] alertedAt;
+
+    private final Map<String, Boolean> counterparties;
+
+    ActivityWindow(String userId, String accountNumber, int capacity, int maxCapacity, int ruleCount,
+                   int counterpartyCapacity) {
+        this.userId = userId;
+        this.accountNumber = accountNumber;
+        this.maxCapacity = maxCapacity;
+        this.times = new long[capacity];
+        this.amounts = new long[capacity];
+        this.flags = new int[capacity];
+        this.values = new long[ruleCount];
+        this.alertedAt = new long[ruleCount];
+        Arrays.fill(alertedAt, Long.MIN_VALUE);
+        // access order, so the least recently seen counterparty is forgotten first
+        this.counterparties = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > counterpartyCapacity;
+            }
+        };
+    }
+
+    /**
+     * Records a transaction; counterparty is null for deposits and withdrawals. Returns false
+     * if the ring is at maxCapacity and had to drop an entry still inside longestWindow, so
+     * rules over that window now under-count.
+     */
+    boolean record(long time, int typeBit, boolean outgoing, long amount, String counterparty, boolean seeding,
+                   long longestWindow) {
+        int flag = typeBit;
+        if (outgoing) {
+            flag |= OUTGOING;
+        }
+        if (counterparty != null && counterparties.put(counterparty, Boolean.TRUE) == null && !seeding) {
+            flag |= NEW_COUNTERPARTY;
+        }
+        boolean complete = true;
+        if (size == times.length && time - times[next] < longestWindow) {
+            if (times.length < maxCapacity) {
+                grow();
+            } else {
+                complete = false;
+            }
+        }
+        times[next] = time;
+        amounts[next] = amount;
+        flags[next] = flag;
+        next = (next + 1) % times.length;
+        if (size < times.length) {
+            size++;
+        }
+        lastSeen = Math.max(lastSeen, time);
+        return complete;
+    }
+
+    long lastSeen() {
+        return lastSeen;
+    }
+
+    int capacity() {
+        return times.length;
+    }
+
+    // Doubles the full ring, oldest entry first, so next points at the first free slot
+    private void grow() {
+        int capacity = Math.min(times.length * 2, maxCapacity);
+        long[] grownTimes = new long[capacity];
+        long[] grownAmounts = new long[capacity];
+        int[] grownFlags = new int[capacity];
+        int head = times.length - next;
+        System.arraycopy(times, next, grownTimes, 0, head);
+        System.arraycopy(times, 0, grownTimes, head, next);
+        System.arraycopy(amounts, next, grownAmounts, 0, head);
+        System.arraycopy(amounts, 0, grownAmounts, head, next);
+        System.arraycopy(flags, next, grownFlags, 0, head);
+        System.arraycopy(flags, 0, grownFlags, head, next);
+        times = grownTimes;
+        amounts = grownAmounts;
+        flags = grownFlags;
+        next = size;
+    }
+
+    /**
+     * Measures every rule over the transactions in its window ending at {@code now}, in one
+     * pass from the newest entry back to the oldest one any rule still needs. Results are
+     * left in {@link #value(int)}.
+     */
+    void evaluate(List<VelocityRule> rules, long[] windowMillis, long longestWindow, long now) {
+        Arrays.fill(values, 0);
+        int slot = next;
+        for (int n = 0; n < size; n++) {
+            slot = slot == 0 ? times.length - 1 : slot - 1;
+            long age = now - times[slot];
+            if (age >= longestWindow) {
+                break;
+            }
+            int flag = flags[slot];
+            boolean outgoing = (flag & OUTGOING) != 0;
+            for (int r = 0; r < values.length; r++) {
+                VelocityRule rule = rules.get(r);
+                if (age >= windowMillis[r] || !rule.matches(flag, outgoing)) {
+                    continue;
+                }
+                switch (rule.getMeasure()) {
+                    case COUNT -> values[r]++;
+                    case SUM -> values[r] += amounts[slot];
+                    case NEW_COUNTERPARTIES -> {
+                        if ((flag & NEW_COUNTERPARTY) != 0) {
+                            values[r]++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    long value(int rule) {
+        return values[rule];
+    }
+
+    // True at most once per rule window, so a burst raises one alert rather than one per transaction
+    boolean shouldAlert(int rule, long now, long windowMillis) {
+        if (alertedAt[rule] != Long.MIN_VALUE && now - alertedAt[rule] < windowMillis) {
+            return false;
+        }
+        alertedAt[rule] = now;
+        return true;
+    }
+}
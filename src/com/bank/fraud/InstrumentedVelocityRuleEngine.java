@@ -0,0 +1,24 @@
+package com.bank.fraud;
+
+import com.bank.metrics.MetricsRegistry;
+import com.bank.metrics.OperationMetrics;
+import com.bank.model.Transaction;
+import com.bank.repository.*;
+
+// VelocityRuleEngine that records how long checking each committed transaction takes
+public class InstrumentedVelocityRuleEngine extends VelocityRuleEngine {
+    private final OperationMetrics check;
+
+    public InstrumentedVelocityRuleEngine(MetricsRegistry metrics, VelocityRuleSet ruleSet,
+                                          AccountRepository accountRepo, TransactionRepository transactionRepo,
+                                          AuditLogRepository auditLogRepo) {
+        super(ruleSet, accountRepo, transactionRepo, auditLogRepo);
+        this.check = metrics.operation("fraud.velocity");
+    }
+
+    // runs inside the committing service call, so its time is also part of that operation
+    @Override
+    public void onCommitted(Transaction transaction) {
+        check.run(() -> super.onCommitted(transaction));
+    }
+}
@@ -0,0 +1,59 @@
+package com.bank.fraud;
+
+import com.bank.model.TransactionType;
+import java.time.Duration;
+
+/**
+ * One velocity limit: a measure over an account's matching transactions in a sliding
+ * window, which alerts when it exceeds the threshold. Amounts are in cents.
+ */
+public final class VelocityRule {
+    public enum Measure { COUNT, SUM, NEW_COUNTERPARTIES }
+
+    // which side of the transaction the account must be on; OUT is money leaving it
+    public enum Direction { IN, OUT, ANY }
+
+    private final String name;
+    private final Measure measure;
+    private final int typeMask;
+    private final Direction direction;
+    private final Duration window;
+    private final long threshold;
+
+    public VelocityRule(String name, Measure measure, int typeMask, Direction direction,
+                        Duration window, long threshold) {
+        this.name = name;
+        this.measure = measure;
+        this.typeMask = typeMask;
+        this.direction = direction;
+        this.window = window;
+        this.threshold = threshold;
+    }
+
+    public static int maskOf(TransactionType type) {
+        return 1 << type.ordinal();
+    }
+
+    boolean matches(int typeBit, boolean outgoing) {
+        return (typeMask & typeBit) != 0
+            && (direction == Direction.ANY || (direction == Direction.OUT) == outgoing);
+    }
+
+    public String getName() {return name;}
+    public Measure getMeasure() {return measure;}
+    public Direction getDirection() {return direction;}
+    public Duration getWindow() {return window;}
+    public long getThreshold() {return threshold;}
+
+    String format(long value) {
+        return measure == Measure.SUM
+            ? String.format("$%d.%02d", value / 100, value % 100)
+            : Long.toString(value);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("VelocityRule[%s: %s %s > %s in %s]",
+            name, measure, direction, format(threshold), window);
+    }
+}
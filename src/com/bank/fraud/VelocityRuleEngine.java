@@ -0,0 +1,195 @@
+package com.bank.fraud;
+
+import com.bank.model.*;
+import com.bank.repository.*;
+import com.bank.service.TransactionListener;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checks every committed transaction against the configured velocity rules, using an
+ * in-memory window per account, and writes a FRAUD_ALERT audit entry for each rule it
+ * breaks. A window is seeded from the account's history over the longest rule window
+ * the first time the account is seen; after that, evaluating a transaction does not
+ * touch the database. Once more than the rule set's account capacity are held, windows
+ * idle for the longest rule window are dropped first, then the least recently seen.
+ */
+public class VelocityRuleEngine implements TransactionListener {
+    private final VelocityRuleSet ruleSet;
+    private final List<VelocityRule> rules;
+    private final long[] windowMillis;
+    private final long longestWindow;
+    private final AccountRepository accountRepo;
+    private final TransactionRepository transactionRepo;
+    private final AuditLogRepository auditLogRepo;
+    private final ConcurrentHashMap<String, ActivityWindow> windows = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+
+    public VelocityRuleEngine(VelocityRuleSet ruleSet, AccountRepository accountRepo,
+                              TransactionRepository transactionRepo, AuditLogRepository auditLogRepo) {
+        this.ruleSet = ruleSet;
+        this.rules = ruleSet.getRules();
+        this.windowMillis = new long[rules.size()];
+        long longest = 0;
+        for (int i = 0; i < rules.size(); i++) {
+            windowMillis[i] = rules.get(i).getWindow().toMillis();
+            longest = Math.max(longest, windowMillis[i]);
+        }
+        this.longestWindow = longest;
+        this.accountRepo = accountRepo;
+        this.transactionRepo = transactionRepo;
+        this.auditLogRepo = auditLogRepo;
+    }
+
+    @Override
+    public void onCommitted(Transaction transaction) {
+        if (rules.isEmpty()) {
+            return;
+        }
+        String from = transaction.getFromAccountId();
+        String to = transaction.getToAccountId();
+        try {
+            if (from != null) {
+                check(from, true, to, transaction);
+            }
+            if (to != null && !to.equals(from)) {
+                check(to, false, from, transaction);
+            }
+        } catch (SQLException e) {
+            System.err.println("Velocity check failed: " + e.getMessage());
+        }
+    }
+
+    private void check(String accountId, boolean outgoing, String counterparty, Transaction transaction)
+            throws SQLException {
+        long now = epochMillis(transaction.getTimestamp());
+        ActivityWindow window = windowFor(accountId, transaction.getId(), now);
+        if (window == null) {
+            return;
+        }
+        List<AuditLog> alerts = null;
+        synchronized (window) {
+            if (!window.record(now, VelocityRule.maskOf(transaction.getType()), outgoing,
+                    cents(transaction), counterparty, false, longestWindow)) {
+                reportOverflow(window);
+            }
+            window.evaluate(rules, windowMillis, longestWindow, now);
+            for (int i = 0; i < rules.size(); i++) {
+                VelocityRule rule = rules.get(i);
+                long value = window.value(i);
+                if (value > rule.getThreshold() && window.shouldAlert(i, now, windowMillis[i])) {
+                    if (alerts == null) {
+                        alerts = new ArrayList<>(2);
+                    }
+                    alerts.add(new AuditLog("FRAUD_ALERT", window.userId, String.format(
+                        "VELOCITY %s: account %s reached %s in %s (limit %s)", rule.getName(),
+                        window.accountNumber, rule.format(value), rule.getWindow(), rule.format(rule.getThreshold()))));
+                }
+            }
+        }
+        if (alerts != null) {
+            for (AuditLog alert : alerts) {
+                auditLogRepo.save(alert);
+                System.out.println("🚨 VELOCITY ALERT: " + alert.getDetails());
+            }
+        }
+    }
+
+    // Loads the owner and the transactions within the longest window of an account on first sight; null if it is gone
+    private ActivityWindow windowFor(String accountId, String currentTransactionId, long now) throws SQLException {
+        ActivityWindow cached = windows.get(accountId);
+        if (cached != null) {
+            return cached;
+        }
+        Account account = accountRepo.findById(accountId);
+        if (account == null) {
+            return null;
+        }
+        ActivityWindow loaded = new ActivityWindow(account.getUserId(), account.getAccountNumber(),
+            ruleSet.getWindowCapacity(), ruleSet.getMaxWindowCapacity(), rules.size(), ruleSet.getCounterpartyCapacity());
+        // newest first, a page at a time until it leaves the longest window; the transaction being checked is
+        // already committed and is recorded by the caller. A concurrent first-time commit on the same account
+        // may be counted twice, which only errs toward alerting.
+        int pageSize = ruleSet.getWindowCapacity();
+        List<Transaction> history = new ArrayList<>();
+        HistoryCursor cursor = null;
+        while (history.size() < ruleSet.getMaxWindowCapacity()) {
+            List<Transaction> page = transactionRepo.findByAccountId(accountId, null, null, cursor, pageSize);
+            history.addAll(page);
+            if (page.size() < pageSize) {
+                break;
+            }
+            Transaction oldest = page.get(page.size() - 1);
+            if (now - epochMillis(oldest.getTimestamp()) >= longestWindow) {
+                break;
+            }
+            cursor = HistoryCursor.after(oldest);
+        }
+        boolean complete = true;
+        for (int i = history.size() - 1; i >= 0; i--) {
+            Transaction past = history.get(i);
+            if (past.getId().equals(currentTransactionId)) {
+                continue;
+            }
+            boolean outgoing = accountId.equals(past.getFromAccountId());
+            complete &= loaded.record(epochMillis(past.getTimestamp()), VelocityRule.maskOf(past.getType()), outgoing,
+                cents(past), outgoing ? past.getToAccountId() : past.getFromAccountId(), true, longestWindow);
+        }
+        if (!complete) {
+            reportOverflow(loaded);
+        }
+        ActivityWindow existing = windows.putIfAbsent(accountId, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        evictIfFull(now);
+        return loaded;
+    }
+
+    // Loud once per window: from now on the account's sums and counts may be too low
+    private static void reportOverflow(ActivityWindow window) {
+        if (!window.overflowReported) {
+            window.overflowReported = true;
+            System.err.println("⚠ Velocity window of account " + window.accountNumber + " is full at "
+                + window.capacity() + " transactions; its rules under-count until activity slows down");
+        }
+    }
+
+    private void evictIfFull(long now) {
+        int capacity = ruleSet.getAccountCapacity();
+        if (windows.size() <= capacity) {
+            return;
+        }
+        synchronized (evictionLock) {
+            if (windows.size() <= capacity) {
+                return;
+            }
+            // an idle window measures zero for every rule and is rebuilt from history on demand
+            windows.values().removeIf(window -> now - window.lastSeen() >= longestWindow);
+            if (windows.size() <= capacity) {
+                return;
+            }
+            // all busy: drop the least recently seen quarter so the sort is not repeated per new account
+            int excess = windows.size() - capacity * 3 / 4;
+            List<Map.Entry<String, ActivityWindow>> entries = new ArrayList<>(windows.entrySet());
+            entries.sort(Comparator.comparingLong(entry -> entry.getValue().lastSeen()));
+            for (int i = 0; i < excess && i < entries.size(); i++) {
+                windows.remove(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+        }
+    }
+
+    private static long epochMillis(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1000 + timestamp.getNano() / 1_000_000;
+    }
+
+    private static long cents(Transaction transaction) {
+        return transaction.getAmount().movePointRight(2).longValue();
+    }
+}
@@ -0,0 +1,144 @@
+package com.bank.fraud;
+
+import com.bank.model.TransactionType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Velocity rules and window sizing read from a properties file; see
+ * resources/velocity-rules.properties for the format. Rules are kept in name order.
+ */
+public final class VelocityRuleSet {
+    public static final String RESOURCE = "/velocity-rules.properties";
+    private static final String RULE_PREFIX = "rule.";
+
+    private final List<VelocityRule> rules;
+    private final int windowCapacity;
+    private final int maxWindowCapacity;
+    private final int counterpartyCapacity;
+    private final int accountCapacity;
+
+    public VelocityRuleSet(List<VelocityRule> rules, int windowCapacity, int maxWindowCapacity,
+                           int counterpartyCapacity, int accountCapacity) {
+        if (windowCapacity <= 0 || maxWindowCapacity < windowCapacity || counterpartyCapacity <= 0
+                || accountCapacity <= 0) {
+            throw new IllegalArgumentException("Velocity capacities must be positive, with "
+                + "window.maxCapacity at least window.capacity");
+        }
+        this.rules = List.copyOf(rules);
+        this.windowCapacity = windowCapacity;
+        this.maxWindowCapacity = maxWindowCapacity;
+        this.counterpartyCapacity = counterpartyCapacity;
+        this.accountCapacity = accountCapacity;
+        for (VelocityRule rule : rules) {
+            if (rule.getMeasure() != VelocityRule.Measure.SUM && rule.getThreshold() >= maxWindowCapacity) {
+                throw new IllegalArgumentException("Velocity rule '" + rule.getName() +
+                    "' can never fire: threshold must be below window.maxCapacity " + maxWindowCapacity);
+            }
+        }
+    }
+
+    // Reads the file named by -Dbank.fraud.rules, or the bundled rules when it is not set
+    public static VelocityRuleSet load() throws IOException {
+        String file = System.getProperty("bank.fraud.rules");
+        if (file != null) {
+            return load(Path.of(file));
+        }
+        try (InputStream in = VelocityRuleSet.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Velocity rules " + RESOURCE + " not found on the classpath");
+            }
+            Properties props = new Properties();
+            props.load(in);
+            return parse(props);
+        }
+    }
+
+    public static VelocityRuleSet load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file)) {
+            Properties props = new Properties();
+            props.load(reader);
+            return parse(props);
+        }
+    }
+
+    public static VelocityRuleSet parse(Properties props) {
+        TreeSet<String> names = new TreeSet<>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith(RULE_PREFIX) && key.indexOf('.', RULE_PREFIX.length()) > 0) {
+                names.add(key.substring(RULE_PREFIX.length(), key.indexOf('.', RULE_PREFIX.length())));
+            }
+        }
+        List<VelocityRule> rules = new ArrayList<>();
+        for (String name : names) {
+            rules.add(parseRule(props, name));
+        }
+        return new VelocityRuleSet(rules,
+            parseInt(props, "window.capacity", 64),
+            parseInt(props, "window.maxCapacity", 4096),
+            parseInt(props, "counterparties.capacity", 256),
+            parseInt(props, "accounts.capacity", 100_000));
+    }
+
+    private static VelocityRule parseRule(Properties props, String name) {
+        String prefix = RULE_PREFIX + name + ".";
+        try {
+            VelocityRule.Measure measure = VelocityRule.Measure.valueOf(
+                required(props, prefix + "measure").toUpperCase(Locale.ROOT).replace('-', '_'));
+            VelocityRule.Direction direction = VelocityRule.Direction.valueOf(
+                props.getProperty(prefix + "direction", "out").trim().toUpperCase(Locale.ROOT));
+
+            int typeMask = 0;
+            String types = props.getProperty(prefix + "types");
+            if (types == null) {
+                typeMask = -1;
+            } else {
+                for (String type : types.split(",")) {
+                    typeMask |= VelocityRule.maskOf(TransactionType.valueOf(type.trim().toUpperCase(Locale.ROOT)));
+                }
+            }
+
+            Duration window = Duration.parse(required(props, prefix + "window"));
+            BigDecimal limit = new BigDecimal(required(props, prefix + "threshold"));
+            long threshold = measure == VelocityRule.Measure.SUM
+                ? limit.movePointRight(2).longValueExact()
+                : limit.longValueExact();
+            if (window.isNegative() || window.isZero() || threshold < 0) {
+                throw new IllegalArgumentException("window and threshold must be positive");
+            }
+            return new VelocityRule(name, measure, typeMask, direction, window, threshold);
+        } catch (DateTimeParseException | ArithmeticException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid velocity rule '" + name + "': " + e.getMessage(), e);
+        }
+    }
+
+    private static String required(Properties props, String key) {
+        String value = props.getProperty(key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(key + " is missing");
+        }
+        return value.trim();
+    }
+
+    private static int parseInt(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public List<VelocityRule> getRules() {return rules;}
+    public int getWindowCapacity() {return windowCapacity;}
+    public int getMaxWindowCapacity() {return maxWindowCapacity;}
+    public int getCounterpartyCapacity() {return counterpartyCapacity;}
+    public int getAccountCapacity() {return accountCapacity;}
+}
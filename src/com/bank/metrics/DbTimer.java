@@ -0,0 +1,28 @@
+package com.bank.metrics;
+
+/**
+ * Per-thread account of time spent inside JDBC calls. The connection pool reports every
+ * statement execution and commit here; OperationMetrics reads the running total at the
+ * start and end of an operation to split its latency into DB time and JVM time.
+ *
+ * A thread allocates its one-slot counter on its first JDBC call or operation; after that
+ * nothing here allocates. A virtual thread lives for one task, so it pays that once per
+ * task.
+ */
+public final class DbTimer {
+    private static final ThreadLocal<long[]> DB_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private DbTimer() {
+    }
+
+    // Called by the connection pool after each JDBC call it times
+    public static void record(OperationMetrics statement, long elapsedNanos, boolean failed) {
+        DB_NANOS.get()[0] += elapsedNanos;
+        statement.record(failed ? "error" : OperationMetrics.SUCCESS, elapsedNanos, elapsedNanos);
+    }
+
+    // JDBC time of the current thread so far
+    static long total() {
+        return DB_NANOS.get()[0];
+    }
+}
@@ -0,0 +1,118 @@
+package com.bank.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Named OperationMetrics for the services, plus one "db.<verb> <table>" entry per kind
+ * of SQL statement and "db.commit", fed by the connection pool. Look operations up once
+ * when wiring, not per call.
+ */
+public class MetricsRegistry implements MetricsRegistryMXBean {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+    private static final String OBJECT_NAME = "com.bank:type=Metrics";
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private volatile long windowStart = System.nanoTime();
+
+    // Process-wide registry; the connection pool reports JDBC time here
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, OperationMetrics::new);
+    }
+
+    // Keyed by the statement's label rather than its SQL, so dynamic SQL cannot grow the registry;
+    // the pool looks this up once per prepared statement
+    public OperationMetrics statement(String sql) {
+        return operation("db." + label(sql));
+    }
+
+    public OperationMetrics commit() {
+        return operation("db.commit");
+    }
+
+    @Override
+    public List<OperationStats> getOperations() {
+        double seconds = Math.max(1e-9, (System.nanoTime() - windowStart) / 1e9);
+        List<OperationStats> rows = new ArrayList<>();
+        for (OperationMetrics metrics : operations.values()) {
+            for (OperationMetrics.Outcome outcome : metrics.outcomes()) {
+                HistogramSnapshot latency = outcome.latency.snapshot();
+                if (latency.getCount() == 0) {
+                    continue;
+                }
+                double dbMillis = outcome.dbNanos.get() / 1e6;
+                rows.add(new OperationStats(metrics.getName(), outcome.name, latency.getCount(),
+                    latency.getCount() / seconds, latency.getMean() / 1e6,
+                    latency.percentile(50) / 1e6, latency.percentile(90) / 1e6,
+                    latency.percentile(99) / 1e6, latency.percentile(99.9) / 1e6,
+                    latency.getMax() / 1e6, dbMillis, Math.max(0.0, latency.getSum() / 1e6 - dbMillis)));
+            }
+        }
+        rows.sort(Comparator.comparing(OperationStats::getOperation)
+            .thenComparing(row -> !row.getOutcome().equals(OperationMetrics.SUCCESS))
+            .thenComparing(OperationStats::getOutcome));
+        return rows;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        for (OperationStats row : getOperations()) {
+            report.append(row).append('\n');
+        }
+        return report.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (OperationMetrics metrics : operations.values()) {
+            metrics.reset();
+        }
+        windowStart = System.nanoTime();
+    }
+
+    // Exposes this registry over JMX, replacing an earlier registration under the same name
+    public void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    // "select accounts", "insert audit_logs", ...: the verb and the first table it touches
+    static String label(String sql) {
+        String[] tokens = sql.trim().toLowerCase(Locale.ROOT).split("[\\s(),]+");
+        if (tokens.length == 0 || tokens[0].isEmpty()) {
+            return "statement";
+        }
+        String verb = tokens[0];
+        String marker = switch (verb) {
+            case "insert", "merge" -> "into";
+            case "update" -> "update";
+            case "select", "delete", "with" -> "from";
+            default -> null;
+        };
+        if (marker != null) {
+            for (int i = 0; i < tokens.length - 1; i++) {
+                if (tokens[i].equals(marker) && !tokens[i + 1].equals("select") && !tokens[i + 1].isEmpty()) {
+                    return verb + " " + tokens[i + 1];
+                }
+            }
+        }
+        return verb;
+    }
+}
@@ -0,0 +1,13 @@
+package com.bank.metrics;
+
+import java.util.List;
+
+// JMX view of the service metrics, registered as com.bank:type=Metrics
+public interface MetricsRegistryMXBean {
+    List<OperationStats> getOperations();
+
+    String getReport();
+
+    // Clears every histogram and counter and restarts the rate window
+    void reset();
+}
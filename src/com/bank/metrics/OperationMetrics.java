@@ -0,0 +1,130 @@
+package com.bank.metrics;
+
+import com.bank.exception.BankingException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency and DB-time accounting for one named operation, split by outcome: "success",
+ * the reason of a BankingException (the text before any ':' detail), "SQLState xxxxx"
+ * for a SQLException, or the exception's class name otherwise.
+ *
+ * Operations run through time() or run(), which record exactly one outcome for them.
+ * The time the thread spent in JDBC calls meanwhile is reported as DB time and the
+ * rest as JVM time; nested operations each see their own share. Recording a success,
+ * or a failure whose reason has been seen before, does not allocate; a capturing
+ * lambda handed to time() or run() is the caller's allocation.
+ */
+public final class OperationMetrics {
+    public static final String SUCCESS = "success";
+    // reasons beyond this many are folded into "other" so a noisy message cannot grow the map
+    private static final int MAX_OUTCOMES = 32;
+    private static final String OTHER = "other";
+
+    private final String name;
+    private final Outcome success = new Outcome(SUCCESS);
+    private final Map<String, Outcome> failures = new ConcurrentHashMap<>();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    static final class Outcome {
+        final String name;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong dbNanos = new AtomicLong();
+
+        Outcome(String name) {
+            this.name = name;
+        }
+
+        void record(long elapsedNanos, long dbElapsedNanos) {
+            latency.record(elapsedNanos);
+            dbNanos.addAndGet(dbElapsedNanos);
+        }
+    }
+
+    @FunctionalInterface
+    public interface TimedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    public interface TimedAction<E extends Exception> {
+        void run() throws E;
+    }
+
+    public String getName() {return name;}
+
+    // Runs the operation and records its latency under its outcome; failures are rethrown unchanged
+    public <T, E extends Exception> T time(TimedCall<T, E> operation) throws E {
+        long dbStarted = DbTimer.total();
+        long started = System.nanoTime();
+        try {
+            T result = operation.call();
+            success.record(System.nanoTime() - started, DbTimer.total() - dbStarted);
+            return result;
+        } catch (Throwable e) {
+            outcome(reasonOf(e)).record(System.nanoTime() - started, DbTimer.total() - dbStarted);
+            throw e;
+        }
+    }
+
+    public <E extends Exception> void run(TimedAction<E> operation) throws E {
+        long dbStarted = DbTimer.total();
+        long started = System.nanoTime();
+        try {
+            operation.run();
+            success.record(System.nanoTime() - started, DbTimer.total() - dbStarted);
+        } catch (Throwable e) {
+            outcome(reasonOf(e)).record(System.nanoTime() - started, DbTimer.total() - dbStarted);
+            throw e;
+        }
+    }
+
+    // For callers that measured the time themselves, e.g. JDBC calls where all of it is DB time
+    void record(String outcome, long elapsedNanos, long dbElapsedNanos) {
+        (SUCCESS.equals(outcome) ? success : outcome(outcome)).record(elapsedNanos, dbElapsedNanos);
+    }
+
+    List<Outcome> outcomes() {
+        List<Outcome> outcomes = new ArrayList<>(failures.size() + 1);
+        outcomes.add(success);
+        outcomes.addAll(failures.values());
+        return outcomes;
+    }
+
+    void reset() {
+        for (Outcome outcome : outcomes()) {
+            outcome.latency.reset();
+            outcome.dbNanos.set(0);
+        }
+    }
+
+    private Outcome outcome(String reason) {
+        Outcome outcome = failures.get(reason);
+        if (outcome != null) {
+            return outcome;
+        }
+        if (failures.size() >= MAX_OUTCOMES) {
+            reason = OTHER;
+        }
+        return failures.computeIfAbsent(reason, Outcome::new);
+    }
+
+    static String reasonOf(Throwable failure) {
+        if (failure instanceof BankingException && failure.getMessage() != null) {
+            String message = failure.getMessage();
+            int detail = message.indexOf(':');
+            return detail < 0 ? message : message.substring(0, detail);
+        }
+        if (failure instanceof SQLException) {
+            return "SQLState " + ((SQLException) failure).getSQLState();
+        }
+        return failure.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,60 @@
+package com.bank.metrics;
+
+import java.beans.ConstructorProperties;
+
+// One row of the metrics MBean: an operation's latency and throughput for one outcome
+public class OperationStats {
+    private final String operation;
+    private final String outcome;
+    private final long count;
+    private final double ratePerSecond;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p90Millis;
+    private final double p99Millis;
+    private final double p999Millis;
+    private final double maxMillis;
+    private final double dbMillis;
+    private final double jvmMillis;
+
+    @ConstructorProperties({"operation", "outcome", "count", "ratePerSecond", "meanMillis", "p50Millis",
+        "p90Millis", "p99Millis", "p999Millis", "maxMillis", "dbMillis", "jvmMillis"})
+    public OperationStats(String operation, String outcome, long count, double ratePerSecond,
+                          double meanMillis, double p50Millis, double p90Millis, double p99Millis,
+                          double p999Millis, double maxMillis, double dbMillis, double jvmMillis) {
+        this.operation = operation;
+        this.outcome = outcome;
+        this.count = count;
+        this.ratePerSecond = ratePerSecond;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p90Millis = p90Millis;
+        this.p99Millis = p99Millis;
+        this.p999Millis = p999Millis;
+        this.maxMillis = maxMillis;
+        this.dbMillis = dbMillis;
+        this.jvmMillis = jvmMillis;
+    }
+
+    public String getOperation() {return operation;}
+    public String getOutcome() {return outcome;}
+    public long getCount() {return count;}
+    // completions per second since the registry was created or last reset
+    public double getRatePerSecond() {return ratePerSecond;}
+    public double getMeanMillis() {return meanMillis;}
+    public double getP50Millis() {return p50Millis;}
+    public double getP90Millis() {return p90Millis;}
+    public double getP99Millis() {return p99Millis;}
+    public double getP999Millis() {return p999Millis;}
+    public double getMaxMillis() {return maxMillis;}
+    // total time spent in JDBC calls, and the rest of the total latency
+    public double getDbMillis() {return dbMillis;}
+    public double getJvmMillis() {return jvmMillis;}
+
+    @Override
+    public String toString() {
+        return String.format("%-32s %-28s %9d %9.1f/s  mean %8.3f  p50 %8.3f  p99 %8.3f  p99.9 %8.3f  max %8.3f  db %5.1f%%",
+            operation, outcome, count, ratePerSecond, meanMillis, p50Millis, p99Millis, p999Millis, maxMillis,
+            dbMillis + jvmMillis == 0 ? 0.0 : 100.0 * dbMillis / (dbMillis + jvmMillis));
+    }
+}
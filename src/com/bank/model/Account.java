@@ -3,8 +3,6 @@ package com.bank.model;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.UUID;
-import java.util.concurrent.locks.ReentrantLock;
 
 public class Account {
     private final String id;
@@ -14,20 +12,23 @@ public class Account {
     private BigDecimal balance;
     private AccountStatus status;
     private LocalDateTime createdAt;
-    private final ReentrantLock lock;
+    private long version;
 
     public Account(String userId, AccountType type){
-        this.id = UUID.randomUUID().toString();
+        this.id = Ids.next();
         this.userId = userId;
         this.accountNumber = generateAccountNumber();
         this.type = type;
         this.balance = BigDecimal.ZERO;
         this.status = AccountStatus.ACTIVE;
         this.createdAt = LocalDateTime.now();
-        this.lock = new ReentrantLock();
     }
 
     public Account(String id, String userId, String accountNumber, AccountType type, BigDecimal balance, AccountStatus status){
+        this(id, userId, accountNumber, type, balance, status, 0);
+    }
+
+    public Account(String id, String userId, String accountNumber, AccountType type, BigDecimal balance, AccountStatus status, long version){
         this.id = id;
         this.userId = userId;
         this.accountNumber = accountNumber;
@@ -35,21 +36,13 @@ public class Account {
         this.balance = balance;
         this.status = status;
         this.createdAt = LocalDateTime.now();
-        this.lock = new ReentrantLock();
+        this.version = version;
     }
 
     private String generateAccountNumber(){
         return String.format("%012d", (long)(Math.random() * 1000000000000L));
     }
 
-    public void lock(){
-        lock.lock();
-    }
-
-    public void unlock(){
-        lock.unlock();
-    }
-
     //getters
     public String getId() {return id;}
     public String getUserId() {return userId;}
@@ -57,10 +50,13 @@ public class Account {
     public AccountType getType() {return type;}
     public BigDecimal getBalance() {return balance;}
     public AccountStatus getStatus() {return status;}
+    // row version the balance/status were read at; used for compare-and-set updates
+    public long getVersion() {return version;}
 
     //setters
     public void setBalance(BigDecimal balance) {this.balance = balance;}
     public void setStatus(AccountStatus status) {this.status = status;}
+    public void setVersion(long version) {this.version = version;}
 
     @Override
     public String toString(){
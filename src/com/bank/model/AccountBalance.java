@@ -0,0 +1,28 @@
+package com.bank.model;
+
+// The part of an accounts row that moving money reads and writes; the balance is in cents
+public class AccountBalance {
+    private final String id;
+    private final String accountNumber;
+    private long balanceCents;
+    private final AccountStatus status;
+    private long version;
+
+    public AccountBalance(String id, String accountNumber, long balanceCents, AccountStatus status, long version) {
+        this.id = id;
+        this.accountNumber = accountNumber;
+        this.balanceCents = balanceCents;
+        this.status = status;
+        this.version = version;
+    }
+
+    public String getId() {return id;}
+    public String getAccountNumber() {return accountNumber;}
+    public long getBalanceCents() {return balanceCents;}
+    public AccountStatus getStatus() {return status;}
+    // row version the balance was read at; used for compare-and-set updates
+    public long getVersion() {return version;}
+
+    public void setBalanceCents(long balanceCents) {this.balanceCents = balanceCents;}
+    public void setVersion(long version) {this.version = version;}
+}
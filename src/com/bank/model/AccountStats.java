@@ -0,0 +1,46 @@
+package com.bank.model;
+
+// Running transaction-amount statistics for one account (Welford's online algorithm)
+public class AccountStats {
+    private final String accountId;
+    private long count;
+    private double mean;
+    private double m2;
+
+    public AccountStats(String accountId) {
+        this(accountId, 0, 0.0, 0.0);
+    }
+
+    public AccountStats(String accountId, long count, double mean, double m2) {
+        this.accountId = accountId;
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    public void add(double amount) {
+        count++;
+        double delta = amount - mean;
+        mean += delta / count;
+        m2 += delta * (amount - mean);
+    }
+
+    // population variance, matching a full pass over the history
+    public double variance() {
+        return count == 0 ? 0.0 : m2 / count;
+    }
+
+    public double stdDev() {
+        return Math.sqrt(variance());
+    }
+
+    public String getAccountId() {return accountId;}
+    public long getCount() {return count;}
+    public double getMean() {return mean;}
+    public double getM2() {return m2;}
+
+    @Override
+    public String toString() {
+        return String.format("Stats[%s, n=%d, mean=%.2f, sd=%.2f]", accountId, count, mean, stdDev());
+    }
+}
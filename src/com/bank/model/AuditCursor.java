@@ -0,0 +1,26 @@
+package com.bank.model;
+
+import java.time.LocalDateTime;
+
+// Position in the audit log ordered by (timestamp DESC, id DESC)
+public class AuditCursor {
+    private final LocalDateTime timestamp;
+    private final String logId;
+
+    public AuditCursor(LocalDateTime timestamp, String logId) {
+        this.timestamp = timestamp;
+        this.logId = logId;
+    }
+
+    public static AuditCursor after(AuditLog log) {
+        return new AuditCursor(log.getTimestamp(), log.getId());
+    }
+
+    public LocalDateTime getTimestamp() {return timestamp;}
+    public String getLogId() {return logId;}
+
+    @Override
+    public String toString() {
+        return timestamp + "/" + logId;
+    }
+}
@@ -1,7 +1,6 @@
 package com.bank.model;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 public class AuditLog {
     private final String id;
@@ -11,7 +10,7 @@ public class AuditLog {
     private final LocalDateTime timestamp;
 
     public AuditLog(String action, String userId, String details) {
-        this.id = UUID.randomUUID().toString();
+        this.id = Ids.next();
         this.action = action;
         this.userId = userId;
         this.details = details;
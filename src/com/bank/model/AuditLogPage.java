@@ -0,0 +1,18 @@
+package com.bank.model;
+
+import java.util.List;
+
+public class AuditLogPage {
+    private final List<AuditLog> logs;
+    private final AuditCursor nextCursor;
+
+    public AuditLogPage(List<AuditLog> logs, AuditCursor nextCursor) {
+        this.logs = logs;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<AuditLog> getLogs() {return logs;}
+    // null when this is the last page
+    public AuditCursor getNextCursor() {return nextCursor;}
+    public boolean hasMore() {return nextCursor != null;}
+}
@@ -0,0 +1,42 @@
+package com.bank.model;
+
+import java.time.LocalDateTime;
+
+// Audit log filter; null fields match everything, and the time range is [from, to)
+public class AuditLogQuery {
+    public static final AuditLogQuery ALL = new AuditLogQuery(null, null, null, null);
+
+    private final String action;
+    private final String userId;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    public AuditLogQuery(String action, String userId, LocalDateTime from, LocalDateTime to) {
+        this.action = action;
+        this.userId = userId;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static AuditLogQuery byAction(String action) {
+        return new AuditLogQuery(action, null, null, null);
+    }
+
+    public static AuditLogQuery byUser(String userId) {
+        return new AuditLogQuery(null, userId, null, null);
+    }
+
+    public AuditLogQuery between(LocalDateTime from, LocalDateTime to) {
+        return new AuditLogQuery(action, userId, from, to);
+    }
+
+    public String getAction() {return action;}
+    public String getUserId() {return userId;}
+    public LocalDateTime getFrom() {return from;}
+    public LocalDateTime getTo() {return to;}
+
+    @Override
+    public String toString() {
+        return String.format("AuditLogQuery[action=%s, user=%s, %s..%s]", action, userId, from, to);
+    }
+}
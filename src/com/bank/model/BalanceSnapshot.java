@@ -0,0 +1,26 @@
+package com.bank.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Balance of an account including every transaction with timestamp <= takenAt
+public class BalanceSnapshot {
+    private final String accountId;
+    private final LocalDateTime takenAt;
+    private final BigDecimal balance;
+
+    public BalanceSnapshot(String accountId, LocalDateTime takenAt, BigDecimal balance) {
+        this.accountId = accountId;
+        this.takenAt = takenAt;
+        this.balance = balance;
+    }
+
+    public String getAccountId() {return accountId;}
+    public LocalDateTime getTakenAt() {return takenAt;}
+    public BigDecimal getBalance() {return balance;}
+
+    @Override
+    public String toString() {
+        return String.format("Snapshot[%s @ %s: $%.2f]", accountId, takenAt, balance);
+    }
+}
@@ -0,0 +1,46 @@
+package com.bank.model;
+
+import java.util.List;
+
+public class BatchTransferResult {
+    private final int submitted;
+    private final List<Failure> failures;
+
+    public BatchTransferResult(int submitted, List<Failure> failures) {
+        this.submitted = submitted;
+        this.failures = failures;
+    }
+
+    public static class Failure {
+        private final int index;
+        private final TransferRequest request;
+        private final String reason;
+
+        public Failure(int index, TransferRequest request, String reason) {
+            this.index = index;
+            this.request = request;
+            this.reason = reason;
+        }
+
+        // position of the request in the submitted list
+        public int getIndex() {return index;}
+        public TransferRequest getRequest() {return request;}
+        public String getReason() {return reason;}
+
+        @Override
+        public String toString() {
+            return String.format("#%d %s: %s", index, request, reason);
+        }
+    }
+
+    public int getSubmitted() {return submitted;}
+    public int getSucceeded() {return submitted - failures.size();}
+    public List<Failure> getFailures() {return failures;}
+    public boolean allSucceeded() {return failures.isEmpty();}
+
+    @Override
+    public String toString() {
+        return String.format("BatchTransfer[%d submitted, %d succeeded, %d failed]",
+            submitted, getSucceeded(), failures.size());
+    }
+}
@@ -0,0 +1,26 @@
+package com.bank.model;
+
+import java.time.LocalDateTime;
+
+// Position in an account history ordered by (timestamp DESC, id DESC)
+public class HistoryCursor {
+    private final LocalDateTime timestamp;
+    private final String transactionId;
+
+    public HistoryCursor(LocalDateTime timestamp, String transactionId) {
+        this.timestamp = timestamp;
+        this.transactionId = transactionId;
+    }
+
+    public static HistoryCursor after(Transaction transaction) {
+        return new HistoryCursor(transaction.getTimestamp(), transaction.getId());
+    }
+
+    public LocalDateTime getTimestamp() {return timestamp;}
+    public String getTransactionId() {return transactionId;}
+
+    @Override
+    public String toString() {
+        return timestamp + "/" + transactionId;
+    }
+}
@@ -0,0 +1,28 @@
+package com.bank.model;
+
+import java.time.LocalDateTime;
+
+// A client-supplied key and the request it was first used for; transactionId is null while that request runs
+public class IdempotencyRecord {
+    private final String key;
+    private final String fingerprint;
+    private final String transactionId;
+    private final LocalDateTime expiresAt;
+
+    public IdempotencyRecord(String key, String fingerprint, String transactionId, LocalDateTime expiresAt) {
+        this.key = key;
+        this.fingerprint = fingerprint;
+        this.transactionId = transactionId;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getKey() {return key;}
+    // operation, accounts, amount and user of the original request
+    public String getFingerprint() {return fingerprint;}
+    public String getTransactionId() {return transactionId;}
+    public LocalDateTime getExpiresAt() {return expiresAt;}
+
+    public boolean isCompleted() {
+        return transactionId != null;
+    }
+}
@@ -0,0 +1,54 @@
+package com.bank.model;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Row ids: time-ordered version 7 UUIDs (RFC 9562) in the usual 36-character form, which is
+ * what the API hands out. The first 48 bits are the creation time in milliseconds and the
+ * next 12 count ids within that millisecond, so ids from this process sort in creation order
+ * and new rows are appended at the right edge of each key index instead of splitting pages
+ * all over it. The database stores them as 16-byte UUID columns.
+ */
+public final class Ids {
+    // the id a keyset query starts after: no UUID sorts below it
+    public static final String MIN = "00000000-0000-0000-0000-000000000000";
+
+    // (millis << 12) | counter of the last id handed out
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private Ids() {
+    }
+
+    public static String next() {
+        long now = System.currentTimeMillis() << 12;
+        long previous;
+        long stamp;
+        do {
+            previous = LAST.get();
+            // more than 4096 ids in one millisecond borrow from the next one
+            stamp = Math.max(now, previous + 1);
+        } while (!LAST.compareAndSet(previous, stamp));
+
+        long high = (stamp >>> 12) << 16 | 0x7000L | (stamp & 0xFFF);
+        long low = ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(high, low).toString();
+    }
+
+    // Whether the id can be stored in a UUID column; anything else cannot match a row
+    public static boolean isValid(String id) {
+        if (id == null || id.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            boolean ok = (i == 8 || i == 13 || i == 18 || i == 23) ? c == '-'
+                : (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,27 @@
+package com.bank.model;
+
+// Progress of a bulk import job; rowsDone counts data rows consumed, accepted or rejected
+public class ImportCheckpoint {
+    private final String jobId;
+    private final String kind;
+    private final long rowsDone;
+    private final long accepted;
+    private final long rejected;
+    private final boolean completed;
+
+    public ImportCheckpoint(String jobId, String kind, long rowsDone, long accepted, long rejected, boolean completed) {
+        this.jobId = jobId;
+        this.kind = kind;
+        this.rowsDone = rowsDone;
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.completed = completed;
+    }
+
+    public String getJobId() {return jobId;}
+    public String getKind() {return kind;}
+    public long getRowsDone() {return rowsDone;}
+    public long getAccepted() {return accepted;}
+    public long getRejected() {return rejected;}
+    public boolean isCompleted() {return completed;}
+}
@@ -0,0 +1,39 @@
+package com.bank.model;
+
+import java.nio.file.Path;
+
+public class ImportReport {
+    private final String jobId;
+    private final String kind;
+    private final long resumedAt;
+    private final long accepted;
+    private final long rejected;
+    private final Path rejectsFile;
+    private final long elapsedMillis;
+
+    public ImportReport(String jobId, String kind, long resumedAt, long accepted, long rejected,
+                        Path rejectsFile, long elapsedMillis) {
+        this.jobId = jobId;
+        this.kind = kind;
+        this.resumedAt = resumedAt;
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.rejectsFile = rejectsFile;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getJobId() {return jobId;}
+    public String getKind() {return kind;}
+    // data rows skipped because an earlier run of the job had already committed them
+    public long getResumedAt() {return resumedAt;}
+    public long getAccepted() {return accepted;}
+    public long getRejected() {return rejected;}
+    public Path getRejectsFile() {return rejectsFile;}
+    public long getElapsedMillis() {return elapsedMillis;}
+
+    @Override
+    public String toString() {
+        return String.format("Import[%s %s: %d accepted, %d rejected, resumed at row %d, %d ms]",
+            jobId, kind, accepted, rejected, resumedAt, elapsedMillis);
+    }
+}
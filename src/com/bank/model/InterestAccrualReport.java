@@ -0,0 +1,37 @@
+package com.bank.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class InterestAccrualReport {
+    private final LocalDate businessDate;
+    private final int partitions;
+    private final int resumedPartitions;
+    private final long accounts;
+    private final BigDecimal interest;
+    private final long elapsedMillis;
+
+    public InterestAccrualReport(LocalDate businessDate, int partitions, int resumedPartitions, long accounts,
+                                 BigDecimal interest, long elapsedMillis) {
+        this.businessDate = businessDate;
+        this.partitions = partitions;
+        this.resumedPartitions = resumedPartitions;
+        this.accounts = accounts;
+        this.interest = interest;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public LocalDate getBusinessDate() {return businessDate;}
+    public int getPartitions() {return partitions;}
+    // partitions that an earlier run of the same date had already started or finished
+    public int getResumedPartitions() {return resumedPartitions;}
+    public long getAccounts() {return accounts;}
+    public BigDecimal getInterest() {return interest;}
+    public long getElapsedMillis() {return elapsedMillis;}
+
+    @Override
+    public String toString() {
+        return String.format("InterestAccrual[%s: $%.2f on %d accounts, %d partitions (%d resumed), %d ms]",
+            businessDate, interest, accounts, partitions, resumedPartitions, elapsedMillis);
+    }
+}
@@ -0,0 +1,38 @@
+package com.bank.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Progress of one id range (lowId, highId] of an interest run; a null highId is open-ended
+public class InterestPartition {
+    private final LocalDate businessDate;
+    private final int partition;
+    private final String lowId;
+    private final String highId;
+    private final String lastId;
+    private final long accounts;
+    private final BigDecimal interest;
+    private final boolean completed;
+
+    public InterestPartition(LocalDate businessDate, int partition, String lowId, String highId, String lastId,
+                             long accounts, BigDecimal interest, boolean completed) {
+        this.businessDate = businessDate;
+        this.partition = partition;
+        this.lowId = lowId;
+        this.highId = highId;
+        this.lastId = lastId;
+        this.accounts = accounts;
+        this.interest = interest;
+        this.completed = completed;
+    }
+
+    public LocalDate getBusinessDate() {return businessDate;}
+    public int getPartition() {return partition;}
+    public String getLowId() {return lowId;}
+    public String getHighId() {return highId;}
+    // accounts up to and including this id have been credited
+    public String getLastId() {return lastId;}
+    public long getAccounts() {return accounts;}
+    public BigDecimal getInterest() {return interest;}
+    public boolean isCompleted() {return completed;}
+}
@@ -0,0 +1,21 @@
+package com.bank.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// One end-of-day interest accrual; the rate is fixed when the run is first planned
+public class InterestRun {
+    private final LocalDate businessDate;
+    private final BigDecimal annualRate;
+    private final boolean completed;
+
+    public InterestRun(LocalDate businessDate, BigDecimal annualRate, boolean completed) {
+        this.businessDate = businessDate;
+        this.annualRate = annualRate;
+        this.completed = completed;
+    }
+
+    public LocalDate getBusinessDate() {return businessDate;}
+    public BigDecimal getAnnualRate() {return annualRate;}
+    public boolean isCompleted() {return completed;}
+}
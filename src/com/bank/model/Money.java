@@ -0,0 +1,68 @@
+package com.bank.model;
+
+import com.bank.exception.BankingException;
+import java.math.BigDecimal;
+
+/**
+ * Money as a long count of cents. Balance checks and updates do their arithmetic on the
+ * primitive through these helpers, which allocate nothing and throw ArithmeticException
+ * instead of wrapping around or leaving the range of a DECIMAL(15, 2) column. BigDecimal
+ * is only used where an amount enters through the API or crosses the JDBC boundary.
+ */
+public final class Money {
+    // largest magnitude a DECIMAL(15, 2) column holds
+    public static final long MAX_CENTS = 9_999_999_999_999_99L;
+
+    private Money() {
+    }
+
+    // Exact conversion; throws ArithmeticException for fractions of a cent or out-of-range amounts
+    public static long toCents(BigDecimal amount) {
+        return checked(amount.movePointRight(2).longValueExact());
+    }
+
+    // The amount in cents; the one conversion an amount goes through on its way in
+    public static long requirePositive(BigDecimal amount) throws BankingException {
+        if (amount == null || amount.signum() <= 0) {
+            throw new BankingException("Amount must be positive");
+        }
+        try {
+            return toCents(amount);
+        } catch (ArithmeticException e) {
+            throw new BankingException("Amount must be whole cents and fit in a balance");
+        }
+    }
+
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    // For statistics, which work in dollars
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    public static long add(long a, long b) {
+        return checked(Math.addExact(a, b));
+    }
+
+    public static long subtract(long a, long b) {
+        return checked(Math.subtractExact(a, b));
+    }
+
+    // Adds a credit to a balance, failing the posting instead of overflowing the column
+    public static long credit(long balance, long cents) throws BankingException {
+        try {
+            return add(balance, cents);
+        } catch (ArithmeticException e) {
+            throw new BankingException("Balance would exceed the maximum");
+        }
+    }
+
+    private static long checked(long cents) {
+        if (cents > MAX_CENTS || cents < -MAX_CENTS) {
+            throw new ArithmeticException("Amount out of DECIMAL(15, 2) range: " + cents + " cents");
+        }
+        return cents;
+    }
+}
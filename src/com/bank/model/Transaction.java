@@ -2,7 +2,6 @@ package com.bank.model;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 public class Transaction {
     private final String id;
@@ -14,7 +13,7 @@ public class Transaction {
     private final String description;
 
     public Transaction(String fromAccountId, String toAccountId, BigDecimal amount, TransactionType type, String description){
-        this.id = UUID.randomUUID().toString();
+        this.id = Ids.next();
         this.fromAccountId = fromAccountId;
         this.toAccountId = toAccountId;
         this.amount = amount;
@@ -0,0 +1,18 @@
+package com.bank.model;
+
+import java.util.List;
+
+public class TransactionPage {
+    private final List<Transaction> transactions;
+    private final HistoryCursor nextCursor;
+
+    public TransactionPage(List<Transaction> transactions, HistoryCursor nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Transaction> getTransactions() {return transactions;}
+    // null when this is the last page
+    public HistoryCursor getNextCursor() {return nextCursor;}
+    public boolean hasMore() {return nextCursor != null;}
+}
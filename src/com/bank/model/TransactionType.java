@@ -1,5 +1,5 @@
 package com.bank.model;
 
 public enum TransactionType {
-    DEPOSIT, WITHDRAWAL, TRANSFER
+    DEPOSIT, WITHDRAWAL, TRANSFER, INTEREST
 }
@@ -0,0 +1,27 @@
+package com.bank.model;
+
+import java.math.BigDecimal;
+
+public class TransferRequest {
+    private final String fromAccountId;
+    private final String toAccountId;
+    private final BigDecimal amount;
+    private final String userId;
+
+    public TransferRequest(String fromAccountId, String toAccountId, BigDecimal amount, String userId) {
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.userId = userId;
+    }
+
+    public String getFromAccountId() {return fromAccountId;}
+    public String getToAccountId() {return toAccountId;}
+    public BigDecimal getAmount() {return amount;}
+    public String getUserId() {return userId;}
+
+    @Override
+    public String toString() {
+        return String.format("Transfer[%s -> %s, $%.2f]", fromAccountId, toAccountId, amount);
+    }
+}
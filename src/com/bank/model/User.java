@@ -1,8 +1,6 @@
 package com.bank.model;
-import java.security.MessageDigest;
-import java.security.SecureRandom;
+import com.bank.service.PasswordHasher;
 import java.time.LocalDateTime;
-import java.util.UUID;
 import java.util.Base64;
 
 public class User {
@@ -16,7 +14,7 @@ public class User {
 
     //new users
     public User(String name, String email, String password, Role role){
-        this.id = UUID.randomUUID().toString();
+        this.id = Ids.next();
         this.name = name;
         this.email = email;
         this.salt = generateSalt();
@@ -37,25 +35,16 @@ public class User {
     }
 
     private String generateSalt(){
-        SecureRandom rand = new SecureRandom();
-        byte[] salt = new byte[16];
-        rand.nextBytes(salt);
-        return Base64.getEncoder().encodeToString(salt);
+        return Base64.getEncoder().encodeToString(PasswordHasher.newSalt());
     }
 
     private String hashPassword(String password, String salt){
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            md.update(Base64.getDecoder().decode(salt));
-            byte[] hashedPassword = md.digest(password.getBytes());
-            return Base64.getEncoder().encodeToString(hashedPassword);
-        } catch (Exception e) {
-            throw new RuntimeException("Error hashing password", e);
-        }
+        return Base64.getEncoder().encodeToString(PasswordHasher.hash(Base64.getDecoder().decode(salt), password));
     }
 
     public boolean verifyPassword(String password){
-        return hashPassword(password, salt).equals(passwordHash);
+        Base64.Decoder decoder = Base64.getDecoder();
+        return PasswordHasher.matches(decoder.decode(salt), decoder.decode(passwordHash), password);
     }
 
     //getters
@@ -0,0 +1,22 @@
+package com.bank.model;
+
+public class UserRegistration {
+    private final String name;
+    private final String email;
+    private final String password;
+
+    public UserRegistration(String name, String email, String password) {
+        this.name = name;
+        this.email = email;
+        this.password = password;
+    }
+
+    public String getName() {return name;}
+    public String getEmail() {return email;}
+    public String getPassword() {return password;}
+
+    @Override
+    public String toString() {
+        return "Registration[" + email + "]";
+    }
+}
@@ -0,0 +1,143 @@
+package com.bank.readmodel;
+
+import com.bank.model.*;
+import com.bank.repository.RowMappers;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Queries against the read store. Results trail the primary by the projector's lag, and
+ * accounts carry version 0 because versions are not projected, so nothing read here may
+ * feed a compare-and-set update.
+ */
+public class ReadModel {
+    private static final LocalDateTime MIN_TIMESTAMP = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final String HISTORY_COLUMNS = "transaction_id, from_account_id, to_account_id, amount, type, description, timestamp";
+
+    private final ReadStore store;
+
+    public ReadModel(ReadStore store) {
+        this.store = store;
+    }
+
+    public boolean isReady() {
+        return store.isReady();
+    }
+
+    // Newest first; null when the account has not been projected yet
+    public List<Transaction> findHistory(String accountId) throws SQLException {
+        String sql = "SELECT " + HISTORY_COLUMNS + " FROM account_history WHERE account_id = ? " +
+                     "ORDER BY timestamp DESC, transaction_id DESC";
+
+        try (Connection conn = store.getConnection()) {
+            if (!hasAccount(conn, accountId)) {
+                return null;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, accountId);
+                return readTransactions(stmt.executeQuery());
+            }
+        }
+    }
+
+    /**
+     * At most {@code limit} transactions of the account in [from, to), newest first, strictly
+     * after {@code after}; same paging contract as TransactionRepository.findByAccountId.
+     * Null when the account has not been projected yet.
+     */
+    public List<Transaction> findHistory(String accountId, LocalDateTime from, LocalDateTime to,
+                                         HistoryCursor after, int limit) throws SQLException {
+        String sql = "SELECT " + HISTORY_COLUMNS + " FROM account_history " +
+                     "WHERE account_id = ? AND timestamp >= ? AND (timestamp < ? OR (timestamp = ? AND transaction_id < ?)) " +
+                     "ORDER BY timestamp DESC, transaction_id DESC LIMIT ?";
+        Timestamp upper;
+        String upperId;
+        if (after != null) {
+            upper = Timestamp.valueOf(after.getTimestamp());
+            upperId = after.getTransactionId();
+        } else {
+            // "timestamp = to AND id < MIN" never matches, leaving an exclusive upper bound
+            upper = Timestamp.valueOf(to != null ? to : MAX_TIMESTAMP);
+            upperId = Ids.MIN;
+        }
+
+        try (Connection conn = store.getConnection()) {
+            if (!hasAccount(conn, accountId)) {
+                return null;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, accountId);
+                stmt.setTimestamp(2, Timestamp.valueOf(from != null ? from : MIN_TIMESTAMP));
+                stmt.setTimestamp(3, upper);
+                stmt.setTimestamp(4, upper);
+                stmt.setString(5, upperId);
+                stmt.setInt(6, limit);
+                return readTransactions(stmt.executeQuery());
+            }
+        }
+    }
+
+    public List<Account> findAccountsByUserId(String userId) throws SQLException {
+        // positional match for RowMappers.ACCOUNT, with 0 in place of the version
+        String sql = "SELECT account_id, user_id, account_number, type, balance, status, 0 " +
+                     "FROM account_summaries WHERE user_id = ?";
+        List<Account> accounts = new ArrayList<>();
+        if (!Ids.isValid(userId)) {
+            return accounts;
+        }
+
+        try (Connection conn = store.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, userId);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                accounts.add(RowMappers.ACCOUNT.map(rs));
+            }
+        }
+        return accounts;
+    }
+
+    public List<AuditLog> latestAuditLogs(int limit) throws SQLException {
+        String sql = "SELECT " + RowMappers.AUDIT_LOG_COLUMNS + " FROM audit_entries " +
+                     "ORDER BY timestamp DESC, id DESC LIMIT ?";
+
+        try (Connection conn = store.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, limit);
+            return readAuditLogs(stmt.executeQuery());
+        }
+    }
+
+    private static boolean hasAccount(Connection conn, String accountId) throws SQLException {
+        if (!Ids.isValid(accountId)) {
+            return false;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM account_summaries WHERE account_id = ?")) {
+            stmt.setString(1, accountId);
+            return stmt.executeQuery().next();
+        }
+    }
+
+    private static List<AuditLog> readAuditLogs(ResultSet rs) throws SQLException {
+        List<AuditLog> logs = new ArrayList<>();
+        while (rs.next()) {
+            logs.add(RowMappers.AUDIT_LOG.map(rs));
+        }
+        return logs;
+    }
+
+    private static List<Transaction> readTransactions(ResultSet rs) throws SQLException {
+        List<Transaction> transactions = new ArrayList<>();
+        while (rs.next()) {
+            // HISTORY_COLUMNS lines up with RowMappers.TRANSACTION_COLUMNS
+            transactions.add(RowMappers.TRANSACTION.map(rs));
+        }
+        return transactions;
+    }
+}
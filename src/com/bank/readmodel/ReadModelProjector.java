@@ -0,0 +1,656 @@
+package com.bank.readmodel;
+
+import com.bank.metrics.HistogramSnapshot;
+import com.bank.metrics.LatencyHistogram;
+import com.bank.model.*;
+import com.bank.repository.ConnectionSource;
+import com.bank.repository.DatabaseConnection;
+import com.bank.repository.RowMappers;
+import com.bank.service.AccountListener;
+import com.bank.service.TransactionListener;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Keeps the read store up to date from committed writes. Committed transactions and account
+ * changes arrive as listener callbacks and only enqueue; one projector thread applies them in
+ * batches of up to batchSize, one read-store transaction per batch, and every pollMillis copies
+ * new audit_logs rows from the primary by (timestamp, id).
+ *
+ * The projection starts out stale and is rebuilt from the primary by the projector thread,
+ * as it is whenever the queue overflows or a batch fails. Applying a transaction that is
+ * already in the store is a no-op, so events racing a rebuild are not counted twice. Bulk
+ * imports and interest runs do not notify listeners; call rebuild() after them. A rebuild
+ * copies the transactions table, so with a JournalTransactionRepository the projected
+ * history is incomplete and history reads must not be routed to the read model.
+ *
+ * With several shards a rebuild copies each one in its own snapshot. A cross-shard transfer
+ * that is still DEBITED counts as not yet made, since its completion arrives as an event;
+ * one that settles in between two shards' snapshots may show on one side only until the
+ * next rebuild.
+ */
+public class ReadModelProjector implements TransactionListener, AccountListener, ReadModelProjectorMXBean,
+        AutoCloseable {
+    private static final String OBJECT_NAME = "com.bank:type=ReadModel";
+    // H2 stamps audit rows at transaction start, so sweeps re-read this far back for late commits
+    private static final Duration AUDIT_OVERLAP = Duration.ofSeconds(5);
+    private static final int COPY_BATCH = 1000;
+    private static final LocalDateTime MIN_TIMESTAMP = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final ReadStore store;
+    // the databases a rebuild copies accounts and transactions from
+    private final List<ConnectionSource> sources;
+    private final BlockingQueue<Event> queue;
+    private final int batchSize;
+    private final long pollMillis;
+    private final Thread worker;
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    private volatile boolean running = true;
+
+    private final LatencyHistogram lag = new LatencyHistogram();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    // commit time of the oldest write in the batch being applied, 0 when idle
+    private volatile long applyingSince;
+
+    // owned by the projector thread: (timestamp, id) of the newest audit row copied
+    private LocalDateTime auditTimestamp = MIN_TIMESTAMP;
+    private String auditId = Ids.MIN;
+    private final Map<String, LocalDateTime> recentAuditIds = new HashMap<>();
+    private long lastAuditPass;
+    private long lastAuditSweep;
+
+    private ReadModelProjector(ReadStore store, List<ConnectionSource> sources, int capacity, int batchSize,
+                               long pollMillis) {
+        this.store = store;
+        this.sources = sources;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.pollMillis = pollMillis;
+        this.worker = new Thread(this::run, "read-model-projector");
+        this.worker.setDaemon(true);
+    }
+
+    // Creates a projector of the primary and starts its thread once it is fully constructed
+    public static ReadModelProjector start(ReadStore store, int capacity, int batchSize, long pollMillis) {
+        return start(store, List.of(ConnectionSource.PRIMARY), capacity, batchSize, pollMillis);
+    }
+
+    // Projects accounts and transactions spread over several databases, e.g. ShardRouter.shards()
+    public static ReadModelProjector start(ReadStore store, List<ConnectionSource> sources, int capacity,
+                                           int batchSize, long pollMillis) {
+        ReadModelProjector projector = new ReadModelProjector(store, sources, capacity, batchSize, pollMillis);
+        projector.worker.start();
+        return projector;
+    }
+
+    public void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    @Override
+    public void onCommitted(Transaction transaction) {
+        enqueue(new Event(transaction, null, null, null));
+    }
+
+    @Override
+    public void onAccountChanged(Account account) {
+        // the status is copied because callers keep mutating their Account
+        enqueue(new Event(null, account, account.getStatus(), null));
+    }
+
+    // A full queue never holds up the caller; the dropped write is recovered by a rebuild
+    private void enqueue(Event event) {
+        if (running && !queue.offer(event)) {
+            stale.set(true);
+            store.setReady(false);
+        }
+    }
+
+    // Schedules a full copy from the primary; reads go to the primary until it has finished
+    public void rebuild() {
+        stale.set(true);
+        store.setReady(false);
+    }
+
+    // Blocks until every write committed before this call, audit rows included, is in the read store
+    public void flush() {
+        Event marker = new Event(null, null, null, new CountDownLatch(1));
+        try {
+            if (!queue.offer(marker, pollMillis, TimeUnit.MILLISECONDS)) {
+                return; // the queue is overflowing, so the store is stale anyway
+            }
+            while (!marker.flushed.await(pollMillis, TimeUnit.MILLISECONDS)) {
+                if (!worker.isAlive()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Event first = queue.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                if (stale.get()) {
+                    copyFromPrimary();
+                }
+                boolean flushing = apply(batch);
+                long now = System.currentTimeMillis();
+                if (flushing || now - lastAuditSweep >= AUDIT_OVERLAP.toMillis() / 2) {
+                    copyAuditLogs(true);
+                } else if (now - lastAuditPass >= pollMillis) {
+                    copyAuditLogs(false);
+                }
+            } catch (InterruptedException e) {
+                // keep draining; close() stops the loop once the queue is empty
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Read model projection failed, rebuilding: " + e.getMessage());
+                rebuild();
+            } finally {
+                applyingSince = 0;
+                for (Event event : batch) {
+                    if (event.flushed != null) {
+                        event.flushed.countDown();
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    // Applies the batch in one read-store transaction; true if it carries a flush marker
+    private boolean apply(List<Event> batch) throws SQLException {
+        List<Transaction> transactions = new ArrayList<>();
+        List<Event> accounts = new ArrayList<>();
+        boolean flushing = false;
+        long oldest = Long.MAX_VALUE;
+        for (Event event : batch) {
+            if (event.transaction != null) {
+                transactions.add(event.transaction);
+            } else if (event.account != null) {
+                accounts.add(event);
+            } else {
+                flushing = true;
+                continue;
+            }
+            oldest = Math.min(oldest, event.committedAt);
+        }
+        if (transactions.isEmpty() && accounts.isEmpty()) {
+            return flushing;
+        }
+        applyingSince = oldest;
+
+        try (Connection conn = store.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                mergeAccounts(conn, accounts);
+                List<Transaction> unseen = unseen(conn, transactions);
+                insertHistory(conn, unseen);
+                addActivity(conn, unseen);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        for (Event event : batch) {
+            if (event.committedAt > 0) {
+                lag.record(TimeUnit.MILLISECONDS.toNanos(now - event.committedAt));
+            }
+        }
+        applied.addAndGet(transactions.size() + accounts.size());
+        return flushing;
+    }
+
+    // New accounts are inserted with a zero balance; known ones only take the new status
+    private void mergeAccounts(Connection conn, List<Event> accounts) throws SQLException {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        String sql = "MERGE INTO account_summaries (account_id, user_id, account_number, type, status) " +
+                     "KEY (account_id) VALUES (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Event event : accounts) {
+                stmt.setString(1, event.account.getId());
+                stmt.setString(2, event.account.getUserId());
+                stmt.setString(3, event.account.getAccountNumber());
+                stmt.setString(4, event.account.getType().name());
+                stmt.setString(5, event.status.name());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // Drops transactions a rebuild has already copied
+    private List<Transaction> unseen(Connection conn, List<Transaction> transactions) throws SQLException {
+        if (transactions.isEmpty()) {
+            return transactions;
+        }
+        String sql = "SELECT DISTINCT transaction_id FROM account_history WHERE transaction_id = ANY(?)";
+        Object[] ids = new Object[transactions.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = transactions.get(i).getId();
+        }
+        Set<String> seen = new HashSet<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("VARCHAR", ids));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                seen.add(rs.getString(1));
+            }
+        }
+        if (seen.isEmpty()) {
+            return transactions;
+        }
+        List<Transaction> unseen = new ArrayList<>(transactions.size() - seen.size());
+        for (Transaction transaction : transactions) {
+            if (!seen.contains(transaction.getId())) {
+                unseen.add(transaction);
+            }
+        }
+        return unseen;
+    }
+
+    // One history row per account the transaction touches; a self-transfer gets one
+    private void insertHistory(Connection conn, List<Transaction> transactions) throws SQLException {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO account_history (account_id, transaction_id, from_account_id, to_account_id, " +
+                     "amount, type, description, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Transaction transaction : transactions) {
+                String from = transaction.getFromAccountId();
+                String to = transaction.getToAccountId();
+                if (from != null) {
+                    addHistoryRow(stmt, from, transaction);
+                }
+                if (to != null && !to.equals(from)) {
+                    addHistoryRow(stmt, to, transaction);
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static void addHistoryRow(PreparedStatement stmt, String accountId, Transaction transaction)
+            throws SQLException {
+        stmt.setString(1, accountId);
+        stmt.setString(2, transaction.getId());
+        stmt.setString(3, transaction.getFromAccountId());
+        stmt.setString(4, transaction.getToAccountId());
+        stmt.setBigDecimal(5, transaction.getAmount());
+        stmt.setString(6, transaction.getType().name());
+        stmt.setString(7, transaction.getDescription());
+        stmt.setObject(8, transaction.getTimestamp());
+        stmt.addBatch();
+    }
+
+    // Moves each summary's balance by its net flow in the batch, with one UPDATE per account
+    private void addActivity(Connection conn, List<Transaction> transactions) throws SQLException {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        Map<String, Activity> activity = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            String from = transaction.getFromAccountId();
+            String to = transaction.getToAccountId();
+            if (from != null) {
+                activity.computeIfAbsent(from, id -> new Activity()).add(transaction.getAmount().negate(), transaction);
+            }
+            if (to != null) {
+                // a self-transfer nets to zero but still counts once
+                activity.computeIfAbsent(to, id -> new Activity()).add(transaction.getAmount(), to.equals(from) ? null : transaction);
+            }
+        }
+        String sql = "UPDATE account_summaries SET balance = balance + ?, transaction_count = transaction_count + ?, " +
+                     "last_activity = GREATEST(COALESCE(last_activity, ?), ?) WHERE account_id = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<String, Activity> entry : activity.entrySet()) {
+                Activity account = entry.getValue();
+                stmt.setBigDecimal(1, account.delta);
+                stmt.setLong(2, account.count);
+                stmt.setObject(3, account.last);
+                stmt.setObject(4, account.last);
+                stmt.setString(5, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Replaces the projection with a copy of the primary, or of every shard. Accounts and
+     * transactions of a database are read in one snapshot transaction, so every copied balance
+     * agrees with the copied history.
+     */
+    private void copyFromPrimary() throws SQLException {
+        stale.set(false); // an overflow from here on needs another rebuild
+        store.setReady(false);
+        rebuilds.incrementAndGet();
+
+        try (Connection target = store.getConnection()) {
+            try (Statement stmt = target.createStatement()) {
+                stmt.execute("TRUNCATE TABLE account_summaries");
+                stmt.execute("TRUNCATE TABLE account_history");
+                stmt.execute("TRUNCATE TABLE audit_entries");
+            }
+            List<Transaction> debited = new ArrayList<>();
+            for (ConnectionSource shard : sources) {
+                try (Connection source = shard.getConnection()) {
+                    int isolation = source.getTransactionIsolation();
+                    try (Statement stmt = source.createStatement()) {
+                        stmt.execute("SET SESSION CHARACTERISTICS AS TRANSACTION ISOLATION LEVEL SNAPSHOT");
+                    }
+                    source.setAutoCommit(false);
+                    try {
+                        copyAccounts(source, target);
+                        copyTransactions(source, target);
+                        findDebited(source, debited);
+                        source.commit();
+                    } finally {
+                        source.setAutoCommit(true);
+                        source.setTransactionIsolation(isolation);
+                    }
+                }
+            }
+            restoreDebited(target, debited);
+            try (Statement stmt = target.createStatement()) {
+                stmt.executeUpdate("""
+                    UPDATE account_summaries s SET
+                        transaction_count = (SELECT COUNT(*) FROM account_history h WHERE h.account_id = s.account_id),
+                        last_activity = (SELECT MAX(timestamp) FROM account_history h WHERE h.account_id = s.account_id)
+                    """);
+            }
+        }
+
+        auditTimestamp = MIN_TIMESTAMP;
+        auditId = Ids.MIN;
+        recentAuditIds.clear();
+        copyAuditLogs(true);
+        store.setReady(!stale.get());
+    }
+
+    private void copyAccounts(Connection source, Connection target) throws SQLException {
+        String select = "SELECT id, user_id, account_number, type, balance, status FROM accounts";
+        String insert = "INSERT INTO account_summaries (account_id, user_id, account_number, type, balance, status) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)";
+
+        try (Statement query = source.createStatement();
+             PreparedStatement stmt = target.prepareStatement(insert)) {
+            query.setFetchSize(COPY_BATCH);
+            ResultSet rs = query.executeQuery(select);
+            int pending = 0;
+            while (rs.next()) {
+                for (int i = 1; i <= 6; i++) {
+                    stmt.setObject(i, rs.getObject(i));
+                }
+                stmt.addBatch();
+                if (++pending == COPY_BATCH) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    private void copyTransactions(Connection source, Connection target) throws SQLException {
+        String select = "SELECT " + RowMappers.TRANSACTION_COLUMNS + " FROM transactions";
+        // a transfer between shards is stored on both, so the second copy must not collide
+        String insert = "MERGE INTO account_history (account_id, transaction_id, from_account_id, to_account_id, " +
+                        "amount, type, description, timestamp) KEY (account_id, transaction_id) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Statement query = source.createStatement();
+             PreparedStatement stmt = target.prepareStatement(insert)) {
+            query.setFetchSize(COPY_BATCH);
+            ResultSet rs = query.executeQuery(select);
+            int pending = 0;
+            while (rs.next()) {
+                Transaction transaction = RowMappers.TRANSACTION.map(rs);
+                String from = transaction.getFromAccountId();
+                String to = transaction.getToAccountId();
+                if (from != null) {
+                    addHistoryRow(stmt, from, transaction);
+                }
+                if (to != null && !to.equals(from)) {
+                    addHistoryRow(stmt, to, transaction);
+                }
+                if (++pending == COPY_BATCH) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    // Cross-shard transfers whose sender is debited but whose outcome is not logged yet
+    private static void findDebited(Connection source, List<Transaction> debited) throws SQLException {
+        String sql = "SELECT id, from_account_id, amount FROM cross_shard_transfers WHERE state = 'DEBITED'";
+        try (Statement stmt = source.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                debited.add(new Transaction(rs.getString(1), rs.getString(2), null, rs.getBigDecimal(3),
+                    TransactionType.TRANSFER, null, null));
+            }
+        }
+    }
+
+    // Gives pending debits back to the senders unless another shard's copy of the transfer was copied
+    private static void restoreDebited(Connection target, List<Transaction> debited) throws SQLException {
+        if (debited.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE account_summaries SET balance = balance + ? WHERE account_id = ? " +
+                     "AND NOT EXISTS (SELECT 1 FROM account_history WHERE transaction_id = ?)";
+        try (PreparedStatement stmt = target.prepareStatement(sql)) {
+            for (Transaction transfer : debited) {
+                stmt.setBigDecimal(1, transfer.getAmount());
+                stmt.setString(2, transfer.getFromAccountId());
+                stmt.setString(3, transfer.getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Copies audit rows after the newest one copied so far. A row whose transaction started
+     * earlier but committed later sorts before that position, so a sweep instead re-reads
+     * everything stamped within AUDIT_OVERLAP of it; rows copied before are skipped by id.
+     */
+    private void copyAuditLogs(boolean sweep) throws SQLException {
+        lastAuditPass = System.currentTimeMillis();
+        if (sweep) {
+            lastAuditSweep = lastAuditPass;
+        }
+        String select = "SELECT " + RowMappers.AUDIT_LOG_COLUMNS + " FROM audit_logs " +
+                        "WHERE timestamp >= ? AND (timestamp > ? OR id > ?) ORDER BY timestamp, id LIMIT ?";
+        String insert = "INSERT INTO audit_entries (" + RowMappers.AUDIT_LOG_COLUMNS + ") VALUES (?, ?, ?, ?, ?)";
+        LocalDateTime afterTimestamp = sweep ? auditTimestamp.minus(AUDIT_OVERLAP) : auditTimestamp;
+        String afterId = sweep ? Ids.MIN : auditId;
+
+        try (Connection source = DatabaseConnection.getConnection();
+             Connection target = store.getConnection();
+             PreparedStatement query = source.prepareStatement(select);
+             PreparedStatement stmt = target.prepareStatement(insert)) {
+            int rows;
+            do {
+                query.setObject(1, afterTimestamp);
+                query.setObject(2, afterTimestamp);
+                query.setString(3, afterId);
+                query.setInt(4, COPY_BATCH);
+                ResultSet rs = query.executeQuery();
+                rows = 0;
+                int pending = 0;
+                while (rs.next()) {
+                    AuditLog log = RowMappers.AUDIT_LOG.map(rs);
+                    rows++;
+                    afterTimestamp = log.getTimestamp();
+                    afterId = log.getId();
+                    if (recentAuditIds.putIfAbsent(log.getId(), log.getTimestamp()) == null) {
+                        stmt.setString(1, log.getId());
+                        stmt.setString(2, log.getAction());
+                        stmt.setString(3, log.getUserId());
+                        stmt.setString(4, log.getDetails());
+                        stmt.setObject(5, log.getTimestamp());
+                        stmt.addBatch();
+                        pending++;
+                    }
+                }
+                if (pending > 0) {
+                    stmt.executeBatch();
+                }
+            } while (rows == COPY_BATCH);
+        }
+        if (afterTimestamp.isAfter(auditTimestamp)
+                || (afterTimestamp.isEqual(auditTimestamp) && afterId.compareTo(auditId) > 0)) {
+            auditTimestamp = afterTimestamp;
+            auditId = afterId;
+        }
+        LocalDateTime cutoff = auditTimestamp.minus(AUDIT_OVERLAP);
+        recentAuditIds.values().removeIf(timestamp -> timestamp.isBefore(cutoff));
+    }
+
+    @Override
+    public long getLagMillis() {
+        long oldest = applyingSince;
+        Event head = queue.peek();
+        if (head != null && head.committedAt > 0 && (oldest == 0 || head.committedAt < oldest)) {
+            oldest = head.committedAt;
+        }
+        return oldest == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
+    }
+
+    @Override
+    public long getLagP50Millis() {
+        return TimeUnit.NANOSECONDS.toMillis(lag.snapshot().percentile(50));
+    }
+
+    @Override
+    public long getLagP99Millis() {
+        return TimeUnit.NANOSECONDS.toMillis(lag.snapshot().percentile(99));
+    }
+
+    @Override
+    public long getMaxLagMillis() {
+        HistogramSnapshot snapshot = lag.snapshot();
+        return TimeUnit.NANOSECONDS.toMillis(snapshot.getMax());
+    }
+
+    @Override
+    public int getPendingEvents() {
+        return queue.size();
+    }
+
+    @Override
+    public long getAppliedEvents() {
+        return applied.get();
+    }
+
+    @Override
+    public long getRebuilds() {
+        return rebuilds.get();
+    }
+
+    @Override
+    public boolean isStale() {
+        return !store.isReady();
+    }
+
+    @Override
+    public void resetLag() {
+        lag.reset();
+    }
+
+    // Stops accepting writes and applies everything still queued
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A committed transaction, an account change, or a flush marker when both are null
+    private static final class Event {
+        final Transaction transaction;
+        final Account account;
+        final AccountStatus status;
+        final CountDownLatch flushed;
+        final long committedAt;
+
+        Event(Transaction transaction, Account account, AccountStatus status, CountDownLatch flushed) {
+            this.transaction = transaction;
+            this.account = account;
+            this.status = status;
+            this.flushed = flushed;
+            this.committedAt = flushed == null ? System.currentTimeMillis() : 0;
+        }
+    }
+
+    private static final class Activity {
+        BigDecimal delta = BigDecimal.ZERO;
+        long count;
+        LocalDateTime last;
+
+        // a null transaction moves the balance without counting another transaction
+        void add(BigDecimal amount, Transaction transaction) {
+            delta = delta.add(amount);
+            if (transaction != null) {
+                count++;
+                if (last == null || transaction.getTimestamp().isAfter(last)) {
+                    last = transaction.getTimestamp();
+                }
+            }
+        }
+    }
+}
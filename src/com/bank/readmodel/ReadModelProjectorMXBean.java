@@ -0,0 +1,25 @@
+package com.bank.readmodel;
+
+// JMX view of how far the read store trails the primary, registered as com.bank:type=ReadModel
+public interface ReadModelProjectorMXBean {
+    // Age of the oldest committed write that is not yet visible in the read store; 0 when caught up
+    long getLagMillis();
+
+    // Commit-to-visible lag of the writes applied since the last reset
+    long getLagP50Millis();
+
+    long getLagP99Millis();
+
+    long getMaxLagMillis();
+
+    int getPendingEvents();
+
+    long getAppliedEvents();
+
+    long getRebuilds();
+
+    // True while reads are served by the primary because the projection is incomplete
+    boolean isStale();
+
+    void resetLag();
+}
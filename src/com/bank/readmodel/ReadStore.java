@@ -0,0 +1,100 @@
+package com.bank.readmodel;
+
+import com.bank.repository.ConnectionPool;
+import java.sql.*;
+
+/**
+ * The second database behind the read model. Everything in it is derived from the primary
+ * database, so there are no migrations: the tables are dropped and recreated on open and
+ * filled by ReadModelProjector. Locally this is a separate in-memory H2 database; point
+ * -Dbank.readdb.url at another database to move reporting reads off the primary's host.
+ */
+public class ReadStore implements AutoCloseable {
+    private static final String[] SCHEMA = {
+        "DROP TABLE IF EXISTS account_summaries",
+        "DROP TABLE IF EXISTS account_history",
+        "DROP TABLE IF EXISTS audit_entries",
+        // one row per account: the owner's account list without touching accounts or transactions
+        """
+            CREATE TABLE account_summaries (
+                account_id UUID PRIMARY KEY,
+                user_id UUID NOT NULL,
+                account_number VARCHAR(12) NOT NULL,
+                type VARCHAR(20) NOT NULL,
+                balance DECIMAL(15, 2) DEFAULT 0.00 NOT NULL,
+                status VARCHAR(20) NOT NULL,
+                transaction_count BIGINT DEFAULT 0 NOT NULL,
+                last_activity TIMESTAMP
+            )
+        """,
+        "CREATE INDEX idx_account_summaries_user ON account_summaries (user_id)",
+        // one row per account side of a transaction, so a history is a single index range scan
+        """
+            CREATE TABLE account_history (
+                account_id UUID NOT NULL,
+                transaction_id UUID NOT NULL,
+                from_account_id UUID,
+                to_account_id UUID,
+                amount DECIMAL(15, 2) NOT NULL,
+                type VARCHAR(20) NOT NULL,
+                description TEXT,
+                timestamp TIMESTAMP NOT NULL,
+                PRIMARY KEY (account_id, transaction_id)
+            )
+        """,
+        "CREATE INDEX idx_account_history_ts ON account_history (account_id, timestamp DESC, transaction_id DESC)",
+        "CREATE INDEX idx_account_history_transaction ON account_history (transaction_id)",
+        """
+            CREATE TABLE audit_entries (
+                id UUID PRIMARY KEY,
+                action VARCHAR(50) NOT NULL,
+                user_id UUID NOT NULL,
+                details TEXT,
+                timestamp TIMESTAMP NOT NULL
+            )
+        """,
+        "CREATE INDEX idx_audit_entries_ts ON audit_entries (timestamp DESC, id DESC)"
+    };
+
+    private final ConnectionPool pool;
+    // false until the first rebuild has finished and while a later one is running
+    private volatile boolean ready;
+
+    public ReadStore(String url, String user, String password, int poolSize) throws SQLException {
+        this.pool = new ConnectionPool(url, user, password, poolSize, 1, 5_000, 300_000, 30_000, 64);
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String sql : SCHEMA) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            pool.close();
+            throw e;
+        }
+    }
+
+    // The store configured by the bank.readdb.* system properties
+    public static ReadStore open() throws SQLException {
+        return new ReadStore(
+            System.getProperty("bank.readdb.url", "jdbc:h2:mem:banking_read;DB_CLOSE_DELAY=-1"),
+            System.getProperty("bank.readdb.user", "sa"),
+            System.getProperty("bank.readdb.password", ""),
+            Integer.getInteger("bank.readdb.pool.size", 8));
+    }
+
+    public Connection getConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    // Whether the tables hold a complete projection; readers fall back to the primary otherwise
+    public boolean isReady() {return ready;}
+
+    void setReady(boolean ready) {
+        this.ready = ready;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
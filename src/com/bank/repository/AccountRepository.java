@@ -1,16 +1,32 @@
 package com.bank.repository;
 
 import com.bank.model.*;
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class AccountRepository {
+    private static final int BATCH_SIZE = 1000;
+    
+    private final ConnectionSource connections;
+    
+    public AccountRepository() {
+        this(ConnectionSource.PRIMARY);
+    }
+    
+    // A repository over one shard, see ShardedAccountRepository
+    public AccountRepository(ConnectionSource connections) {
+        this.connections = connections;
+    }
     
     public void save(Account account) throws SQLException {
         String sql = "INSERT INTO accounts (id, user_id, account_number, type, balance, status) VALUES (?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = connections.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, account.getId());
@@ -24,64 +40,263 @@ public class AccountRepository {
         }
     }
     
+    // Inserts on the caller's connection with JDBC batching; the caller owns the transaction
+    public void saveAll(Connection conn, List<Account> accounts) throws SQLException {
+        String sql = "INSERT INTO accounts (id, user_id, account_number, type, balance, status) VALUES (?, ?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (Account account : accounts) {
+                stmt.setString(1, account.getId());
+                stmt.setString(2, account.getUserId());
+                stmt.setString(3, account.getAccountNumber());
+                stmt.setString(4, account.getType().name());
+                stmt.setBigDecimal(5, account.getBalance());
+                stmt.setString(6, account.getStatus().name());
+                stmt.addBatch();
+                
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+    
+    // Applies one signed delta per account on the caller's connection, regardless of status
+    public void addToBalances(Connection conn, Map<String, BigDecimal> deltas) throws SQLException {
+        String sql = "UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE id = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (Map.Entry<String, BigDecimal> delta : deltas.entrySet()) {
+                stmt.setBigDecimal(1, delta.getValue());
+                stmt.setString(2, delta.getKey());
+                stmt.addBatch();
+                
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+    
+    // account number -> account id for the given numbers that exist
+    public Map<String, String> findIdsByAccountNumber(Connection conn, Collection<String> accountNumbers) throws SQLException {
+        String sql = "SELECT id, account_number FROM accounts WHERE account_number = ANY(?)";
+        Map<String, String> ids = new HashMap<>();
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("VARCHAR", accountNumbers.toArray()));
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                ids.put(rs.getString("account_number"), rs.getString("id"));
+            }
+        }
+        return ids;
+    }
+    
     public Account findById(String accountId) throws SQLException {
-        String sql = "SELECT * FROM accounts WHERE id = ?";
+        if (!Ids.isValid(accountId)) {
+            return null; // would fail the conversion to the UUID column instead of matching nothing
+        }
+        String sql = "SELECT " + RowMappers.ACCOUNT_COLUMNS + " FROM accounts WHERE id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = connections.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, accountId);
             ResultSet rs = stmt.executeQuery();
             
             if (rs.next()) {
-                return new Account(
-                    rs.getString("id"),
-                    rs.getString("user_id"),
-                    rs.getString("account_number"),
-                    AccountType.valueOf(rs.getString("type")),
-                    rs.getBigDecimal("balance"),
-                    AccountStatus.valueOf(rs.getString("status"))
-                );
+                return RowMappers.ACCOUNT.map(rs);
             }
         }
         return null;
     }
     
     public List<Account> findByUserId(String userId) throws SQLException {
-        String sql = "SELECT * FROM accounts WHERE user_id = ?";
+        String sql = "SELECT " + RowMappers.ACCOUNT_COLUMNS + " FROM accounts WHERE user_id = ?";
         List<Account> accounts = new ArrayList<>();
+        if (!Ids.isValid(userId)) {
+            return accounts;
+        }
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = connections.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, userId);
             ResultSet rs = stmt.executeQuery();
             
             while (rs.next()) {
-                accounts.add(new Account(
-                    rs.getString("id"),
-                    rs.getString("user_id"),
-                    rs.getString("account_number"),
-                    AccountType.valueOf(rs.getString("type")),
-                    rs.getBigDecimal("balance"),
-                    AccountStatus.valueOf(rs.getString("status"))
-                ));
+                accounts.add(RowMappers.ACCOUNT.map(rs));
             }
         }
         return accounts;
     }
     
-    public void update(Account account) throws SQLException {
-        String sql = "UPDATE accounts SET balance = ?, status = ? WHERE id = ?";
+    // Status-only update so a freeze never overwrites a balance changed concurrently
+    public void updateStatus(String accountId, AccountStatus status) throws SQLException {
+        String sql = "UPDATE accounts SET status = ?, version = version + 1 WHERE id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = connections.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setBigDecimal(1, account.getBalance());
-            stmt.setString(2, account.getStatus().name());
-            stmt.setString(3, account.getId());
+            stmt.setString(1, status.name());
+            stmt.setString(2, accountId);
             
             stmt.executeUpdate();
         }
     }
+    
+    // Balance projection read on the caller's connection; forUpdate also locks the row until the caller commits
+    public AccountBalance findBalanceById(Connection conn, String accountId, boolean forUpdate) throws SQLException {
+        if (!Ids.isValid(accountId)) {
+            return null;
+        }
+        String sql = forUpdate
+            ? "SELECT " + RowMappers.ACCOUNT_BALANCE_COLUMNS + " FROM accounts WHERE id = ? FOR UPDATE"
+            : "SELECT " + RowMappers.ACCOUNT_BALANCE_COLUMNS + " FROM accounts WHERE id = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, accountId);
+            ResultSet rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return RowMappers.ACCOUNT_BALANCE.map(rs);
+            }
+        }
+        return null;
+    }
+    
+    // Compare-and-set balance write on the caller's connection; on success the account carries the new version
+    public boolean updateBalance(Connection conn, AccountBalance account) throws SQLException {
+        String sql = "UPDATE accounts SET balance = ?, version = version + 1 WHERE id = ? AND version = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setBigDecimal(1, Money.toDecimal(account.getBalanceCents()));
+            stmt.setString(2, account.getId());
+            stmt.setLong(3, account.getVersion());
+            
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
+            account.setVersion(account.getVersion() + 1);
+            return true;
+        }
+    }
+    
+    // Writes balances of rows the caller has locked with findBalanceById(conn, id, true), so no version check
+    public void updateBalances(Connection conn, Iterable<AccountBalance> accounts) throws SQLException {
+        String sql = "UPDATE accounts SET balance = ?, version = version + 1 WHERE id = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (AccountBalance account : accounts) {
+                stmt.setBigDecimal(1, Money.toDecimal(account.getBalanceCents()));
+                stmt.setString(2, account.getId());
+                stmt.addBatch();
+                
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+    
+    public long countByType(AccountType type) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM accounts WHERE type = ?";
+        
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, type.name());
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+    
+    // Every n-th id of the accounts of a type in id order, i.e. bounds of ranges holding about n accounts each
+    public List<String> sampleIds(AccountType type, int every) throws SQLException {
+        String sql = "SELECT id FROM (SELECT id, ROW_NUMBER() OVER (ORDER BY id) AS rn FROM accounts WHERE type = ?) " +
+                     "WHERE MOD(rn, ?) = 0 ORDER BY id";
+        List<String> ids = new ArrayList<>();
+        
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, type.name());
+            stmt.setInt(2, every);
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                ids.add(rs.getString(1));
+            }
+        }
+        return ids;
+    }
+    
+    /**
+     * Id of the {@code count}-th active account of a type with a positive balance after afterId
+     * (and up to upToId unless null), or null if there are fewer. Used to cut a range into
+     * chunks for lockPositiveBalances, whose FOR UPDATE keeps H2 from reading in index order.
+     */
+    public String findChunkEnd(Connection conn, AccountType type, String afterId, String upToId,
+                               int count) throws SQLException {
+        String sql = "SELECT id FROM accounts WHERE id > ?" + (upToId != null ? " AND id <= ?" : "") +
+                     " AND type = ? AND status = 'ACTIVE' AND balance > 0 ORDER BY id OFFSET ? ROWS FETCH NEXT 1 ROW ONLY";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            stmt.setString(i++, afterId);
+            if (upToId != null) {
+                stmt.setString(i++, upToId);
+            }
+            stmt.setString(i++, type.name());
+            stmt.setInt(i, count - 1);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+    
+    // Locks and returns the active accounts of a type with a positive balance and ids in (afterId, upToId]
+    public List<AccountBalance> lockPositiveBalances(Connection conn, AccountType type, String afterId,
+                                                     String upToId) throws SQLException {
+        String sql = "SELECT " + RowMappers.ACCOUNT_BALANCE_COLUMNS + " FROM accounts " +
+                     "WHERE id > ?" + (upToId != null ? " AND id <= ?" : "") +
+                     " AND type = ? AND status = 'ACTIVE' AND balance > 0 ORDER BY id FOR UPDATE";
+        List<AccountBalance> accounts = new ArrayList<>();
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            stmt.setString(i++, afterId);
+            if (upToId != null) {
+                stmt.setString(i++, upToId);
+            }
+            stmt.setString(i, type.name());
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                accounts.add(RowMappers.ACCOUNT_BALANCE.map(rs));
+            }
+        }
+        return accounts;
+    }
+    
+    // Called after a commit that changed the account on the caller's own connection; a no-op without a cache
+    public void invalidate(String accountId) {
+    }
 }
\ No newline at end of file
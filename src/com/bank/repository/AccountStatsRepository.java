@@ -0,0 +1,90 @@
+package com.bank.repository;
+
+import com.bank.model.AccountStats;
+import java.sql.*;
+import java.util.List;
+
+public class AccountStatsRepository {
+    private static final int BATCH_SIZE = 1000;
+    
+    private final ConnectionSource connections;
+    
+    public AccountStatsRepository() {
+        this(ConnectionSource.PRIMARY);
+    }
+    
+    // A repository over one shard, see ShardedAccountStatsRepository
+    public AccountStatsRepository(ConnectionSource connections) {
+        this.connections = connections;
+    }
+    
+    public AccountStats findByAccountId(String accountId) throws SQLException {
+        String sql = "SELECT account_id, txn_count, mean, m2 FROM account_stats WHERE account_id = ?";
+        
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, accountId);
+            ResultSet rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return new AccountStats(
+                    rs.getString(1),
+                    rs.getLong(2),
+                    rs.getDouble(3),
+                    rs.getDouble(4)
+                );
+            }
+        }
+        return null;
+    }
+    
+    public void save(AccountStats stats) throws SQLException {
+        String sql = "MERGE INTO account_stats (account_id, txn_count, mean, m2) KEY (account_id) VALUES (?, ?, ?, ?)";
+        
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, stats.getAccountId());
+            stmt.setLong(2, stats.getCount());
+            stmt.setDouble(3, stats.getMean());
+            stmt.setDouble(4, stats.getM2());
+            
+            stmt.executeUpdate();
+        }
+    }
+    
+    // Upserts many rows with JDBC batches in one transaction
+    public void saveAll(List<AccountStats> stats) throws SQLException {
+        String sql = "MERGE INTO account_stats (account_id, txn_count, mean, m2) KEY (account_id) VALUES (?, ?, ?, ?)";
+        
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            try {
+                int pending = 0;
+                for (AccountStats row : stats) {
+                    stmt.setString(1, row.getAccountId());
+                    stmt.setLong(2, row.getCount());
+                    stmt.setDouble(3, row.getMean());
+                    stmt.setDouble(4, row.getM2());
+                    stmt.addBatch();
+                    
+                    if (++pending == BATCH_SIZE) {
+                        stmt.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    stmt.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.bank.repository;
+
+import com.bank.model.*;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Audit repository that takes writes off the caller's path. save() enqueues into a
+ * bounded queue and a writer thread group-commits rows with JDBC batches once
+ * flushSize rows are waiting or the oldest has waited maxLatencyMillis.
+ *
+ * When the queue is full, save() waits up to enqueueTimeoutMillis and then writes the
+ * row synchronously, so a slow database slows callers down instead of losing audit rows.
+ */
+public class AsyncAuditLogRepository extends AuditLogRepository implements AutoCloseable {
+    private final BlockingQueue<AuditLog> queue;
+    private final int flushSize;
+    private final long maxLatencyMillis;
+    private final long enqueueTimeoutMillis;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // guarded by this; rows handed to the writer vs rows it has finished with
+    private long enqueued;
+    private long processed;
+
+    private AsyncAuditLogRepository(int capacity, int flushSize, long maxLatencyMillis, long enqueueTimeoutMillis) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flushSize = flushSize;
+        this.maxLatencyMillis = maxLatencyMillis;
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+        this.writer = new Thread(this::run, "audit-log-writer");
+        this.writer.setDaemon(true);
+    }
+
+    // Creates the repository and starts its writer thread once it is fully constructed
+    public static AsyncAuditLogRepository start(int capacity, int flushSize, long maxLatencyMillis,
+                                                long enqueueTimeoutMillis) {
+        AsyncAuditLogRepository repository =
+            new AsyncAuditLogRepository(capacity, flushSize, maxLatencyMillis, enqueueTimeoutMillis);
+        repository.writer.start();
+        return repository;
+    }
+
+    @Override
+    public void save(AuditLog log) throws SQLException {
+        if (running) {
+            try {
+                synchronized (this) {
+                    enqueued++;
+                }
+                if (queue.offer(log, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            markProcessed(1); // not queued after all
+        }
+        super.save(log); // queue full or writer closed: write on the caller's thread
+    }
+
+    // Blocks until every row saved before this call has been written
+    public void flush() {
+        long target;
+        synchronized (this) {
+            target = enqueued;
+            while (processed < target && writer.isAlive()) {
+                try {
+                    wait(maxLatencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    @Override
+    public List<AuditLog> findAll() throws SQLException {
+        flush();
+        return super.findAll();
+    }
+
+    @Override
+    public List<AuditLog> findByUserId(String userId) throws SQLException {
+        flush();
+        return super.findByUserId(userId);
+    }
+
+    @Override
+    public List<AuditLog> find(AuditLogQuery query, AuditCursor after, int limit) throws SQLException {
+        flush();
+        return super.find(query, after, limit);
+    }
+
+    @Override
+    public Stream<AuditLog> stream(AuditLogQuery query, int fetchSize) {
+        flush();
+        return super.stream(query, fetchSize);
+    }
+
+    private void run() {
+        List<AuditLog> batch = new ArrayList<>(flushSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLog first = queue.poll(maxLatencyMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+                while (batch.size() < flushSize) {
+                    if (queue.drainTo(batch, flushSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        break;
+                    }
+                    AuditLog next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                // keep draining; close() stops the loop once the queue is empty
+            } finally {
+                markProcessed(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<AuditLog> batch) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                saveAll(conn, batch);
+                conn.commit();
+                return;
+            } catch (SQLException e) {
+                conn.rollback();
+            }
+        } catch (SQLException e) {
+            // fall through to row-by-row so one bad row does not drop the whole batch
+        }
+        for (AuditLog log : batch) {
+            try {
+                super.save(log);
+            } catch (SQLException e) {
+                System.err.println("Audit log could not be written: " + log + " (" + e.getMessage() + ")");
+            }
+        }
+    }
+
+    private synchronized void markProcessed(int count) {
+        processed += count;
+        notifyAll();
+    }
+
+    // Stops accepting rows and synchronously writes everything still queued
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // rows offered while the writer was shutting down
+        List<AuditLog> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            write(rest);
+            markProcessed(rest.size());
+        }
+    }
+}
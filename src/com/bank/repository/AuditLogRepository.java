@@ -1,29 +1,61 @@
 package com.bank.repository;
 
-import com.bank.model.AuditLog;
+import com.bank.model.*;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class AuditLogRepository {
+    private static final int BATCH_SIZE = 1000;
     
     public void save(AuditLog log) throws SQLException {
-        String sql = "INSERT INTO audit_logs (id, action, user_id, details) VALUES (?, ?, ?, ?)";
+        String sql = "INSERT INTO audit_logs (id, action, user_id, details, timestamp) VALUES (?, ?, ?, ?, ?)";
         
-        Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(sql);
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-        stmt.setString(1, log.getId());
-        stmt.setString(2, log.getAction());
-        stmt.setString(3, log.getUserId());
-        stmt.setString(4, log.getDetails());
+            stmt.setString(1, log.getId());
+            stmt.setString(2, log.getAction());
+            stmt.setString(3, log.getUserId());
+            stmt.setString(4, log.getDetails());
+            stmt.setTimestamp(5, Timestamp.valueOf(log.getTimestamp()));
+            
+            stmt.executeUpdate();
+        }
+    }
+    
+    // Inserts on the caller's connection with JDBC batching; the caller owns the transaction
+    public void saveAll(Connection conn, List<AuditLog> logs) throws SQLException {
+        String sql = "INSERT INTO audit_logs (id, action, user_id, details, timestamp) VALUES (?, ?, ?, ?, ?)";
         
-        stmt.executeUpdate();
-        stmt.close();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (AuditLog log : logs) {
+                stmt.setString(1, log.getId());
+                stmt.setString(2, log.getAction());
+                stmt.setString(3, log.getUserId());
+                stmt.setString(4, log.getDetails());
+                stmt.setTimestamp(5, Timestamp.valueOf(log.getTimestamp()));
+                stmt.addBatch();
+                
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
     }
     
     public List<AuditLog> findAll() throws SQLException {
-        String sql = "SELECT * FROM audit_logs ORDER BY timestamp DESC";
+        String sql = "SELECT " + RowMappers.AUDIT_LOG_COLUMNS + " FROM audit_logs ORDER BY timestamp DESC";
         List<AuditLog> logs = new ArrayList<>();
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -31,20 +63,14 @@ public class AuditLogRepository {
              ResultSet rs = stmt.executeQuery(sql)) {
             
             while (rs.next()) {
-                logs.add(new AuditLog(
-                    rs.getString("id"),
-                    rs.getString("action"),
-                    rs.getString("user_id"),
-                    rs.getString("details"),
-                    rs.getTimestamp("timestamp").toLocalDateTime()
-                ));
+                logs.add(RowMappers.AUDIT_LOG.map(rs));
             }
         }
         return logs;
     }
     
     public List<AuditLog> findByUserId(String userId) throws SQLException {
-        String sql = "SELECT * FROM audit_logs WHERE user_id = ? ORDER BY timestamp DESC";
+        String sql = "SELECT " + RowMappers.AUDIT_LOG_COLUMNS + " FROM audit_logs WHERE user_id = ? ORDER BY timestamp DESC";
         List<AuditLog> logs = new ArrayList<>();
         
         try (Connection conn = DatabaseConnection.getConnection();
@@ -54,15 +80,167 @@ public class AuditLogRepository {
             ResultSet rs = stmt.executeQuery();
             
             while (rs.next()) {
-                logs.add(new AuditLog(
-                    rs.getString("id"),
-                    rs.getString("action"),
-                    rs.getString("user_id"),
-                    rs.getString("details"),
-                    rs.getTimestamp("timestamp").toLocalDateTime()
-                ));
+                logs.add(RowMappers.AUDIT_LOG.map(rs));
             }
         }
         return logs;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Returns at most {@code limit} matching rows, newest first, strictly after {@code after}
+     * (or from the newest one when {@code after} is null). Filters and the limit are applied
+     * in SQL, so only the page itself is read.
+     */
+    public List<AuditLog> find(AuditLogQuery query, AuditCursor after, int limit) throws SQLException {
+        List<AuditLog> logs = new ArrayList<>(Math.min(limit, 1024));
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(pageSql(query, after))) {
+            
+            bindPage(stmt, query, after, limit);
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                logs.add(RowMappers.AUDIT_LOG.map(rs));
+            }
+        }
+        return logs;
+    }
+    
+    public List<AuditLog> latest(int limit) throws SQLException {
+        return find(AuditLogQuery.ALL, null, limit);
+    }
+    
+    /**
+     * Lazily streams every matching row, newest first, reading pages of {@code fetchSize}
+     * rows by keyset so no connection is held between pages. The stream must be closed.
+     */
+    public Stream<AuditLog> stream(AuditLogQuery query, int fetchSize) {
+        AuditLogSpliterator spliterator = new AuditLogSpliterator(query, fetchSize);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+    
+    // Only the filters that are set become predicates, so each shape can use its own index
+    private static String pageSql(AuditLogQuery query, AuditCursor after) {
+        StringBuilder sql = new StringBuilder("SELECT " + RowMappers.AUDIT_LOG_COLUMNS + " FROM audit_logs WHERE TRUE");
+        if (query.getAction() != null) {
+            sql.append(" AND action = ?");
+        }
+        if (query.getUserId() != null) {
+            sql.append(" AND user_id = ?");
+        }
+        if (query.getFrom() != null) {
+            sql.append(" AND timestamp >= ?");
+        }
+        if (query.getTo() != null) {
+            sql.append(" AND timestamp < ?");
+        }
+        if (after != null) {
+            // the redundant "timestamp <= ?" gives the planner an index range to start from
+            sql.append(" AND timestamp <= ? AND (timestamp < ? OR (timestamp = ? AND id < ?))");
+        }
+        return sql.append(" ORDER BY timestamp DESC, id DESC LIMIT ?").toString();
+    }
+    
+    private static void bindPage(PreparedStatement stmt, AuditLogQuery query, AuditCursor after,
+                                 int limit) throws SQLException {
+        int index = 1;
+        if (query.getAction() != null) {
+            stmt.setString(index++, query.getAction());
+        }
+        if (query.getUserId() != null) {
+            stmt.setString(index++, query.getUserId());
+        }
+        if (query.getFrom() != null) {
+            stmt.setTimestamp(index++, Timestamp.valueOf(query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            stmt.setTimestamp(index++, Timestamp.valueOf(query.getTo()));
+        }
+        if (after != null) {
+            Timestamp upper = Timestamp.valueOf(after.getTimestamp());
+            stmt.setTimestamp(index++, upper);
+            stmt.setTimestamp(index++, upper);
+            stmt.setTimestamp(index++, upper);
+            stmt.setString(index++, after.getLogId());
+        }
+        stmt.setInt(index, limit);
+    }
+    
+    // One keyset page per connection checkout; advancing past a page opens the next one
+    private static final class AuditLogSpliterator extends Spliterators.AbstractSpliterator<AuditLog> {
+        private final AuditLogQuery query;
+        private final int fetchSize;
+        
+        private Connection conn;
+        private PreparedStatement stmt;
+        private ResultSet rs;
+        private AuditCursor cursor;
+        private int rowsInPage;
+        private boolean exhausted;
+        
+        AuditLogSpliterator(AuditLogQuery query, int fetchSize) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.query = query;
+            this.fetchSize = fetchSize;
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super AuditLog> action) {
+            try {
+                while (!exhausted) {
+                    if (rs == null) {
+                        openPage();
+                    }
+                    if (rs.next()) {
+                        AuditLog log = RowMappers.AUDIT_LOG.map(rs);
+                        cursor = AuditCursor.after(log);
+                        rowsInPage++;
+                        action.accept(log);
+                        return true;
+                    }
+                    // a short page means there is nothing left to fetch
+                    exhausted = rowsInPage < fetchSize;
+                    closePage();
+                }
+                return false;
+            } catch (SQLException e) {
+                close();
+                throw new IllegalStateException("Failed to read audit log: " + e.getMessage(), e);
+            }
+        }
+        
+        private void openPage() throws SQLException {
+            conn = DatabaseConnection.getConnection();
+            stmt = conn.prepareStatement(pageSql(query, cursor));
+            stmt.setFetchSize(fetchSize);
+            bindPage(stmt, query, cursor, fetchSize);
+            rs = stmt.executeQuery();
+            rowsInPage = 0;
+        }
+        
+        private void closePage() throws SQLException {
+            try {
+                if (rs != null) rs.close();
+                if (stmt != null) stmt.close();
+            } finally {
+                rs = null;
+                stmt = null;
+                if (conn != null) {
+                    Connection c = conn;
+                    conn = null;
+                    c.close();
+                }
+            }
+        }
+        
+        void close() {
+            exhausted = true;
+            try {
+                closePage();
+            } catch (SQLException e) {
+                // stream is being discarded
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.bank.repository;
+
+import com.bank.model.BalanceSnapshot;
+import com.bank.model.Transaction;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshots are sparse: a run only writes rows for accounts whose balance moved since
+ * the previous run, so an account's latest row at or before an instant is its balance
+ * checkpoint for that instant. An account with no row at all started from zero.
+ *
+ * Imports can write transactions older than the latest run; correct() folds them into
+ * the checkpoints, and the snapshot_corrections generation keeps a run that read the
+ * log concurrently from committing checkpoints that miss them.
+ */
+public class BalanceSnapshotRepository {
+    private static final int BATCH_SIZE = 1000;
+    
+    // Latest snapshot of the account taken at or before the given time, or null
+    public BalanceSnapshot findLatest(String accountId, LocalDateTime upTo) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return findLatest(conn, accountId, upTo);
+        }
+    }
+    
+    public BalanceSnapshot findLatest(Connection conn, String accountId, LocalDateTime upTo) throws SQLException {
+        String sql = "SELECT balance, taken_at FROM balance_snapshots WHERE account_id = ? AND taken_at <= ? " +
+                     "ORDER BY taken_at DESC LIMIT 1";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, accountId);
+            stmt.setTimestamp(2, Timestamp.valueOf(upTo));
+            ResultSet rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return new BalanceSnapshot(accountId, rs.getTimestamp("taken_at").toLocalDateTime(),
+                    rs.getBigDecimal("balance"));
+            }
+        }
+        return null;
+    }
+    
+    // Balance of each account's latest snapshot at or before the given time in one query;
+    // accounts without one are absent from the result
+    public Map<String, BigDecimal> findLatestBalances(Connection conn, Collection<String> accountIds,
+                                                      LocalDateTime upTo) throws SQLException {
+        String sql = """
+            SELECT s.account_id, s.balance FROM balance_snapshots s
+            JOIN (SELECT account_id, MAX(taken_at) AS taken_at FROM balance_snapshots
+                  WHERE account_id = ANY(?) AND taken_at <= ? GROUP BY account_id) latest
+              ON s.account_id = latest.account_id AND s.taken_at = latest.taken_at
+            """;
+        Map<String, BigDecimal> balances = new HashMap<>(accountIds.size() * 2);
+        if (accountIds.isEmpty()) {
+            return balances;
+        }
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("UUID", accountIds.toArray()));
+            stmt.setTimestamp(2, Timestamp.valueOf(upTo));
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                balances.put(rs.getString("account_id"), rs.getBigDecimal("balance"));
+            }
+        }
+        return balances;
+    }
+    
+    // Cut-off of the most recent run, or null before the first one
+    public LocalDateTime findLatestRun() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return findLatestRun(conn);
+        }
+    }
+    
+    public LocalDateTime findLatestRun(Connection conn) throws SQLException {
+        String sql = "SELECT MAX(taken_at) FROM snapshot_runs";
+        
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            rs.next();
+            Timestamp latest = rs.getTimestamp(1);
+            return latest != null ? latest.toLocalDateTime() : null;
+        }
+    }
+    
+    // Current correction generation; a run reads it before it reads the transaction log
+    public long findGeneration() throws SQLException {
+        String sql = "SELECT generation FROM snapshot_corrections WHERE id = 1";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+    
+    // Locks the counter for the rest of the caller's transaction if it is still at generation;
+    // false means transactions were written into windows the run may already have read
+    public boolean claimGeneration(Connection conn, long generation) throws SQLException {
+        String sql = "UPDATE snapshot_corrections SET generation = generation WHERE id = 1 AND generation = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, generation);
+            return stmt.executeUpdate() == 1;
+        }
+    }
+    
+    // Invalidates the log reads of runs in progress; on conn it also waits for a committing run
+    public void bumpGeneration(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE snapshot_corrections SET generation = generation + 1 WHERE id = 1");
+        }
+    }
+    
+    public void bumpGeneration() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            bumpGeneration(conn);
+        }
+    }
+    
+    /**
+     * Folds transactions written with timestamps at or before the latest run into the existing
+     * checkpoints, on the caller's connection. Every checkpoint of the account at or after the
+     * timestamp moves by the amount; an account without one gets a checkpoint at the latest
+     * run, so the next run starts from a balance that includes it. Returns how many
+     * transactions were back-dated.
+     */
+    public int correct(Connection conn, List<Transaction> transactions) throws SQLException {
+        bumpGeneration(conn);
+        LocalDateTime latest = findLatestRun(conn);
+        if (latest == null) {
+            return 0;
+        }
+        
+        int corrected = 0;
+        try (PreparedStatement update = conn.prepareStatement(
+                 "UPDATE balance_snapshots SET balance = balance + ? WHERE account_id = ? AND taken_at >= ?");
+             PreparedStatement insert = conn.prepareStatement("""
+                 INSERT INTO balance_snapshots (account_id, taken_at, balance)
+                 SELECT ?, ?, COALESCE((SELECT balance FROM balance_snapshots WHERE account_id = ?
+                                        ORDER BY taken_at DESC LIMIT 1), 0) + ?
+                 """)) {
+            for (Transaction transaction : transactions) {
+                if (transaction.getTimestamp().isAfter(latest)) {
+                    continue;
+                }
+                Timestamp at = Timestamp.valueOf(transaction.getTimestamp());
+                if (transaction.getFromAccountId() != null) {
+                    correct(update, insert, transaction.getFromAccountId(), at, latest, transaction.getAmount().negate());
+                }
+                if (transaction.getToAccountId() != null) {
+                    correct(update, insert, transaction.getToAccountId(), at, latest, transaction.getAmount());
+                }
+                corrected++;
+            }
+        }
+        return corrected;
+    }
+    
+    private static void correct(PreparedStatement update, PreparedStatement insert, String accountId,
+                                Timestamp at, LocalDateTime latest, BigDecimal delta) throws SQLException {
+        update.setBigDecimal(1, delta);
+        update.setString(2, accountId);
+        update.setTimestamp(3, at);
+        if (update.executeUpdate() > 0) {
+            return;
+        }
+        insert.setString(1, accountId);
+        insert.setTimestamp(2, Timestamp.valueOf(latest));
+        insert.setString(3, accountId);
+        insert.setBigDecimal(4, delta);
+        insert.executeUpdate();
+    }
+    
+    // Writes one run's rows and its run marker on the caller's connection; the caller owns the transaction
+    public void saveRun(Connection conn, LocalDateTime takenAt, Map<String, BigDecimal> balances) throws SQLException {
+        String sql = "INSERT INTO balance_snapshots (account_id, taken_at, balance) VALUES (?, ?, ?)";
+        Timestamp at = Timestamp.valueOf(takenAt);
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (Map.Entry<String, BigDecimal> entry : balances.entrySet()) {
+                stmt.setString(1, entry.getKey());
+                stmt.setTimestamp(2, at);
+                stmt.setBigDecimal(3, entry.getValue());
+                stmt.addBatch();
+                
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+        
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO snapshot_runs (taken_at, accounts_written) VALUES (?, ?)")) {
+            stmt.setTimestamp(1, at);
+            stmt.setInt(2, balances.size());
+            stmt.executeUpdate();
+        }
+    }
+}
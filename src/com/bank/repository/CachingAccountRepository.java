@@ -0,0 +1,159 @@
+package com.bank.repository;
+
+import com.bank.model.*;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache in front of AccountRepository. findById is served from a bounded
+ * LRU map whose entries also expire after ttlMillis, which bounds staleness from writers
+ * outside this process. Writes made through this repository refresh or drop the entry;
+ * writes made on a caller's own connection must be followed by invalidate() after commit.
+ *
+ * Callers always get their own copy, since services mutate the Account they read.
+ */
+public class CachingAccountRepository extends AccountRepository {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+    // stamps of recent invalidations, kept apart so they never push live entries out of the LRU
+    private final LinkedHashMap<String, Long> tombstones;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // guarded by this; every cache change gets a new stamp so a slow load cannot overwrite a newer change
+    private long stamp;
+    // guarded by this; newest stamp of a tombstone dropped from the bounded set
+    private long evictedTombstone;
+
+    public CachingAccountRepository(int maxSize, long ttlMillis) {
+        this(ConnectionSource.PRIMARY, maxSize, ttlMillis);
+    }
+
+    public CachingAccountRepository(ConnectionSource connections, int maxSize, long ttlMillis) {
+        super(connections);
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > CachingAccountRepository.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.tombstones = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() > CachingAccountRepository.this.maxSize) {
+                    evictedTombstone = Math.max(evictedTombstone, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static final class Entry {
+        private final Account account;
+        private final long stamp;
+        private final long expiresAt;
+
+        Entry(Account account, long stamp, long expiresAt) {
+            this.account = account;
+            this.stamp = stamp;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    @Override
+    public Account findById(String accountId) throws SQLException {
+        long started;
+        synchronized (this) {
+            Entry entry = entries.get(accountId);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+                return copy(entry.account);
+            }
+            started = stamp;
+        }
+        misses.increment();
+
+        Account account = super.findById(accountId);
+        if (account != null) {
+            synchronized (this) {
+                // any change to the id since the load started, or a dropped tombstone that may have been one, wins
+                if (stampOf(accountId) <= started && evictedTombstone <= started) {
+                    put(accountId, copy(account));
+                }
+            }
+        }
+        return account;
+    }
+
+    @Override
+    public void updateStatus(String accountId, AccountStatus status) throws SQLException {
+        try {
+            super.updateStatus(accountId, status);
+        } finally {
+            invalidate(accountId);
+        }
+    }
+
+    // Drops the entry and leaves a tombstone, so a load that started earlier is not cached
+    @Override
+    public synchronized void invalidate(String accountId) {
+        entries.remove(accountId);
+        tombstones.put(accountId, ++stamp);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        // every load in flight started before this stamp
+        evictedTombstone = ++stamp;
+        tombstones.clear();
+    }
+
+    public long getHitCount() {return hits.sum();}
+    public long getMissCount() {return misses.sum();}
+    public long getEvictionCount() {return evictions.sum();}
+    public synchronized int size() {return entries.size();}
+
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    // caller holds the monitor
+    private void put(String accountId, Account account) {
+        tombstones.remove(accountId);
+        entries.put(accountId, new Entry(account, ++stamp, System.nanoTime() + ttlNanos));
+    }
+
+    // caller holds the monitor; the stamp of the id's latest change that is still remembered
+    private long stampOf(String accountId) {
+        Entry entry = entries.get(accountId);
+        if (entry != null) {
+            return entry.stamp;
+        }
+        Long tombstone = tombstones.get(accountId);
+        return tombstone != null ? tombstone : 0;
+    }
+
+    private static Account copy(Account account) {
+        return new Account(account.getId(), account.getUserId(), account.getAccountNumber(),
+            account.getType(), account.getBalance(), account.getStatus(), account.getVersion());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AccountCache[size=%d, hits=%d, misses=%d, evictions=%d, hitRatio=%.2f]",
+            size(), getHitCount(), getMissCount(), getEvictionCount(), getHitRatio());
+    }
+}
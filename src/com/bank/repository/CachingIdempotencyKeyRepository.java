@@ -0,0 +1,60 @@
+package com.bank.repository;
+
+import com.bank.model.IdempotencyRecord;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the most recently completed keys in a bounded LRU map, so replaying a recent
+ * request is answered from memory. Only completed keys are cached: their outcome never
+ * changes until they expire, while in-progress keys are always read from the table.
+ */
+public class CachingIdempotencyKeyRepository extends IdempotencyKeyRepository {
+    private final int maxSize;
+    private final LinkedHashMap<String, IdempotencyRecord> completed;
+
+    public CachingIdempotencyKeyRepository(int maxSize, Duration ttl) {
+        super(ttl);
+        this.maxSize = maxSize;
+        this.completed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+                return size() > CachingIdempotencyKeyRepository.this.maxSize;
+            }
+        };
+    }
+
+    @Override
+    public IdempotencyRecord findByKey(String key) throws SQLException {
+        synchronized (this) {
+            IdempotencyRecord record = completed.get(key);
+            if (record != null) {
+                if (record.getExpiresAt().isAfter(LocalDateTime.now())) {
+                    return record;
+                }
+                completed.remove(key);
+            }
+        }
+        IdempotencyRecord record = super.findByKey(key);
+        if (record != null && record.isCompleted()) {
+            synchronized (this) {
+                completed.put(key, record);
+            }
+        }
+        return record;
+    }
+
+    @Override
+    public IdempotencyRecord complete(String key, String fingerprint, String transactionId) throws SQLException {
+        IdempotencyRecord record = super.complete(key, fingerprint, transactionId);
+        if (record != null) {
+            synchronized (this) {
+                completed.put(key, record);
+            }
+        }
+        return record;
+    }
+}
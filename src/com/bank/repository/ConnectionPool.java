@@ -0,0 +1,429 @@
+package com.bank.repository;
+
+import com.bank.metrics.DbTimer;
+import com.bank.metrics.MetricsRegistry;
+import com.bank.metrics.OperationMetrics;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of physical JDBC connections.
+ *
+ * Borrowed connections are handed out as proxies: close() returns the physical
+ * connection to the pool instead of closing it, and prepareStatement(String)
+ * is served from a small per-connection statement cache so the fixed SQL used by
+ * the repositories is only parsed once per physical connection.
+ *
+ * Executions of statements from prepareStatement(String), commits and rollbacks are
+ * timed and reported to the default MetricsRegistry, which is how operations split their
+ * latency into DB and JVM time. Other statements (createStatement, prepareCall and the
+ * prepareStatement overloads) are passed through untimed.
+ */
+public class ConnectionPool {
+    // capturing a stack trace per borrow is expensive, so only do it when asked
+    private static final boolean TRACE_LEAKS = Boolean.getBoolean("bank.db.pool.traceLeaks");
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final MetricsRegistry metrics = MetricsRegistry.getDefault();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int maxSize, int minIdle,
+                          long borrowTimeoutMillis, long idleTimeoutMillis,
+                          long leakThresholdMillis, int statementCacheSize) {
+        if (maxSize <= 0 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: max=" + maxSize + ", minIdle=" + minIdle);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = minIdle;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, leakThresholdMillis) / 2);
+        housekeeper.scheduleAtFixedRate(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + borrowTimeoutMillis
+                    + "ms waiting for a connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowSite = TRACE_LEAKS ? new Throwable("Connection borrowed here") : null;
+            borrowed.add(pooled);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        while (true) {
+            PooledConnection candidate;
+            synchronized (idle) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return null;
+            }
+            if (candidate.isUsable()) {
+                return candidate;
+            }
+            candidate.closePhysical();
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        boolean reusable = !closed && pooled.reset();
+        if (reusable) {
+            pooled.lastUsedAt = System.currentTimeMillis();
+            synchronized (idle) {
+                idle.addFirst(pooled);
+            }
+        } else {
+            pooled.closePhysical();
+        }
+        permits.release();
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        if (leakThresholdMillis > 0) {
+            for (PooledConnection pooled : borrowed) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdMillis) {
+                    pooled.leakReported = true;
+                    System.err.println("⚠ Possible connection leak: connection held for "
+                        + (now - pooled.borrowedAt) + "ms");
+                    if (pooled.borrowSite != null) {
+                        pooled.borrowSite.printStackTrace();
+                    }
+                }
+            }
+        }
+
+        if (idleTimeoutMillis > 0) {
+            synchronized (idle) {
+                // oldest connections sit at the tail
+                while (idle.size() > minIdle && now - idle.peekLast().lastUsedAt > idleTimeoutMillis) {
+                    idle.pollLast().closePhysical();
+                }
+            }
+        }
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            while (!idle.isEmpty()) {
+                idle.pollFirst().closePhysical();
+            }
+        }
+        // borrowed connections are closed as they come back
+    }
+
+    private final class PooledConnection {
+        private final Connection physical;
+        private final Map<String, PooledStatement> statements;
+        private volatile long borrowedAt;
+        private volatile long lastUsedAt;
+        private volatile boolean leakReported;
+        private volatile Throwable borrowSite;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PooledStatement> eldest) {
+                    if (size() > statementCacheSize) {
+                        eldest.getValue().evict();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Connection newHandle() {
+            leakReported = false;
+            return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new ConnectionHandle(this));
+        }
+
+        // A cached statement goes to one holder at a time; preparing its SQL again meanwhile gets a statement of its own
+        PreparedStatement prepare(String sql) throws SQLException {
+            PooledStatement cached = statementCacheSize > 0 ? statements.get(sql) : null;
+            if (cached != null && cached.checkedOut) {
+                return new PooledStatement(physical.prepareStatement(sql), metrics.statement(sql), false).checkOut();
+            }
+            if (cached == null || cached.target.isClosed()) {
+                cached = new PooledStatement(physical.prepareStatement(sql), metrics.statement(sql), statementCacheSize > 0);
+                if (cached.cached) {
+                    statements.put(sql, cached);
+                }
+            }
+            return cached.checkOut();
+        }
+
+        boolean isUsable() {
+            try {
+                return !physical.isClosed();
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                // statements the borrower left open are handed back with the connection
+                for (PooledStatement cached : statements.values()) {
+                    if (cached.checkedOut) {
+                        cached.release();
+                    }
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            for (PooledStatement cached : statements.values()) {
+                closeQuietly(cached.target);
+            }
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // already broken, nothing to recover
+            }
+        }
+    }
+
+    private final class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released;
+
+        ConnectionHandle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            switch (method.getName()) {
+                case "prepareStatement":
+                    if (args.length == 1) {
+                        return pooled.prepare((String) args[0]);
+                    }
+                    break;
+                case "commit":
+                    return invokeTimed(pooled.physical, method, args, metrics.commit());
+                case "rollback":
+                    return invokeTimed(pooled.physical, method, args, metrics.operation("db.rollback"));
+                default:
+                    break;
+            }
+            return invokeTarget(pooled.physical, method, args);
+        }
+    }
+
+    /**
+     * A prepared statement handed out by prepareStatement(String), whose execute calls are timed
+     * under its SQL's metrics. A cached one ignores close() apart from resetting it for the next
+     * holder; the pool closes it with the physical connection or when the cache evicts it.
+     */
+    private static final class PooledStatement {
+        private final PreparedStatement target;
+        private final PreparedStatement proxy;
+        private boolean cached;
+        private boolean checkedOut;
+
+        PooledStatement(PreparedStatement target, OperationMetrics metrics, boolean cached) {
+            this.target = target;
+            this.cached = cached;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                (self, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            close();
+                            return null;
+                        case "isClosed":
+                            return !checkedOut || target.isClosed();
+                        case "equals":
+                            return self == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(self);
+                        default:
+                            if (method.getName().startsWith("execute")) {
+                                return invokeTimed(target, method, args, metrics);
+                            }
+                            return invokeTarget(target, method, args);
+                    }
+                });
+        }
+
+        PreparedStatement checkOut() {
+            checkedOut = true;
+            return proxy;
+        }
+
+        private void close() throws SQLException {
+            if (!checkedOut) {
+                return;
+            }
+            if (cached) {
+                release();
+            } else {
+                checkedOut = false;
+                target.close();
+            }
+        }
+
+        void release() throws SQLException {
+            checkedOut = false;
+            ResultSet open = target.getResultSet();
+            if (open != null) {
+                open.close();
+            }
+            target.clearParameters();
+            target.clearBatch();
+        }
+
+        // Dropped from the cache; a holder still using it closes it when done
+        void evict() {
+            cached = false;
+            if (!checkedOut) {
+                closeQuietly(target);
+            }
+        }
+    }
+
+    private static Object invokeTimed(Object target, Method method, Object[] args,
+                                      OperationMetrics metrics) throws Throwable {
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = invokeTarget(target, method, args);
+            failed = false;
+            return result;
+        } finally {
+            DbTimer.record(metrics, System.nanoTime() - started, failed);
+        }
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            // ignore, statement is being discarded
+        }
+    }
+}
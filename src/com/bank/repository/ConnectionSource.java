@@ -0,0 +1,12 @@
+package com.bank.repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Where a repository borrows its connections: the primary pool, or one shard's pool (see ShardRouter)
+@FunctionalInterface
+public interface ConnectionSource {
+    ConnectionSource PRIMARY = DatabaseConnection::getConnection;
+
+    Connection getConnection() throws SQLException;
+}
@@ -3,83 +3,62 @@ package com.bank.repository;
 import java.sql.*;
 
 public class DatabaseConnection {
-    private static final String URL = "jdbc:h2:mem:banking_db;DB_CLOSE_DELAY=-1";
-    private static final String USER = "sa";
-    private static final String PASSWORD = "";
-    
-    private static Connection connection;
-    
+    private static final String URL = System.getProperty("bank.db.url", "jdbc:h2:mem:banking_db;DB_CLOSE_DELAY=-1");
+    private static final String USER = System.getProperty("bank.db.user", "sa");
+    private static final String PASSWORD = System.getProperty("bank.db.password", "");
+
+    private static final int POOL_SIZE = Integer.getInteger("bank.db.pool.size", 16);
+    private static final int POOL_MIN_IDLE = Integer.getInteger("bank.db.pool.minIdle", 2);
+    private static final long BORROW_TIMEOUT_MS = Long.getLong("bank.db.pool.borrowTimeoutMs", 5_000);
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("bank.db.pool.idleTimeoutMs", 300_000);
+    private static final long LEAK_THRESHOLD_MS = Long.getLong("bank.db.pool.leakThresholdMs", 30_000);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("bank.db.pool.statementCacheSize", 64);
+
+    private static volatile ConnectionPool pool;
+
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(URL, USER, PASSWORD);
-            initializeDatabase();
+        return getPool().getConnection();
+    }
+
+    public static ConnectionPool getPool() throws SQLException {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseConnection.class) {
+                current = pool;
+                if (current == null) {
+                    current = openPool(URL, USER, PASSWORD);
+                    pool = current;
+                }
+            }
         }
-        return connection;
+        return current;
     }
-    
-    private static void initializeDatabase() throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS users (
-                    id VARCHAR(36) PRIMARY KEY,
-                    name VARCHAR(100) NOT NULL,
-                    email VARCHAR(100) UNIQUE NOT NULL,
-                    password_hash VARCHAR(255) NOT NULL,
-                    salt VARCHAR(255) NOT NULL,
-                    role VARCHAR(20) NOT NULL,
-                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-                )
-            """);
-            
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS accounts (
-                    id VARCHAR(36) PRIMARY KEY,
-                    user_id VARCHAR(36) NOT NULL,
-                    account_number VARCHAR(12) UNIQUE NOT NULL,
-                    type VARCHAR(20) NOT NULL,
-                    balance DECIMAL(15, 2) DEFAULT 0.00,
-                    status VARCHAR(20) DEFAULT 'ACTIVE',
-                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
-                )
-            """);
-            
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS transactions (
-                    id VARCHAR(36) PRIMARY KEY,
-                    from_account_id VARCHAR(36),
-                    to_account_id VARCHAR(36),
-                    amount DECIMAL(15, 2) NOT NULL,
-                    type VARCHAR(20) NOT NULL,
-                    description TEXT,
-                    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    FOREIGN KEY (from_account_id) REFERENCES accounts(id),
-                    FOREIGN KEY (to_account_id) REFERENCES accounts(id)
-                )
-            """);
-            
-            stmt.execute("""
-                CREATE TABLE IF NOT EXISTS audit_logs (
-                    id VARCHAR(36) PRIMARY KEY,
-                    action VARCHAR(50) NOT NULL,
-                    user_id VARCHAR(36) NOT NULL,
-                    details TEXT,
-                    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    FOREIGN KEY (user_id) REFERENCES users(id)
-                )
-            """);
-            
-            System.out.println("✓ Database initialized successfully");
+
+    // A migrated pool with the bank.db.pool.* settings; also used for the shards of a ShardRouter
+    static ConnectionPool openPool(String url, String user, String password) throws SQLException {
+        ConnectionPool opened = new ConnectionPool(url, user, password, POOL_SIZE, POOL_MIN_IDLE,
+            BORROW_TIMEOUT_MS, IDLE_TIMEOUT_MS, LEAK_THRESHOLD_MS, STATEMENT_CACHE_SIZE);
+        try (Connection conn = opened.getConnection()) {
+            initializeDatabase(conn);
+        } catch (SQLException e) {
+            opened.close();
+            throw e;
         }
+        return opened;
+    }
+
+    private static void initializeDatabase(Connection connection) throws SQLException {
+        SchemaMigrator.migrate(connection);
+        System.out.println("✓ Database initialized successfully (schema v"
+            + SchemaMigrator.currentVersion(connection) + ")");
     }
     
     public static void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+        synchronized (DatabaseConnection.class) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
 }
\ No newline at end of file
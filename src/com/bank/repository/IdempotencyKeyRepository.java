@@ -0,0 +1,136 @@
+package com.bank.repository;
+
+import com.bank.model.IdempotencyRecord;
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Idempotency keys with their outcome. A claim holds its key for ttl, and a completed key
+ * is kept for ttl after completion. Expired keys read as absent and can be claimed again;
+ * every PURGE_EVERY claims also delete a bounded number of expired rows, so the table
+ * stays around (request rate * ttl) in size.
+ */
+public class IdempotencyKeyRepository {
+    private static final String DUPLICATE_KEY = "23505";
+    private static final int PURGE_EVERY = 1000;
+    private static final int PURGE_LIMIT = 1000;
+    
+    private final Duration ttl;
+    private final AtomicLong claims = new AtomicLong();
+    
+    public IdempotencyKeyRepository(Duration ttl) {
+        this.ttl = ttl;
+    }
+    
+    public IdempotencyRecord findByKey(String key) throws SQLException {
+        String sql = "SELECT idempotency_key, fingerprint, transaction_id, expires_at FROM idempotency_keys " +
+                     "WHERE idempotency_key = ? AND expires_at > ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, key);
+            stmt.setObject(2, LocalDateTime.now());
+            ResultSet rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return new IdempotencyRecord(rs.getString(1), rs.getString(2), rs.getString(3),
+                    rs.getObject(4, LocalDateTime.class));
+            }
+        }
+        return null;
+    }
+    
+    // Records the key as in progress; false if another request holds it and it has not expired
+    public boolean claim(String key, String fingerprint) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (claims.incrementAndGet() % PURGE_EVERY == 0) {
+                deleteExpired(conn, now);
+            }
+            if (insert(conn, key, fingerprint, now)) {
+                return true;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM idempotency_keys WHERE idempotency_key = ? AND expires_at <= ?")) {
+                stmt.setString(1, key);
+                stmt.setObject(2, now);
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            return insert(conn, key, fingerprint, now);
+        }
+    }
+    
+    private boolean insert(Connection conn, String key, String fingerprint, LocalDateTime now) throws SQLException {
+        String sql = "INSERT INTO idempotency_keys (idempotency_key, fingerprint, expires_at) VALUES (?, ?, ?)";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, key);
+            stmt.setString(2, fingerprint);
+            stmt.setObject(3, now.plus(ttl));
+            stmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            if (DUPLICATE_KEY.equals(e.getSQLState())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+    
+    // Stores the outcome of a claimed key, which is then kept for ttl from now; null if the claim was lost
+    public IdempotencyRecord complete(String key, String fingerprint, String transactionId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return complete(conn, key, fingerprint, transactionId);
+        }
+    }
+    
+    /**
+     * Same on the caller's connection, so the outcome commits together with the posting it records.
+     * Only an open claim for the same request is completed: a claim that expired and was taken
+     * over, or already completed, is left alone and null is returned.
+     */
+    public IdempotencyRecord complete(Connection conn, String key, String fingerprint, String transactionId)
+            throws SQLException {
+        String sql = "UPDATE idempotency_keys SET transaction_id = ?, expires_at = ? " +
+                     "WHERE idempotency_key = ? AND transaction_id IS NULL AND fingerprint = ?";
+        IdempotencyRecord record = new IdempotencyRecord(key, fingerprint, transactionId, LocalDateTime.now().plus(ttl));
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, transactionId);
+            stmt.setObject(2, record.getExpiresAt());
+            stmt.setString(3, key);
+            stmt.setString(4, fingerprint);
+            if (stmt.executeUpdate() == 0) {
+                return null;
+            }
+        }
+        return record;
+    }
+    
+    // Gives up a claim whose request failed, so a retry runs it again; a completed key is kept
+    public void release(String key) throws SQLException {
+        String sql = "DELETE FROM idempotency_keys WHERE idempotency_key = ? AND transaction_id IS NULL";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, key);
+            stmt.executeUpdate();
+        }
+    }
+    
+    private void deleteExpired(Connection conn, LocalDateTime now) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "DELETE FROM idempotency_keys WHERE expires_at <= ? FETCH FIRST ? ROWS ONLY")) {
+            stmt.setObject(1, now);
+            stmt.setInt(2, PURGE_LIMIT);
+            stmt.executeUpdate();
+        }
+    }
+}
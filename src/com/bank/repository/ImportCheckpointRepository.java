@@ -0,0 +1,46 @@
+package com.bank.repository;
+
+import com.bank.model.ImportCheckpoint;
+import java.sql.*;
+
+public class ImportCheckpointRepository {
+    
+    public ImportCheckpoint findByJobId(String jobId) throws SQLException {
+        String sql = "SELECT job_id, kind, rows_done, accepted, rejected, completed FROM import_checkpoints WHERE job_id = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, jobId);
+            ResultSet rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return new ImportCheckpoint(
+                    rs.getString(1),
+                    rs.getString(2),
+                    rs.getLong(3),
+                    rs.getLong(4),
+                    rs.getLong(5),
+                    rs.getBoolean(6)
+                );
+            }
+        }
+        return null;
+    }
+    
+    // Written in the same transaction as the batch it records, so a resume never repeats or skips rows
+    public void save(Connection conn, ImportCheckpoint checkpoint) throws SQLException {
+        String sql = "MERGE INTO import_checkpoints (job_id, kind, rows_done, accepted, rejected, completed, updated_at) " +
+                     "KEY (job_id) VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, checkpoint.getJobId());
+            stmt.setString(2, checkpoint.getKind());
+            stmt.setLong(3, checkpoint.getRowsDone());
+            stmt.setLong(4, checkpoint.getAccepted());
+            stmt.setLong(5, checkpoint.getRejected());
+            stmt.setBoolean(6, checkpoint.isCompleted());
+            stmt.executeUpdate();
+        }
+    }
+}
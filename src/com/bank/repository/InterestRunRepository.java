@@ -0,0 +1,107 @@
+package com.bank.repository;
+
+import com.bank.model.InterestPartition;
+import com.bank.model.InterestRun;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class InterestRunRepository {
+    
+    public InterestRun findByDate(LocalDate businessDate) throws SQLException {
+        String sql = "SELECT business_date, annual_rate, completed FROM interest_runs WHERE business_date = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setObject(1, businessDate);
+            ResultSet rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return new InterestRun(rs.getObject(1, LocalDate.class), rs.getBigDecimal(2), rs.getBoolean(3));
+            }
+        }
+        return null;
+    }
+    
+    public List<InterestPartition> findPartitions(LocalDate businessDate) throws SQLException {
+        String sql = "SELECT business_date, partition_no, low_id, high_id, last_id, accounts, interest, completed " +
+                     "FROM interest_partitions WHERE business_date = ? ORDER BY partition_no";
+        List<InterestPartition> partitions = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setObject(1, businessDate);
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                partitions.add(new InterestPartition(
+                    rs.getObject(1, LocalDate.class),
+                    rs.getInt(2),
+                    rs.getString(3),
+                    rs.getString(4),
+                    rs.getString(5),
+                    rs.getLong(6),
+                    rs.getBigDecimal(7),
+                    rs.getBoolean(8)
+                ));
+            }
+        }
+        return partitions;
+    }
+    
+    // Plans a run: the run row and all of its partitions are written in the caller's transaction
+    public void create(Connection conn, InterestRun run, List<InterestPartition> partitions) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO interest_runs (business_date, annual_rate, completed) VALUES (?, ?, ?)")) {
+            stmt.setObject(1, run.getBusinessDate());
+            stmt.setBigDecimal(2, run.getAnnualRate());
+            stmt.setBoolean(3, run.isCompleted());
+            stmt.executeUpdate();
+        }
+        
+        String sql = "INSERT INTO interest_partitions " +
+                     "(business_date, partition_no, low_id, high_id, last_id, accounts, interest, completed) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (InterestPartition partition : partitions) {
+                stmt.setObject(1, partition.getBusinessDate());
+                stmt.setInt(2, partition.getPartition());
+                stmt.setString(3, partition.getLowId());
+                stmt.setString(4, partition.getHighId());
+                stmt.setString(5, partition.getLastId());
+                stmt.setLong(6, partition.getAccounts());
+                stmt.setBigDecimal(7, partition.getInterest());
+                stmt.setBoolean(8, partition.isCompleted());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    
+    // Written in the same transaction as the credits it records, so a restart never repeats or skips an account
+    public void savePartition(Connection conn, InterestPartition partition) throws SQLException {
+        String sql = "UPDATE interest_partitions SET last_id = ?, accounts = ?, interest = ?, completed = ?, " +
+                     "updated_at = CURRENT_TIMESTAMP WHERE business_date = ? AND partition_no = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, partition.getLastId());
+            stmt.setLong(2, partition.getAccounts());
+            stmt.setBigDecimal(3, partition.getInterest());
+            stmt.setBoolean(4, partition.isCompleted());
+            stmt.setObject(5, partition.getBusinessDate());
+            stmt.setInt(6, partition.getPartition());
+            stmt.executeUpdate();
+        }
+    }
+    
+    public void complete(Connection conn, LocalDate businessDate) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE interest_runs SET completed = TRUE WHERE business_date = ?")) {
+            stmt.setObject(1, businessDate);
+            stmt.executeUpdate();
+        }
+    }
+}
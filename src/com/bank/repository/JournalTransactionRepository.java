@@ -0,0 +1,786 @@
+package com.bank.repository;
+
+import com.bank.model.*;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32C;
+
+/**
+ * Transaction storage in append-only, memory-mapped segment files instead of the
+ * transactions table. Each record is a fixed 88-byte header (ids as raw UUID bits,
+ * amount in cents, timestamp as epoch seconds + nanos) followed by the UTF-8
+ * description, padded to 8 bytes and protected by a CRC32C.
+ *
+ * An in-memory index keeps every account's record locations sorted by (timestamp, id),
+ * so history pages are a binary search plus sequential reads. On startup the segments
+ * are replayed to rebuild the index; replay stops at the first torn or corrupt record
+ * and the rest of that segment is cleared before new appends.
+ *
+ * Appends reach the page cache immediately and survive a process crash. They are
+ * forced to disk every syncIntervalMillis (0 forces on every append). A record saved on
+ * a caller's connection is also written to the journal_outbox table on that connection
+ * and is appended when the caller reports its commit through committed(), so a
+ * rolled-back transaction never leaves a record behind. Its outbox row is deleted once
+ * the record has been forced to disk; open() appends every remaining row the journal
+ * does not hold, so neither a failed append nor a crash before the sync loses a
+ * committed record. Void records written by earlier versions are still honoured on replay.
+ *
+ * Only history lives here: the V4 account_stats backfill and a read model rebuilt from
+ * the primary's tables do not see journaled transactions, so history is read from here.
+ */
+public class JournalTransactionRepository extends TransactionRepository implements AutoCloseable {
+    private static final long MAGIC = 0x42414E4B4A524E31L; // "BANKJRN1"
+    private static final int SEGMENT_HEADER = 16;
+    private static final int MIN_SEGMENT_SIZE = 1 << 20;
+    private static final int MAX_DESCRIPTION = 0xFFFF;
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final int OUTBOX_BATCH_SIZE = 1000;
+
+    // record layout
+    private static final int LENGTH = 0;
+    private static final int CRC = 4;
+    private static final int KIND = 8;
+    private static final int TYPE = 9;
+    private static final int FLAGS = 10;
+    private static final int DESCRIPTION_LENGTH = 12;
+    private static final int ID = 16;
+    private static final int FROM = 32;
+    private static final int TO = 48;
+    private static final int AMOUNT = 64;
+    private static final int SECONDS = 72;
+    private static final int NANOS = 80;
+    private static final int RECORD_HEADER = 88;
+
+    private static final byte KIND_TRANSACTION = 1;
+    private static final byte KIND_VOID = 2; // only written by earlier versions; replay unindexes the record
+    private static final byte HAS_FROM = 1;
+    private static final byte HAS_TO = 2;
+    private static final byte HAS_DESCRIPTION = 4;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long syncIntervalMillis;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Thread syncer;
+
+    // guarded by lock
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final Map<String, AccountIndex> index = new HashMap<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(align(RECORD_HEADER + MAX_DESCRIPTION));
+    private final CRC32C crc = new CRC32C();
+    private int position;
+    private boolean closed;
+
+    private volatile boolean dirty;
+    private volatile boolean running = true;
+    // ids of appended records whose outbox rows can go once the records are forced to disk
+    private final ConcurrentLinkedQueue<String> appended = new ConcurrentLinkedQueue<>();
+
+    private JournalTransactionRepository(Path directory, int segmentSize, long syncIntervalMillis) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size must be at least " + MIN_SEGMENT_SIZE + " bytes");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncIntervalMillis = syncIntervalMillis;
+
+        Files.createDirectories(directory);
+        long records = recover();
+        if (segments.isEmpty()) {
+            segments.add(map(directory.resolve(segmentName(0)), true));
+            position = SEGMENT_HEADER;
+        }
+        System.out.println("✓ Transaction journal recovered " + records + " records from "
+            + segments.size() + " segment(s)");
+
+        if (syncIntervalMillis > 0) {
+            syncer = new Thread(this::syncLoop, "journal-sync");
+            syncer.setDaemon(true);
+        } else {
+            syncer = null;
+        }
+    }
+
+    // Recovers the journal in directory, appends the committed records it missed from the outbox
+    // and starts the background sync once it is fully constructed
+    public static JournalTransactionRepository open(Path directory, int segmentSize, long syncIntervalMillis)
+            throws IOException, SQLException {
+        JournalTransactionRepository journal = new JournalTransactionRepository(directory, segmentSize, syncIntervalMillis);
+        journal.replayOutbox();
+        if (journal.syncer != null) {
+            journal.syncer.start();
+        }
+        return journal;
+    }
+
+    @Override
+    public void save(Transaction transaction) throws SQLException {
+        append(List.of(transaction), KIND_TRANSACTION);
+    }
+
+    // The caller's connection carries an outbox row; the record itself waits for committed()
+    @Override
+    public void save(Connection conn, Transaction transaction) throws SQLException {
+        saveAll(conn, List.of(transaction));
+    }
+
+    @Override
+    public void saveAll(Connection conn, List<Transaction> transactions) throws SQLException {
+        for (Transaction transaction : transactions) {
+            checkEncodable(transaction);
+        }
+        String sql = "INSERT INTO journal_outbox (id, from_account_id, to_account_id, amount, type, description, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (Transaction transaction : transactions) {
+                stmt.setString(1, transaction.getId());
+                stmt.setString(2, transaction.getFromAccountId());
+                stmt.setString(3, transaction.getToAccountId());
+                stmt.setBigDecimal(4, transaction.getAmount());
+                stmt.setString(5, transaction.getType().name());
+                stmt.setString(6, transaction.getDescription());
+                stmt.setTimestamp(7, Timestamp.valueOf(transaction.getTimestamp()));
+                stmt.addBatch();
+
+                if (++pending == OUTBOX_BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    // A failure leaves the outbox rows in place, and the next open() appends them
+    @Override
+    public void committed(List<Transaction> transactions) throws SQLException {
+        append(transactions, KIND_TRANSACTION);
+        for (Transaction transaction : transactions) {
+            appended.add(transaction.getId());
+        }
+        if (syncer == null) {
+            deleteFromOutbox(drainAppended()); // append() already forced them
+        }
+    }
+
+    @Override
+    public List<Transaction> findByAccountId(String accountId) throws SQLException {
+        return findByAccountId(accountId, null, null, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Transaction> findByAccountId(String accountId, LocalDateTime from, LocalDateTime to,
+                                             HistoryCursor after, int limit) throws SQLException {
+        long upperSeconds;
+        int upperNanos;
+        long upperMsb = 0;
+        long upperLsb = 0;
+        if (after != null) {
+            upperSeconds = after.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+            upperNanos = after.getTimestamp().getNano();
+            UUID id = UUID.fromString(after.getTransactionId());
+            upperMsb = id.getMostSignificantBits();
+            upperLsb = id.getLeastSignificantBits();
+        } else if (to != null) {
+            upperSeconds = to.toEpochSecond(ZoneOffset.UTC);
+            upperNanos = to.getNano();
+        } else {
+            upperSeconds = Long.MAX_VALUE;
+            upperNanos = 0;
+        }
+        long lowerSeconds = from != null ? from.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+        int lowerNanos = from != null ? from.getNano() : 0;
+
+        List<Transaction> transactions = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            AccountIndex entries = index.get(accountId);
+            if (entries == null) {
+                return transactions;
+            }
+            // newest first, starting just below the exclusive upper key
+            for (int i = entries.lowerBound(upperSeconds, upperNanos, upperMsb, upperLsb) - 1;
+                 i >= 0 && transactions.size() < limit; i--) {
+                long location = entries.locations[i];
+                if (compareTime(location, lowerSeconds, lowerNanos) < 0) {
+                    break;
+                }
+                transactions.add(read(location));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return transactions;
+    }
+
+    @Override
+    public Stream<Transaction> streamByAccountId(String accountId, LocalDateTime from, LocalDateTime to,
+                                                 int fetchSize) {
+        Spliterator<Transaction> pages = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private List<Transaction> page = List.of();
+            private int next;
+            private HistoryCursor cursor;
+            private boolean exhausted;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Transaction> action) {
+                if (next == page.size()) {
+                    if (exhausted) {
+                        return false;
+                    }
+                    try {
+                        page = findByAccountId(accountId, from, to, cursor, fetchSize);
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Failed to read transaction history: " + e.getMessage(), e);
+                    }
+                    next = 0;
+                    exhausted = page.size() < fetchSize;
+                    if (page.isEmpty()) {
+                        return false;
+                    }
+                }
+                Transaction transaction = page.get(next++);
+                cursor = HistoryCursor.after(transaction);
+                action.accept(transaction);
+                return true;
+            }
+        };
+        return StreamSupport.stream(pages, false);
+    }
+
+    @Override
+    public BigDecimal netFlow(String accountId, LocalDateTime after, LocalDateTime upTo) throws SQLException {
+        lock.readLock().lock();
+        try {
+            AccountIndex entries = index.get(accountId);
+            return entries != null ? BigDecimal.valueOf(netCents(accountId, entries, after, upTo), 2) : BigDecimal.ZERO;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, BigDecimal> netFlows(LocalDateTime after, LocalDateTime upTo) throws SQLException {
+        Map<String, BigDecimal> flows = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, AccountIndex> entry : index.entrySet()) {
+                AccountIndex entries = entry.getValue();
+                if (entries.firstAfter(after) < entries.firstAfter(upTo)) {
+                    flows.put(entry.getKey(), BigDecimal.valueOf(netCents(entry.getKey(), entries, after, upTo), 2));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return flows;
+    }
+
+    // caller holds the read lock
+    private long netCents(String accountId, AccountIndex entries, LocalDateTime after, LocalDateTime upTo) {
+        UUID account = UUID.fromString(accountId);
+        long msb = account.getMostSignificantBits();
+        long lsb = account.getLeastSignificantBits();
+        long cents = 0;
+        for (int i = entries.firstAfter(after), end = entries.firstAfter(upTo); i < end; i++) {
+            ByteBuffer b = segments.get(segment(entries.locations[i]));
+            int o = offset(entries.locations[i]);
+            byte flags = b.get(o + FLAGS);
+            long amount = b.getLong(o + AMOUNT);
+            // a self-transfer is indexed once and nets to zero
+            if ((flags & HAS_TO) != 0 && b.getLong(o + TO) == msb && b.getLong(o + TO + 8) == lsb) {
+                cents += amount;
+            }
+            if ((flags & HAS_FROM) != 0 && b.getLong(o + FROM) == msb && b.getLong(o + FROM + 8) == lsb) {
+                cents -= amount;
+            }
+        }
+        return cents;
+    }
+
+    // Forces appended records to disk now instead of waiting for the sync interval
+    public void sync() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        MappedByteBuffer current;
+        lock.readLock().lock();
+        try {
+            current = segments.get(segments.size() - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+        current.force();
+    }
+
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (syncer != null) {
+            try {
+                syncer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<String> durable = drainAppended();
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                segments.get(segments.size() - 1).force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        deleteFromOutbox(durable);
+    }
+
+    // Appends the outbox rows whose record the journal does not hold, then clears the outbox
+    private void replayOutbox() throws SQLException {
+        String sql = "SELECT id, from_account_id, to_account_id, amount, type, description, timestamp " +
+                     "FROM journal_outbox ORDER BY timestamp, id";
+        List<Transaction> rows = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                rows.add(RowMappers.TRANSACTION.map(rs));
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Transaction> missing = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Transaction row : rows) {
+                if (!contains(row)) {
+                    missing.add(row);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        append(missing, KIND_TRANSACTION);
+        lock.writeLock().lock();
+        try {
+            segments.get(segments.size() - 1).force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        deleteFromOutbox(rows.stream().map(Transaction::getId).toList());
+        if (!missing.isEmpty()) {
+            System.out.println("✓ Transaction journal appended " + missing.size() + " committed records from the outbox");
+        }
+    }
+
+    // caller holds the lock
+    private boolean contains(Transaction transaction) {
+        String accountId = transaction.getFromAccountId() != null
+            ? transaction.getFromAccountId() : transaction.getToAccountId();
+        AccountIndex entries = index.get(accountId);
+        if (entries == null) {
+            return false;
+        }
+        UUID id = UUID.fromString(transaction.getId());
+        long seconds = transaction.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+        int nanos = transaction.getTimestamp().getNano();
+        int i = entries.lowerBound(seconds, nanos, id.getMostSignificantBits(), id.getLeastSignificantBits());
+        return i < entries.size && compareKey(entries.locations[i], seconds, nanos,
+            id.getMostSignificantBits(), id.getLeastSignificantBits()) == 0;
+    }
+
+    private List<String> drainAppended() {
+        List<String> ids = new ArrayList<>();
+        for (String id = appended.poll(); id != null; id = appended.poll()) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    // A failed delete only leaves rows that the next open() finds already appended
+    private static void deleteFromOutbox(List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM journal_outbox WHERE id = ?")) {
+            int pending = 0;
+            for (String id : ids) {
+                stmt.setString(1, id);
+                stmt.addBatch();
+                if (++pending == OUTBOX_BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            System.err.println("Could not clear " + ids.size() + " journal outbox rows: " + e.getMessage());
+        }
+    }
+
+    private void append(List<Transaction> transactions, byte kind) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                throw new SQLException("Transaction journal is closed");
+            }
+            for (Transaction transaction : transactions) {
+                int length = encode(transaction, kind);
+                MappedByteBuffer segment = segments.get(segments.size() - 1);
+                if (position + length > segment.capacity()) {
+                    segment.force(); // a finished segment is durable before the next one is used
+                    segment = map(directory.resolve(segmentName(segments.size())), true);
+                    segments.add(segment);
+                    position = SEGMENT_HEADER;
+                }
+                segment.put(position, scratch.array(), 0, length);
+                long location = location(segments.size() - 1, position);
+                position += length;
+                apply(location);
+            }
+            if (syncIntervalMillis <= 0) {
+                segments.get(segments.size() - 1).force();
+            } else {
+                dirty = true;
+            }
+        } catch (IOException e) {
+            throw new SQLException("Journal append failed: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Fails before the caller commits rather than in committed(), where the balances are already written
+    private static void checkEncodable(Transaction transaction) throws SQLException {
+        String description = transaction.getDescription();
+        if (description != null && description.length() > MAX_DESCRIPTION / 3
+                && description.getBytes(StandardCharsets.UTF_8).length > MAX_DESCRIPTION) {
+            throw new SQLException("Description too long for a journal record");
+        }
+    }
+
+    // Assembles one record in scratch and returns its padded length
+    private int encode(Transaction transaction, byte kind) {
+        String description = transaction.getDescription();
+        byte[] text = description != null ? description.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (text.length > MAX_DESCRIPTION) {
+            throw new IllegalArgumentException("Description too long for a journal record");
+        }
+        int length = align(RECORD_HEADER + text.length);
+        byte flags = 0;
+
+        ByteBuffer b = scratch;
+        Arrays.fill(b.array(), 0, length, (byte) 0);
+        b.putInt(LENGTH, length);
+        b.put(KIND, kind);
+        b.put(TYPE, (byte) transaction.getType().ordinal());
+        b.putChar(DESCRIPTION_LENGTH, (char) text.length);
+        putUuid(b, ID, transaction.getId());
+        if (transaction.getFromAccountId() != null) {
+            putUuid(b, FROM, transaction.getFromAccountId());
+            flags |= HAS_FROM;
+        }
+        if (transaction.getToAccountId() != null) {
+            putUuid(b, TO, transaction.getToAccountId());
+            flags |= HAS_TO;
+        }
+        if (description != null) {
+            flags |= HAS_DESCRIPTION;
+        }
+        b.put(FLAGS, flags);
+        // same rounding the DECIMAL(15, 2) column applies
+        b.putLong(AMOUNT, transaction.getAmount().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        b.putLong(SECONDS, transaction.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+        b.putInt(NANOS, transaction.getTimestamp().getNano());
+        b.put(RECORD_HEADER, text);
+
+        crc.reset();
+        crc.update(b.array(), KIND, length - KIND);
+        b.putInt(CRC, (int) crc.getValue());
+        return length;
+    }
+
+    private Transaction read(long location) {
+        ByteBuffer b = segments.get(segment(location));
+        int o = offset(location);
+        byte flags = b.get(o + FLAGS);
+        String description = null;
+        if ((flags & HAS_DESCRIPTION) != 0) {
+            byte[] text = new byte[b.getChar(o + DESCRIPTION_LENGTH)];
+            b.get(o + RECORD_HEADER, text);
+            description = new String(text, StandardCharsets.UTF_8);
+        }
+        return new Transaction(
+            getUuid(b, o + ID),
+            (flags & HAS_FROM) != 0 ? getUuid(b, o + FROM) : null,
+            (flags & HAS_TO) != 0 ? getUuid(b, o + TO) : null,
+            BigDecimal.valueOf(b.getLong(o + AMOUNT), 2),
+            TYPES[b.get(o + TYPE)],
+            description,
+            LocalDateTime.ofEpochSecond(b.getLong(o + SECONDS), b.getInt(o + NANOS), ZoneOffset.UTC)
+        );
+    }
+
+    // Adds a transaction record to the index of both accounts, or removes the one a void refers to
+    private void apply(long location) {
+        ByteBuffer b = segments.get(segment(location));
+        int o = offset(location);
+        byte flags = b.get(o + FLAGS);
+        String from = (flags & HAS_FROM) != 0 ? getUuid(b, o + FROM) : null;
+        String to = (flags & HAS_TO) != 0 ? getUuid(b, o + TO) : null;
+        boolean add = b.get(o + KIND) == KIND_TRANSACTION;
+
+        for (String accountId : new String[] { from, to != null && to.equals(from) ? null : to }) {
+            if (accountId == null) {
+                continue;
+            }
+            if (add) {
+                index.computeIfAbsent(accountId, id -> new AccountIndex()).add(location);
+            } else {
+                AccountIndex entries = index.get(accountId);
+                if (entries != null) {
+                    entries.remove(location);
+                }
+            }
+        }
+    }
+
+    private long recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(p -> p.getFileName().toString().matches("journal-\\d{8}\\.seg"))
+                .sorted().toList();
+        }
+        long records = 0;
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            if (!file.getFileName().toString().equals(segmentName(i))) {
+                throw new IOException("Journal segment missing before " + file);
+            }
+            MappedByteBuffer segment = map(file, false);
+            if (segment.getLong(0) != MAGIC) {
+                throw new IOException("Not a journal segment: " + file);
+            }
+            segments.add(segment);
+
+            int offset = SEGMENT_HEADER;
+            while (offset + RECORD_HEADER <= segment.capacity()) {
+                int length = segment.getInt(offset + LENGTH);
+                if (length == 0) {
+                    break;
+                }
+                if (length < RECORD_HEADER || length > segment.capacity() - offset || !checksumMatches(segment, offset, length)) {
+                    System.err.println("Journal " + file.getFileName() + ": dropping torn record at offset " + offset);
+                    break;
+                }
+                apply(location(i, offset));
+                offset += length;
+                records++;
+            }
+            position = offset;
+        }
+
+        // anything past the last good record in the active segment is debris from a crash
+        if (!segments.isEmpty()) {
+            MappedByteBuffer last = segments.get(segments.size() - 1);
+            boolean cleared = false;
+            for (int p = position; p + Long.BYTES <= last.capacity(); p += Long.BYTES) {
+                if (last.getLong(p) != 0) {
+                    last.putLong(p, 0);
+                    cleared = true;
+                }
+            }
+            if (cleared) {
+                last.force();
+            }
+        }
+        return records;
+    }
+
+    private boolean checksumMatches(MappedByteBuffer segment, int offset, int length) {
+        crc.reset();
+        crc.update(segment.slice(offset + KIND, length - KIND));
+        return (int) crc.getValue() == segment.getInt(offset + CRC);
+    }
+
+    private MappedByteBuffer map(Path file, boolean create) throws IOException {
+        try (FileChannel channel = create
+                ? FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                create ? segmentSize : channel.size());
+            if (create) {
+                buffer.putLong(0, MAGIC);
+                buffer.force();
+            }
+            return buffer;
+        }
+    }
+
+    private void syncLoop() {
+        while (running) {
+            try {
+                Thread.sleep(syncIntervalMillis);
+            } catch (InterruptedException e) {
+                // close() stops the loop via running
+            }
+            // taken before the force, so every id's record is covered by it
+            List<String> durable = drainAppended();
+            sync();
+            deleteFromOutbox(durable);
+        }
+    }
+
+    // (timestamp, id) order of two records; ids compare as unsigned bits, which matches their string order
+    private int compare(long a, long b) {
+        ByteBuffer sb = segments.get(segment(b));
+        int ob = offset(b);
+        return compareKey(a, sb.getLong(ob + SECONDS), sb.getInt(ob + NANOS),
+            sb.getLong(ob + ID), sb.getLong(ob + ID + 8));
+    }
+
+    private int compareKey(long location, long seconds, int nanos, long msb, long lsb) {
+        int c = compareTime(location, seconds, nanos);
+        if (c != 0) {
+            return c;
+        }
+        ByteBuffer b = segments.get(segment(location));
+        int o = offset(location);
+        c = Long.compareUnsigned(b.getLong(o + ID), msb);
+        return c != 0 ? c : Long.compareUnsigned(b.getLong(o + ID + 8), lsb);
+    }
+
+    private int compareTime(long location, long seconds, int nanos) {
+        ByteBuffer b = segments.get(segment(location));
+        int o = offset(location);
+        int c = Long.compare(b.getLong(o + SECONDS), seconds);
+        return c != 0 ? c : Integer.compare(b.getInt(o + NANOS), nanos);
+    }
+
+    // Locations of one account's records, sorted by (timestamp, id)
+    private final class AccountIndex {
+        private long[] locations = new long[8];
+        private int size;
+
+        void add(long location) {
+            if (size == locations.length) {
+                locations = Arrays.copyOf(locations, size * 2);
+            }
+            // records arrive almost in timestamp order, so this rarely moves more than a slot or two
+            int i = size++;
+            while (i > 0 && compare(locations[i - 1], location) > 0) {
+                locations[i] = locations[i - 1];
+                i--;
+            }
+            locations[i] = location;
+        }
+
+        // removes the record with the same key as the given void record
+        void remove(long voidLocation) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (compare(locations[i], voidLocation) == 0) {
+                    System.arraycopy(locations, i + 1, locations, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        // first position with timestamp > time, or 0 for a null time; -1L is the largest unsigned id
+        int firstAfter(LocalDateTime time) {
+            return time == null ? 0 : lowerBound(time.toEpochSecond(ZoneOffset.UTC), time.getNano(), -1L, -1L);
+        }
+
+        // first position whose key is >= the given key
+        int lowerBound(long seconds, int nanos, long msb, long lsb) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compareKey(locations[mid], seconds, nanos, msb, lsb) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    private static void putUuid(ByteBuffer b, int offset, String id) {
+        UUID uuid = UUID.fromString(id);
+        b.putLong(offset, uuid.getMostSignificantBits());
+        b.putLong(offset + 8, uuid.getLeastSignificantBits());
+    }
+
+    private static String getUuid(ByteBuffer b, int offset) {
+        return new UUID(b.getLong(offset), b.getLong(offset + 8)).toString();
+    }
+
+    private static long location(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    private static int segment(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    private static int align(int length) {
+        return (length + 7) & ~7;
+    }
+
+    private static String segmentName(int segment) {
+        return String.format("journal-%08d.seg", segment);
+    }
+}
@@ -0,0 +1,281 @@
+package com.bank.repository;
+
+import com.bank.model.AuditLog;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind sink for ledger postings. Postings are queued in order and a single
+ * flusher thread group-commits them: the summed balance change of every touched account,
+ * the transaction rows and the audit rows of a batch go to the database in one
+ * JDBC transaction. Once a batch commits, its accounts are invalidated in the account
+ * repository so a cache in front of it does not serve the balances from before the batch.
+ *
+ * Balances are written as deltas, so leaving out a posting never persists its effect
+ * through a later one. A batch that fails transiently is retried until it commits; a
+ * posting the database rejects outright (a data or constraint error) fails its durable()
+ * future so the ledger can revert it.
+ */
+public class LedgerWriteBehind implements AutoCloseable {
+    // attempts made for a failing batch once close() has been called
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+    private static final long MAX_BACKOFF_MILLIS = 1_000;
+
+    private final AccountRepository accountRepo;
+    private final BlockingQueue<Posting> queue;
+    private final int maxBatchSize;
+    private final long flushIntervalMillis;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private LedgerWriteBehind(AccountRepository accountRepo, int capacity, int maxBatchSize, long flushIntervalMillis) {
+        this.accountRepo = accountRepo;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flusher = new Thread(this::run, "ledger-write-behind");
+        this.flusher.setDaemon(true);
+    }
+
+    // Creates the sink and starts its flusher thread once it is fully constructed
+    public static LedgerWriteBehind start(AccountRepository accountRepo, int capacity, int maxBatchSize,
+                                          long flushIntervalMillis) {
+        LedgerWriteBehind writer = new LedgerWriteBehind(accountRepo, capacity, maxBatchSize, flushIntervalMillis);
+        writer.flusher.start();
+        return writer;
+    }
+
+    public static final class Posting {
+        private final Transaction transaction;
+        private final AuditLog auditLog;
+        private final String[] accountIds;
+        private final long[] deltas; // cents added to each account
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        public Posting(Transaction transaction, AuditLog auditLog, String[] accountIds, long[] deltas) {
+            this.transaction = transaction;
+            this.auditLog = auditLog;
+            this.accountIds = accountIds;
+            this.deltas = deltas;
+        }
+
+        public Transaction getTransaction() {return transaction;}
+        public String[] getAccountIds() {return accountIds;}
+        public long[] getDeltas() {return deltas;}
+
+        // completes once the posting has been committed to the database
+        public CompletableFuture<Void> durable() {return durable;}
+    }
+
+    /**
+     * Queues a posting, blocking while the queue is full. Must be called while the
+     * caller still holds the locks of the posting's accounts so postings reach the
+     * queue in the order they were applied.
+     */
+    public void submit(Posting posting) throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Ledger write-behind is closed");
+        }
+        queue.put(posting);
+    }
+
+    // Blocks until every posting submitted before this call is durable
+    public void flush() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        Posting barrier = new Posting(null, null, new String[0], new long[0]);
+        queue.put(barrier);
+        barrier.durable.join();
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<Posting> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Posting first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        break;
+                    }
+                    Posting next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                persist(batch);
+            } catch (InterruptedException e) {
+                // keep draining; close() stops the loop once the queue is empty
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void persist(List<Posting> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                writeBatch(batch);
+                invalidate(batch);
+                batch.forEach(p -> p.durable.complete(null));
+                return;
+            } catch (SQLException e) {
+                if (isRejected(e)) {
+                    if (batch.size() == 1) {
+                        System.err.println("Ledger posting rejected by the database: " + e.getMessage());
+                        batch.get(0).durable.completeExceptionally(e);
+                        return;
+                    }
+                    // isolate the posting that is rejected instead of blocking the whole ledger
+                    for (Posting posting : batch) {
+                        persist(List.of(posting));
+                    }
+                    return;
+                }
+                if (!running && attempt >= MAX_BATCH_ATTEMPTS) {
+                    System.err.println("Ledger write-behind closed with " + batch.size()
+                        + " postings not persisted: " + e.getMessage());
+                    batch.forEach(p -> p.durable.completeExceptionally(e));
+                    return;
+                }
+                // the postings are applied in memory, so dropping them is not an option
+                System.err.println("Ledger flush attempt " + attempt + " failed, retrying: " + e.getMessage());
+                sleepQuietly(Math.min(MAX_BACKOFF_MILLIS, 50L * attempt));
+            }
+        }
+    }
+
+    // Before the postings complete, so a SYNC caller reading back its account sees the new balance
+    private void invalidate(List<Posting> batch) {
+        Set<String> touched = new HashSet<>();
+        for (Posting posting : batch) {
+            touched.addAll(Arrays.asList(posting.accountIds));
+        }
+        for (String accountId : touched) {
+            try {
+                accountRepo.invalidate(accountId);
+            } catch (RuntimeException e) {
+                // the batch is committed; the flusher must keep running
+                System.err.println("Ledger could not invalidate account " + accountId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Data exceptions (22) and constraint violations (23) fail the same way on every attempt
+    private static boolean isRejected(SQLException e) {
+        for (SQLException cause = e; cause != null; cause = cause.getNextException()) {
+            String state = cause.getSQLState();
+            if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeBatch(List<Posting> batch) throws SQLException {
+        // one update per account carrying the sum of the batch's changes to it
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        for (Posting posting : batch) {
+            for (int i = 0; i < posting.accountIds.length; i++) {
+                deltas.merge(posting.accountIds[i], posting.deltas[i], Long::sum);
+            }
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE id = ?")) {
+                    for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+                        stmt.setBigDecimal(1, Money.toDecimal(entry.getValue()));
+                        stmt.setString(2, entry.getKey());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO transactions (id, from_account_id, to_account_id, amount, type, description, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                    for (Posting posting : batch) {
+                        Transaction t = posting.transaction;
+                        if (t == null) continue;
+                        stmt.setString(1, t.getId());
+                        stmt.setString(2, t.getFromAccountId());
+                        stmt.setString(3, t.getToAccountId());
+                        stmt.setBigDecimal(4, t.getAmount());
+                        stmt.setString(5, t.getType().name());
+                        stmt.setString(6, t.getDescription());
+                        stmt.setTimestamp(7, Timestamp.valueOf(t.getTimestamp()));
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO audit_logs (id, action, user_id, details, timestamp) VALUES (?, ?, ?, ?, ?)")) {
+                    for (Posting posting : batch) {
+                        AuditLog log = posting.auditLog;
+                        if (log == null) continue;
+                        stmt.setString(1, log.getId());
+                        stmt.setString(2, log.getAction());
+                        stmt.setString(3, log.getUserId());
+                        stmt.setString(4, log.getDetails());
+                        stmt.setTimestamp(5, Timestamp.valueOf(log.getTimestamp()));
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Stops accepting postings and synchronously drains everything already queued
+    @Override
+    public void close() {
+        running = false;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.bank.repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+public class Migration {
+    // A step that has to inspect the schema first, e.g. to find generated constraint names
+    public interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+    private final Step step;
+
+    public Migration(int version, String description, String... statements) {
+        this.version = version;
+        this.description = description;
+        this.statements = List.of(statements);
+        this.step = null;
+    }
+
+    public Migration(int version, String description, Step step) {
+        this.version = version;
+        this.description = description;
+        this.statements = List.of();
+        this.step = step;
+    }
+
+    public int getVersion() {return version;}
+    public String getDescription() {return description;}
+    public List<String> getStatements() {return statements;}
+    public Step getStep() {return step;}
+
+    @Override
+    public String toString() {
+        return String.format("V%d %s", version, description);
+    }
+}
@@ -0,0 +1,10 @@
+package com.bank.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Maps the current row of a result set; columns are read by position, see RowMappers
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
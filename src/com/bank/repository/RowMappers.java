@@ -0,0 +1,89 @@
+package com.bank.repository;
+
+import com.bank.model.*;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Column lists and row mappers shared by the repositories. Each mapper reads columns by
+ * position, so a query must select exactly the matching *_COLUMNS list, in that order.
+ * Positional reads skip the per-row name lookup, and enum columns are resolved through
+ * prebuilt tables rather than Enum.valueOf.
+ */
+public final class RowMappers {
+    public static final String ACCOUNT_COLUMNS = "id, user_id, account_number, type, balance, status, version";
+    public static final String ACCOUNT_BALANCE_COLUMNS = "id, account_number, balance, status, version";
+    public static final String USER_COLUMNS = "id, name, email, password_hash, salt, role";
+    public static final String TRANSACTION_COLUMNS = "id, from_account_id, to_account_id, amount, type, description, timestamp";
+    public static final String AUDIT_LOG_COLUMNS = "id, action, user_id, details, timestamp";
+
+    private static final EnumLookup<AccountType> ACCOUNT_TYPES = new EnumLookup<>(AccountType.class);
+    private static final EnumLookup<AccountStatus> ACCOUNT_STATUSES = new EnumLookup<>(AccountStatus.class);
+    private static final EnumLookup<TransactionType> TRANSACTION_TYPES = new EnumLookup<>(TransactionType.class);
+    private static final EnumLookup<Role> ROLES = new EnumLookup<>(Role.class);
+
+    public static final RowMapper<Account> ACCOUNT = rs -> new Account(
+        rs.getString(1),
+        rs.getString(2),
+        rs.getString(3),
+        ACCOUNT_TYPES.of(rs.getString(4)),
+        rs.getBigDecimal(5),
+        ACCOUNT_STATUSES.of(rs.getString(6)),
+        rs.getLong(7));
+
+    public static final RowMapper<AccountBalance> ACCOUNT_BALANCE = rs -> new AccountBalance(
+        rs.getString(1),
+        rs.getString(2),
+        Money.toCents(rs.getBigDecimal(3)),
+        ACCOUNT_STATUSES.of(rs.getString(4)),
+        rs.getLong(5));
+
+    public static final RowMapper<User> USER = rs -> new User(
+        rs.getString(1),
+        rs.getString(2),
+        rs.getString(3),
+        rs.getString(4),
+        rs.getString(5),
+        ROLES.of(rs.getString(6)));
+
+    public static final RowMapper<Transaction> TRANSACTION = rs -> new Transaction(
+        rs.getString(1),
+        rs.getString(2),
+        rs.getString(3),
+        rs.getBigDecimal(4),
+        TRANSACTION_TYPES.of(rs.getString(5)),
+        rs.getString(6),
+        rs.getObject(7, LocalDateTime.class));
+
+    public static final RowMapper<AuditLog> AUDIT_LOG = rs -> new AuditLog(
+        rs.getString(1),
+        rs.getString(2),
+        rs.getString(3),
+        rs.getString(4),
+        rs.getObject(5, LocalDateTime.class));
+
+    private RowMappers() {
+    }
+
+    private static final class EnumLookup<E extends Enum<E>> {
+        private final Class<E> type;
+        private final Map<String, E> byName = new HashMap<>();
+
+        EnumLookup(Class<E> type) {
+            this.type = type;
+            for (E constant : type.getEnumConstants()) {
+                byName.put(constant.name(), constant);
+            }
+        }
+
+        E of(String name) throws SQLException {
+            E constant = byName.get(name);
+            if (constant == null) {
+                throw new SQLException("Unknown " + type.getSimpleName() + " '" + name + "' in database");
+            }
+            return constant;
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.bank.repository;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies the versioned schema migrations in order, recording each applied
+ * version in schema_version so only pending steps run at startup.
+ * Append new migrations to the end of MIGRATIONS; never edit an applied one.
+ * SHARD_MIGRATIONS only apply to the databases of a ShardRouter and share the
+ * version numbering, so a new migration of either list takes the next free number.
+ */
+public class SchemaMigrator {
+
+    private static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "Base schema",
+            """
+                CREATE TABLE IF NOT EXISTS users (
+                    id VARCHAR(36) PRIMARY KEY,
+                    name VARCHAR(100) NOT NULL,
+                    email VARCHAR(100) UNIQUE NOT NULL,
+                    password_hash VARCHAR(255) NOT NULL,
+                    salt VARCHAR(255) NOT NULL,
+                    role VARCHAR(20) NOT NULL,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """,
+            """
+                CREATE TABLE IF NOT EXISTS accounts (
+                    id VARCHAR(36) PRIMARY KEY,
+                    user_id VARCHAR(36) NOT NULL,
+                    account_number VARCHAR(12) UNIQUE NOT NULL,
+                    type VARCHAR(20) NOT NULL,
+                    balance DECIMAL(15, 2) DEFAULT 0.00,
+                    status VARCHAR(20) DEFAULT 'ACTIVE',
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+                )
+            """,
+            """
+                CREATE TABLE IF NOT EXISTS transactions (
+                    id VARCHAR(36) PRIMARY KEY,
+                    from_account_id VARCHAR(36),
+                    to_account_id VARCHAR(36),
+                    amount DECIMAL(15, 2) NOT NULL,
+                    type VARCHAR(20) NOT NULL,
+                    description TEXT,
+                    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (from_account_id) REFERENCES accounts(id),
+                    FOREIGN KEY (to_account_id) REFERENCES accounts(id)
+                )
+            """,
+            """
+                CREATE TABLE IF NOT EXISTS audit_logs (
+                    id VARCHAR(36) PRIMARY KEY,
+                    action VARCHAR(50) NOT NULL,
+                    user_id VARCHAR(36) NOT NULL,
+                    details TEXT,
+                    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    FOREIGN KEY (user_id) REFERENCES users(id)
+                )
+            """),
+
+        new Migration(2, "Indexes for history, audit and account-owner lookups",
+            // one index per side of a transfer so each branch of the history UNION is an index range scan
+            "CREATE INDEX IF NOT EXISTS idx_transactions_from_ts ON transactions (from_account_id, timestamp, id)",
+            "CREATE INDEX IF NOT EXISTS idx_transactions_to_ts ON transactions (to_account_id, timestamp, id)",
+            "CREATE INDEX IF NOT EXISTS idx_audit_logs_user_ts ON audit_logs (user_id, timestamp)",
+            "CREATE INDEX IF NOT EXISTS idx_audit_logs_ts ON audit_logs (timestamp)",
+            "CREATE INDEX IF NOT EXISTS idx_accounts_user ON accounts (user_id)"),
+
+        new Migration(3, "Account version column for optimistic concurrency",
+            "ALTER TABLE accounts ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL"),
+
+        new Migration(4, "Running per-account transaction statistics with backfill",
+            """
+                CREATE TABLE IF NOT EXISTS account_stats (
+                    account_id VARCHAR(36) PRIMARY KEY,
+                    txn_count BIGINT NOT NULL,
+                    mean DOUBLE PRECISION NOT NULL,
+                    m2 DOUBLE PRECISION NOT NULL,
+                    FOREIGN KEY (account_id) REFERENCES accounts(id) ON DELETE CASCADE
+                )
+            """,
+            // one-time backfill over both sides of every transaction; m2 = n * population variance
+            """
+                INSERT INTO account_stats (account_id, txn_count, mean, m2)
+                SELECT account_id, COUNT(*), AVG(amount), COALESCE(VAR_POP(amount), 0) * COUNT(*)
+                FROM (
+                    SELECT from_account_id AS account_id, CAST(amount AS DOUBLE PRECISION) AS amount
+                        FROM transactions WHERE from_account_id IS NOT NULL
+                    UNION ALL
+                    SELECT to_account_id, CAST(amount AS DOUBLE PRECISION)
+                        FROM transactions WHERE to_account_id IS NOT NULL
+                            AND (from_account_id IS NULL OR from_account_id <> to_account_id)
+                ) t
+                GROUP BY account_id
+            """),
+
+        new Migration(5, "Balance snapshots for point-in-time balances",
+            """
+                CREATE TABLE IF NOT EXISTS balance_snapshots (
+                    account_id VARCHAR(36) NOT NULL,
+                    taken_at TIMESTAMP NOT NULL,
+                    balance DECIMAL(15, 2) NOT NULL,
+                    PRIMARY KEY (account_id, taken_at),
+                    FOREIGN KEY (account_id) REFERENCES accounts(id) ON DELETE CASCADE
+                )
+            """,
+            """
+                CREATE TABLE IF NOT EXISTS snapshot_runs (
+                    taken_at TIMESTAMP PRIMARY KEY,
+                    accounts_written INT NOT NULL,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """,
+            // snapshot runs aggregate every transaction in a time window
+            "CREATE INDEX IF NOT EXISTS idx_transactions_ts ON transactions (timestamp)"),
+
+        new Migration(6, "Checkpoints for resumable bulk imports",
+            """
+                CREATE TABLE IF NOT EXISTS import_checkpoints (
+                    job_id VARCHAR(100) PRIMARY KEY,
+                    kind VARCHAR(20) NOT NULL,
+                    rows_done BIGINT NOT NULL,
+                    accepted BIGINT NOT NULL,
+                    rejected BIGINT NOT NULL,
+                    completed BOOLEAN NOT NULL,
+                    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """),
+
+        new Migration(7, "Keyset indexes for filtered audit log queries",
+            // descending to match the page order, so H2 reads one page off the index instead of sorting the table
+            "CREATE INDEX IF NOT EXISTS idx_audit_logs_ts_id ON audit_logs (timestamp DESC, id DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_audit_logs_user_ts_id ON audit_logs (user_id, timestamp DESC, id DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_audit_logs_action_ts_id ON audit_logs (action, timestamp DESC, id DESC)"),
+
+        new Migration(8, "Checkpoints for end-of-day interest accrual",
+            """
+                CREATE TABLE IF NOT EXISTS interest_runs (
+                    business_date DATE PRIMARY KEY,
+                    annual_rate DECIMAL(9, 6) NOT NULL,
+                    completed BOOLEAN NOT NULL,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """,
+            """
+                CREATE TABLE IF NOT EXISTS interest_partitions (
+                    business_date DATE NOT NULL,
+                    partition_no INT NOT NULL,
+                    low_id VARCHAR(36) NOT NULL,
+                    high_id VARCHAR(36),
+                    last_id VARCHAR(36) NOT NULL,
+                    accounts BIGINT NOT NULL,
+                    interest DECIMAL(19, 2) NOT NULL,
+                    completed BOOLEAN NOT NULL,
+                    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    PRIMARY KEY (business_date, partition_no),
+                    FOREIGN KEY (business_date) REFERENCES interest_runs(business_date)
+                )
+            """),
+
+        new Migration(9, "Idempotency keys for deposits, withdrawals and transfers",
+            """
+                CREATE TABLE IF NOT EXISTS idempotency_keys (
+                    idempotency_key VARCHAR(100) PRIMARY KEY,
+                    fingerprint VARCHAR(200) NOT NULL,
+                    transaction_id VARCHAR(36),
+                    expires_at TIMESTAMP NOT NULL,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires ON idempotency_keys (expires_at)"),
+
+        // a UUID column is 16 bytes against 36 characters of VARCHAR, in the table and in every index on it
+        new Migration(10, "Binary UUID keys",
+            // interest ranges used '' as the bound below every id, which is not a UUID
+            "UPDATE interest_partitions SET low_id = '00000000-0000-0000-0000-000000000000' WHERE low_id = ''",
+            "UPDATE interest_partitions SET last_id = '00000000-0000-0000-0000-000000000000' WHERE last_id = ''",
+            "ALTER TABLE users ALTER COLUMN id SET DATA TYPE UUID",
+            "ALTER TABLE accounts ALTER COLUMN id SET DATA TYPE UUID",
+            "ALTER TABLE accounts ALTER COLUMN user_id SET DATA TYPE UUID",
+            "ALTER TABLE transactions ALTER COLUMN id SET DATA TYPE UUID",
+            "ALTER TABLE transactions ALTER COLUMN from_account_id SET DATA TYPE UUID",
+            "ALTER TABLE transactions ALTER COLUMN to_account_id SET DATA TYPE UUID",
+            "ALTER TABLE audit_logs ALTER COLUMN id SET DATA TYPE UUID",
+            "ALTER TABLE audit_logs ALTER COLUMN user_id SET DATA TYPE UUID",
+            "ALTER TABLE account_stats ALTER COLUMN account_id SET DATA TYPE UUID",
+            "ALTER TABLE balance_snapshots ALTER COLUMN account_id SET DATA TYPE UUID",
+            "ALTER TABLE interest_partitions ALTER COLUMN low_id SET DATA TYPE UUID",
+            "ALTER TABLE interest_partitions ALTER COLUMN high_id SET DATA TYPE UUID",
+            "ALTER TABLE interest_partitions ALTER COLUMN last_id SET DATA TYPE UUID",
+            "ALTER TABLE idempotency_keys ALTER COLUMN transaction_id SET DATA TYPE UUID"),
+
+        // saga log of transfers between shards: the sender's shard holds DEBITED, COMPLETED or
+        // REFUNDED, the receiver's shard the one-time CREDITED or REJECTED decision
+        new Migration(11, "Cross-shard transfer log",
+            """
+                CREATE TABLE IF NOT EXISTS cross_shard_transfers (
+                    id UUID PRIMARY KEY,
+                    from_account_id UUID NOT NULL,
+                    to_account_id UUID NOT NULL,
+                    amount DECIMAL(15, 2) NOT NULL,
+                    user_id UUID NOT NULL,
+                    description TEXT,
+                    state VARCHAR(20) NOT NULL,
+                    reason VARCHAR(255),
+                    created_at TIMESTAMP NOT NULL,
+                    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+                )
+            """,
+            "CREATE INDEX IF NOT EXISTS idx_cross_shard_transfers_state ON cross_shard_transfers (state, updated_at)"),
+
+        // bumped by every import batch that writes transactions; a snapshot run only commits if
+        // the counter did not move while it read the log
+        new Migration(12, "Correction counter for back-dated imports",
+            """
+                CREATE TABLE IF NOT EXISTS snapshot_corrections (
+                    id INT PRIMARY KEY,
+                    generation BIGINT NOT NULL
+                )
+            """,
+            "INSERT INTO snapshot_corrections (id, generation) VALUES (1, 0)"),
+
+        // V7's keyset indexes lead with the same columns, so V2's audit indexes only cost writes
+        new Migration(13, "Drop audit indexes superseded by the keyset indexes",
+            "DROP INDEX IF EXISTS idx_audit_logs_ts",
+            "DROP INDEX IF EXISTS idx_audit_logs_user_ts"),
+
+        // journaled records are written here on the posting's own connection and replayed into the
+        // journal on open if it never got them; rows are removed once their record is on disk.
+        // TIMESTAMP(9) keeps the nanoseconds the journal's record key has.
+        new Migration(16, "Outbox for journaled transactions",
+            """
+                CREATE TABLE IF NOT EXISTS journal_outbox (
+                    id UUID PRIMARY KEY,
+                    from_account_id UUID,
+                    to_account_id UUID,
+                    amount DECIMAL(15, 2) NOT NULL,
+                    type VARCHAR(20) NOT NULL,
+                    description TEXT,
+                    timestamp TIMESTAMP(9) NOT NULL
+                )
+            """)
+    );
+
+    private static final List<Migration> SHARD_MIGRATIONS = List.of(
+        // a transfer row is stored on the shard of each account it touches, so it can name an
+        // account on another shard, and an account's owner lives on the primary; the services
+        // check that both ends exist instead
+        new Migration(14, "Drop foreign keys that cross shards", SchemaMigrator::dropCrossShardForeignKeys),
+
+        // accounts.account_number is only unique within one shard; numbers are registered on the
+        // primary before the account is saved on its shard. Until sharding is first enabled every
+        // account lives on the primary, so the primary's backfill covers them all.
+        new Migration(15, "Account number registry for sharded accounts",
+            """
+                CREATE TABLE IF NOT EXISTS account_numbers (
+                    account_number VARCHAR(12) PRIMARY KEY,
+                    account_id UUID NOT NULL
+                )
+            """,
+            "INSERT INTO account_numbers (account_number, account_id) SELECT account_number, id FROM accounts")
+    );
+
+    public static void migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS schema_version (
+                    version INT PRIMARY KEY,
+                    description VARCHAR(200) NOT NULL,
+                    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+            """);
+        }
+
+        applyPending(conn, MIGRATIONS);
+    }
+
+    // Migrates a database that is one of a ShardRouter's shards, the primary included
+    public static void migrateShard(Connection conn) throws SQLException {
+        migrate(conn);
+        applyPending(conn, SHARD_MIGRATIONS);
+    }
+
+    // By applied version rather than the highest one, since a shard migration may sit between regular ones
+    private static void applyPending(Connection conn, List<Migration> migrations) throws SQLException {
+        Set<Integer> applied = new HashSet<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM schema_version")) {
+            while (rs.next()) {
+                applied.add(rs.getInt(1));
+            }
+        }
+        for (Migration migration : migrations) {
+            if (!applied.contains(migration.getVersion())) {
+                apply(conn, migration);
+            }
+        }
+    }
+
+    private static void dropCrossShardForeignKeys(Connection conn) throws SQLException {
+        String sql = "SELECT table_name, constraint_name FROM information_schema.table_constraints " +
+                     "WHERE constraint_type = 'FOREIGN KEY' AND table_schema = CURRENT_SCHEMA " +
+                     "AND table_name IN ('TRANSACTIONS', 'ACCOUNTS')";
+        List<String> drops = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                drops.add("ALTER TABLE " + rs.getString(1) + " DROP CONSTRAINT " + rs.getString(2));
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String drop : drops) {
+                stmt.execute(drop);
+            }
+        }
+    }
+
+    public static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).getVersion();
+    }
+
+    private static void apply(Connection conn, Migration migration) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : migration.getStatements()) {
+                stmt.execute(sql);
+            }
+            if (migration.getStep() != null) {
+                migration.getStep().apply(conn);
+            }
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                insert.setInt(1, migration.getVersion());
+                insert.setString(2, migration.getDescription());
+                insert.executeUpdate();
+            }
+            conn.commit();
+            System.out.println("✓ Applied schema migration " + migration);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new SQLException("Migration " + migration + " failed: " + e.getMessage(), e);
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+}
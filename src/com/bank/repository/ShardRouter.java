@@ -0,0 +1,109 @@
+package com.bank.repository;
+
+import com.bank.model.Ids;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads accounts, with their transactions and statistics, over N databases. Shard 0 is the
+ * primary database of DatabaseConnection; shard i > 0 is configured by bank.shard.i.url, .user
+ * and .password and uses the same bank.db.pool.* settings. Users, audit logs, idempotency keys,
+ * the batch job checkpoints and the account number registry are not partitioned and stay on
+ * the primary. Every shard also gets the shard-only migrations of SchemaMigrator.
+ *
+ * An account's shard follows from its id alone: the last 48 bits of an Ids UUID are random,
+ * and they are taken modulo the shard count, so no directory lookup is needed. Changing the
+ * count would move most accounts, so it is fixed for the lifetime of the data: open refuses
+ * to start when any shard, including a primary that was used unsharded, holds an account
+ * that routes elsewhere. There is no rebalancing step; such data has to be moved first.
+ */
+public class ShardRouter implements AutoCloseable {
+    private final List<ConnectionSource> shards;
+    // pools of shards 1..n-1; the primary's pool belongs to DatabaseConnection
+    private final List<ConnectionPool> pools;
+
+    private ShardRouter(List<ConnectionSource> shards, List<ConnectionPool> pools) {
+        this.shards = shards;
+        this.pools = pools;
+    }
+
+    // Opens and migrates shards 1..count-1 next to the primary
+    public static ShardRouter open(int count) throws SQLException {
+        if (count < 1) {
+            throw new IllegalArgumentException("Invalid shard count: " + count);
+        }
+        List<ConnectionSource> shards = new ArrayList<>(count);
+        List<ConnectionPool> pools = new ArrayList<>(count - 1);
+        try {
+            shards.add(ConnectionSource.PRIMARY);
+            for (int i = 1; i < count; i++) {
+                ConnectionPool pool = DatabaseConnection.openPool(
+                    System.getProperty("bank.shard." + i + ".url", "jdbc:h2:mem:banking_shard" + i + ";DB_CLOSE_DELAY=-1"),
+                    System.getProperty("bank.shard." + i + ".user", "sa"),
+                    System.getProperty("bank.shard." + i + ".password", ""));
+                pools.add(pool);
+                shards.add(pool::getConnection);
+            }
+            for (ConnectionSource shard : shards) {
+                try (Connection conn = shard.getConnection()) {
+                    SchemaMigrator.migrateShard(conn);
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                requireOnlyOwnAccounts(shards.get(i), i, count);
+            }
+        } catch (SQLException | RuntimeException e) {
+            pools.forEach(ConnectionPool::close);
+            throw e;
+        }
+        System.out.println("✓ Accounts sharded over " + count + " databases");
+        return new ShardRouter(List.copyOf(shards), pools);
+    }
+
+    // Accounts the router would look for on another shard would silently disappear from every lookup
+    private static void requireOnlyOwnAccounts(ConnectionSource shard, int index, int count) throws SQLException {
+        try (Connection conn = shard.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM accounts")) {
+            while (rs.next()) {
+                String id = rs.getString(1);
+                long owner = Ids.isValid(id) ? Long.parseLong(id, 24, 36, 16) % count : 0;
+                if (owner != index) {
+                    throw new IllegalStateException("Shard " + index + " holds account " + id
+                        + ", which belongs on shard " + owner + " of " + count
+                        + "; move the accounts before changing bank.shards");
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    // Shard of an account id; ids that are not UUIDs match no row anywhere and go to shard 0
+    public int shardOf(String id) {
+        if (shards.size() == 1 || !Ids.isValid(id)) {
+            return 0;
+        }
+        return (int) (Long.parseLong(id, 24, 36, 16) % shards.size());
+    }
+
+    public ConnectionSource shard(int index) {
+        return shards.get(index);
+    }
+
+    public ConnectionSource shardFor(String id) {
+        return shards.get(shardOf(id));
+    }
+
+    public List<ConnectionSource> shards() {
+        return shards;
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(ConnectionPool::close);
+    }
+}
@@ -0,0 +1,147 @@
+package com.bank.repository;
+
+import com.bank.model.*;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * AccountRepository over a ShardRouter. A call naming an account goes to the repository of
+ * that account's shard; findByUserId and countByType ask every shard. Account numbers are
+ * kept unique across shards by the account_numbers registry on the primary. Methods taking a
+ * Connection run on whichever shard the connection came from, so callers borrow it from
+ * ShardRouter.shardFor(accountId). The batch methods of bulk imports and interest accrual
+ * span many accounts on one connection, which no single shard can serve, so both services
+ * refuse a sharded repository when they are constructed and these methods throw.
+ */
+public class ShardedAccountRepository extends AccountRepository {
+    private final ShardRouter router;
+    private final List<AccountRepository> shards = new ArrayList<>();
+
+    // perShard builds the repository of one shard, e.g. a CachingAccountRepository over it
+    public ShardedAccountRepository(ShardRouter router, Function<ConnectionSource, AccountRepository> perShard) {
+        super(router.shard(0));
+        this.router = router;
+        for (ConnectionSource shard : router.shards()) {
+            shards.add(perShard.apply(shard));
+        }
+    }
+
+    private AccountRepository shardFor(String accountId) {
+        return shards.get(router.shardOf(accountId));
+    }
+
+    // The number is registered on the primary first, so a number taken on any shard fails as a duplicate
+    @Override
+    public void save(Account account) throws SQLException {
+        registerNumber(account);
+        try {
+            shardFor(account.getId()).save(account);
+        } catch (SQLException | RuntimeException e) {
+            unregisterNumber(account);
+            throw e;
+        }
+    }
+
+    private void registerNumber(Account account) throws SQLException {
+        String sql = "INSERT INTO account_numbers (account_number, account_id) VALUES (?, ?)";
+
+        try (Connection conn = router.shard(0).getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, account.getAccountNumber());
+            stmt.setString(2, account.getId());
+            stmt.executeUpdate();
+        }
+    }
+
+    private void unregisterNumber(Account account) {
+        String sql = "DELETE FROM account_numbers WHERE account_number = ? AND account_id = ?";
+
+        try (Connection conn = router.shard(0).getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, account.getAccountNumber());
+            stmt.setString(2, account.getId());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            // the number stays taken, which only costs a number
+            System.err.println("Could not release account number " + account.getAccountNumber() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Account findById(String accountId) throws SQLException {
+        return shardFor(accountId).findById(accountId);
+    }
+
+    @Override
+    public List<Account> findByUserId(String userId) throws SQLException {
+        List<Account> accounts = new ArrayList<>();
+        for (AccountRepository shard : shards) {
+            accounts.addAll(shard.findByUserId(userId));
+        }
+        return accounts;
+    }
+
+    @Override
+    public void updateStatus(String accountId, AccountStatus status) throws SQLException {
+        shardFor(accountId).updateStatus(accountId, status);
+    }
+
+    @Override
+    public long countByType(AccountType type) throws SQLException {
+        long count = 0;
+        for (AccountRepository shard : shards) {
+            count += shard.countByType(type);
+        }
+        return count;
+    }
+
+    @Override
+    public void invalidate(String accountId) {
+        shardFor(accountId).invalidate(accountId);
+    }
+
+    @Override
+    public void saveAll(Connection conn, List<Account> accounts) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addToBalances(Connection conn, Map<String, BigDecimal> deltas) {
+        throw unsupported();
+    }
+
+    @Override
+    public Map<String, String> findIdsByAccountNumber(Connection conn, Collection<String> accountNumbers) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<String> sampleIds(AccountType type, int every) {
+        throw unsupported();
+    }
+
+    @Override
+    public String findChunkEnd(Connection conn, AccountType type, String afterId, String upToId, int count) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<AccountBalance> lockPositiveBalances(Connection conn, AccountType type, String afterId,
+                                                     String upToId) {
+        throw unsupported();
+    }
+
+    // these would otherwise run on shard 0 and silently miss every other shard's accounts
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Bulk imports and interest accrual are not supported on sharded accounts");
+    }
+}
@@ -0,0 +1,42 @@
+package com.bank.repository;
+
+import com.bank.model.AccountStats;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// AccountStatsRepository over a ShardRouter; an account's statistics live on the account's shard
+public class ShardedAccountStatsRepository extends AccountStatsRepository {
+    private final ShardRouter router;
+    private final List<AccountStatsRepository> shards = new ArrayList<>();
+
+    public ShardedAccountStatsRepository(ShardRouter router) {
+        super(router.shard(0));
+        this.router = router;
+        for (ConnectionSource shard : router.shards()) {
+            shards.add(new AccountStatsRepository(shard));
+        }
+    }
+
+    @Override
+    public AccountStats findByAccountId(String accountId) throws SQLException {
+        return shards.get(router.shardOf(accountId)).findByAccountId(accountId);
+    }
+
+    @Override
+    public void save(AccountStats stats) throws SQLException {
+        shards.get(router.shardOf(stats.getAccountId())).save(stats);
+    }
+
+    // One batch per shard; a failure on one shard leaves the others' rows written
+    @Override
+    public void saveAll(List<AccountStats> stats) throws SQLException {
+        Map<Integer, List<AccountStats>> byShard = stats.stream()
+            .collect(Collectors.groupingBy(s -> router.shardOf(s.getAccountId())));
+        for (Map.Entry<Integer, List<AccountStats>> shard : byShard.entrySet()) {
+            shards.get(shard.getKey()).saveAll(shard.getValue());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.bank.repository;
+
+import com.bank.model.*;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * TransactionRepository over a ShardRouter. A transaction is stored on the shard of each
+ * account it touches, so a transfer between shards has a copy on both and every account's
+ * history, net flow and stream is answered by its own shard alone. Methods taking a Connection
+ * write to whichever shard the connection came from.
+ */
+public class ShardedTransactionRepository extends TransactionRepository {
+    private final ShardRouter router;
+    private final List<TransactionRepository> shards = new ArrayList<>();
+
+    public ShardedTransactionRepository(ShardRouter router) {
+        super(router.shard(0));
+        this.router = router;
+        for (ConnectionSource shard : router.shards()) {
+            shards.add(new TransactionRepository(shard));
+        }
+    }
+
+    private TransactionRepository shardFor(String accountId) {
+        return shards.get(router.shardOf(accountId));
+    }
+
+    // Not atomic across shards; transfers between shards go through CrossShardTransfers instead
+    @Override
+    public void save(Transaction transaction) throws SQLException {
+        String from = transaction.getFromAccountId();
+        String to = transaction.getToAccountId();
+        if (from != null) {
+            shardFor(from).save(transaction);
+        }
+        if (to != null && (from == null || router.shardOf(to) != router.shardOf(from))) {
+            shardFor(to).save(transaction);
+        }
+    }
+
+    @Override
+    public List<Transaction> findByAccountId(String accountId) throws SQLException {
+        return shardFor(accountId).findByAccountId(accountId);
+    }
+
+    @Override
+    public List<Transaction> findByAccountId(String accountId, LocalDateTime from, LocalDateTime to,
+                                             HistoryCursor after, int limit) throws SQLException {
+        return shardFor(accountId).findByAccountId(accountId, from, to, after, limit);
+    }
+
+    @Override
+    public BigDecimal netFlow(String accountId, LocalDateTime after, LocalDateTime upTo) throws SQLException {
+        return shardFor(accountId).netFlow(accountId, after, upTo);
+    }
+
+    @Override
+    public Map<String, BigDecimal> netFlows(LocalDateTime after, LocalDateTime upTo) throws SQLException {
+        Map<String, BigDecimal> flows = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            for (Map.Entry<String, BigDecimal> flow : shards.get(i).netFlows(after, upTo).entrySet()) {
+                // the copy of a transfer on the other account's shard does not count twice
+                if (router.shardOf(flow.getKey()) == i) {
+                    flows.put(flow.getKey(), flow.getValue());
+                }
+            }
+        }
+        return flows;
+    }
+
+    @Override
+    public Stream<Transaction> streamByAccountId(String accountId, LocalDateTime from, LocalDateTime to,
+                                                 int fetchSize) {
+        return shardFor(accountId).streamByAccountId(accountId, from, to, fetchSize);
+    }
+}
@@ -1,16 +1,57 @@
 package com.bank.repository;
 
 import com.bank.model.*;
+import java.math.BigDecimal;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class TransactionRepository {
+    private static final int BATCH_SIZE = 1000;
+    // open-ended date ranges are bound to these so the keyset query keeps a single SQL shape
+    private static final LocalDateTime MIN_TIMESTAMP = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    // Keyset page over both sides of the account, newest first. Each branch is limited
+    // on its own (account, timestamp, id) index before the two are merged.
+    private static final String PAGE_SQL = """
+        SELECT id, from_account_id, to_account_id, amount, type, description, timestamp FROM (
+            (SELECT id, from_account_id, to_account_id, amount, type, description, timestamp FROM transactions
+                WHERE from_account_id = ? AND timestamp >= ?
+                    AND (timestamp < ? OR (timestamp = ? AND id < ?))
+                ORDER BY timestamp DESC, id DESC LIMIT ?)
+            UNION ALL
+            (SELECT id, from_account_id, to_account_id, amount, type, description, timestamp FROM transactions
+                WHERE to_account_id = ? AND (from_account_id IS NULL OR from_account_id <> ?)
+                    AND timestamp >= ?
+                    AND (timestamp < ? OR (timestamp = ? AND id < ?))
+                ORDER BY timestamp DESC, id DESC LIMIT ?)
+        ) ORDER BY timestamp DESC, id DESC LIMIT ?
+        """;
+    
+    private final ConnectionSource connections;
+    
+    public TransactionRepository() {
+        this(ConnectionSource.PRIMARY);
+    }
+    
+    // A repository over one shard, see ShardedTransactionRepository
+    public TransactionRepository(ConnectionSource connections) {
+        this.connections = connections;
+    }
     
     public void save(Transaction transaction) throws SQLException {
-        String sql = "INSERT INTO transactions (id, from_account_id, to_account_id, amount, type, description) VALUES (?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO transactions (id, from_account_id, to_account_id, amount, type, description, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = connections.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, transaction.getId());
@@ -19,34 +60,292 @@ public class TransactionRepository {
             stmt.setBigDecimal(4, transaction.getAmount());
             stmt.setString(5, transaction.getType().name());
             stmt.setString(6, transaction.getDescription());
+            stmt.setTimestamp(7, Timestamp.valueOf(transaction.getTimestamp()));
             
             stmt.executeUpdate();
         }
     }
     
+    // Inserts on the caller's connection with the transaction's own timestamp, as saveAll does, so the
+    // row matches what listeners and the caller were given; the caller owns the transaction
+    public void save(Connection conn, Transaction transaction) throws SQLException {
+        String sql = "INSERT INTO transactions (id, from_account_id, to_account_id, amount, type, description, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, transaction.getId());
+            stmt.setString(2, transaction.getFromAccountId());
+            stmt.setString(3, transaction.getToAccountId());
+            stmt.setBigDecimal(4, transaction.getAmount());
+            stmt.setString(5, transaction.getType().name());
+            stmt.setString(6, transaction.getDescription());
+            stmt.setTimestamp(7, Timestamp.valueOf(transaction.getTimestamp()));
+            stmt.executeUpdate();
+        }
+    }
+    
+    // Inserts on the caller's connection with JDBC batching; the caller owns the transaction
+    public void saveAll(Connection conn, List<Transaction> transactions) throws SQLException {
+        String sql = "INSERT INTO transactions (id, from_account_id, to_account_id, amount, type, description, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (Transaction transaction : transactions) {
+                stmt.setString(1, transaction.getId());
+                stmt.setString(2, transaction.getFromAccountId());
+                stmt.setString(3, transaction.getToAccountId());
+                stmt.setBigDecimal(4, transaction.getAmount());
+                stmt.setString(5, transaction.getType().name());
+                stmt.setString(6, transaction.getDescription());
+                stmt.setTimestamp(7, Timestamp.valueOf(transaction.getTimestamp()));
+                stmt.addBatch();
+                
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+    
+    // Called once the caller committed the connection it saved rows on; the commit already made them durable
+    public void committed(List<Transaction> transactions) throws SQLException {
+    }
+    
     public List<Transaction> findByAccountId(String accountId) throws SQLException {
-        String sql = "SELECT * FROM transactions WHERE from_account_id = ? OR to_account_id = ? ORDER BY timestamp DESC";
+        // UNION ALL instead of OR so each side can range-scan its (account, timestamp) index;
+        // the second branch skips self-transfers already returned by the first
+        String sql = """
+            SELECT id, from_account_id, to_account_id, amount, type, description, timestamp FROM (
+                SELECT id, from_account_id, to_account_id, amount, type, description, timestamp FROM transactions WHERE from_account_id = ?
+                UNION ALL
+                SELECT id, from_account_id, to_account_id, amount, type, description, timestamp FROM transactions WHERE to_account_id = ?
+                    AND (from_account_id IS NULL OR from_account_id <> ?)
+            ) ORDER BY timestamp DESC
+            """;
         List<Transaction> transactions = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = connections.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, accountId);
             stmt.setString(2, accountId);
+            stmt.setString(3, accountId);
             ResultSet rs = stmt.executeQuery();
             
             while (rs.next()) {
-                transactions.add(new Transaction(
-                    rs.getString("id"),
-                    rs.getString("from_account_id"),
-                    rs.getString("to_account_id"),
-                    rs.getBigDecimal("amount"),
-                    TransactionType.valueOf(rs.getString("type")),
-                    rs.getString("description"),
-                    rs.getTimestamp("timestamp").toLocalDateTime()
-                ));
+                transactions.add(RowMappers.TRANSACTION.map(rs));
             }
         }
         return transactions;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Returns at most {@code limit} transactions of the account in [from, to), newest first,
+     * strictly after {@code after} (or from the newest one when {@code after} is null).
+     * A null bound leaves that side of the range open.
+     */
+    public List<Transaction> findByAccountId(String accountId, LocalDateTime from, LocalDateTime to,
+                                             HistoryCursor after, int limit) throws SQLException {
+        List<Transaction> transactions = new ArrayList<>(Math.min(limit, 1024));
+        
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(PAGE_SQL)) {
+            
+            bindPage(stmt, accountId, from, to, after, limit);
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                transactions.add(RowMappers.TRANSACTION.map(rs));
+            }
+        }
+        return transactions;
+    }
+    
+    // Credits minus debits of the account for transactions with after < timestamp <= upTo; null after means from the start
+    public BigDecimal netFlow(String accountId, LocalDateTime after, LocalDateTime upTo) throws SQLException {
+        String sql = """
+            SELECT COALESCE(SUM(delta), 0) FROM (
+                SELECT amount AS delta FROM transactions
+                    WHERE to_account_id = ? AND timestamp > ? AND timestamp <= ?
+                UNION ALL
+                SELECT -amount FROM transactions
+                    WHERE from_account_id = ? AND timestamp > ? AND timestamp <= ?
+            )
+            """;
+        Timestamp lower = Timestamp.valueOf(after != null ? after : MIN_TIMESTAMP);
+        Timestamp upper = Timestamp.valueOf(upTo);
+        
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, accountId);
+            stmt.setTimestamp(2, lower);
+            stmt.setTimestamp(3, upper);
+            stmt.setString(4, accountId);
+            stmt.setTimestamp(5, lower);
+            stmt.setTimestamp(6, upper);
+            ResultSet rs = stmt.executeQuery();
+            
+            rs.next();
+            return rs.getBigDecimal(1);
+        }
+    }
+    
+    // netFlow for every account that had a transaction in the window
+    public Map<String, BigDecimal> netFlows(LocalDateTime after, LocalDateTime upTo) throws SQLException {
+        String sql = """
+            SELECT account_id, SUM(delta) AS net FROM (
+                SELECT to_account_id AS account_id, amount AS delta FROM transactions
+                    WHERE to_account_id IS NOT NULL AND timestamp > ? AND timestamp <= ?
+                UNION ALL
+                SELECT from_account_id, -amount FROM transactions
+                    WHERE from_account_id IS NOT NULL AND timestamp > ? AND timestamp <= ?
+            ) GROUP BY account_id
+            """;
+        Timestamp lower = Timestamp.valueOf(after != null ? after : MIN_TIMESTAMP);
+        Timestamp upper = Timestamp.valueOf(upTo);
+        Map<String, BigDecimal> flows = new HashMap<>();
+        
+        try (Connection conn = connections.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setTimestamp(1, lower);
+            stmt.setTimestamp(2, upper);
+            stmt.setTimestamp(3, lower);
+            stmt.setTimestamp(4, upper);
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                flows.put(rs.getString("account_id"), rs.getBigDecimal("net"));
+            }
+        }
+        return flows;
+    }
+    
+    /**
+     * Lazily streams the account's transactions in [from, to), newest first. Rows are read
+     * page by page with keyset pagination, so at most one page of {@code fetchSize} rows is
+     * held at a time and no connection is kept between pages. The stream must be closed.
+     */
+    public Stream<Transaction> streamByAccountId(String accountId, LocalDateTime from, LocalDateTime to,
+                                                 int fetchSize) {
+        HistorySpliterator spliterator = new HistorySpliterator(connections, accountId, from, to, fetchSize);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+    
+    private static void bindPage(PreparedStatement stmt, String accountId, LocalDateTime from,
+                                 LocalDateTime to, HistoryCursor after, int limit) throws SQLException {
+        Timestamp lower = Timestamp.valueOf(from != null ? from : MIN_TIMESTAMP);
+        Timestamp upper;
+        String upperId;
+        if (after != null) {
+            upper = Timestamp.valueOf(after.getTimestamp());
+            upperId = after.getTransactionId();
+        } else {
+            // "timestamp = to AND id < MIN" never matches, leaving an exclusive upper bound
+            upper = Timestamp.valueOf(to != null ? to : MAX_TIMESTAMP);
+            upperId = Ids.MIN;
+        }
+        
+        stmt.setString(1, accountId);
+        stmt.setTimestamp(2, lower);
+        stmt.setTimestamp(3, upper);
+        stmt.setTimestamp(4, upper);
+        stmt.setString(5, upperId);
+        stmt.setInt(6, limit);
+        stmt.setString(7, accountId);
+        stmt.setString(8, accountId);
+        stmt.setTimestamp(9, lower);
+        stmt.setTimestamp(10, upper);
+        stmt.setTimestamp(11, upper);
+        stmt.setString(12, upperId);
+        stmt.setInt(13, limit);
+        stmt.setInt(14, limit);
+    }
+    
+    private static final class HistorySpliterator extends Spliterators.AbstractSpliterator<Transaction> {
+        private final ConnectionSource connections;
+        private final String accountId;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final int fetchSize;
+        
+        private Connection conn;
+        private PreparedStatement stmt;
+        private ResultSet rs;
+        private HistoryCursor cursor;
+        private int rowsInPage;
+        private boolean exhausted;
+        
+        HistorySpliterator(ConnectionSource connections, String accountId, LocalDateTime from, LocalDateTime to,
+                           int fetchSize) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.connections = connections;
+            this.accountId = accountId;
+            this.from = from;
+            this.to = to;
+            this.fetchSize = fetchSize;
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super Transaction> action) {
+            try {
+                while (!exhausted) {
+                    if (rs == null) {
+                        openPage();
+                    }
+                    if (rs.next()) {
+                        Transaction transaction = RowMappers.TRANSACTION.map(rs);
+                        cursor = HistoryCursor.after(transaction);
+                        rowsInPage++;
+                        action.accept(transaction);
+                        return true;
+                    }
+                    // a short page means there is nothing left to fetch
+                    exhausted = rowsInPage < fetchSize;
+                    closePage();
+                }
+                return false;
+            } catch (SQLException e) {
+                close();
+                throw new IllegalStateException("Failed to read transaction history: " + e.getMessage(), e);
+            }
+        }
+        
+        private void openPage() throws SQLException {
+            conn = connections.getConnection();
+            stmt = conn.prepareStatement(PAGE_SQL);
+            stmt.setFetchSize(fetchSize);
+            bindPage(stmt, accountId, from, to, cursor, fetchSize);
+            rs = stmt.executeQuery();
+            rowsInPage = 0;
+        }
+        
+        private void closePage() throws SQLException {
+            try {
+                if (rs != null) rs.close();
+                if (stmt != null) stmt.close();
+            } finally {
+                rs = null;
+                stmt = null;
+                if (conn != null) {
+                    Connection c = conn;
+                    conn = null;
+                    c.close();
+                }
+            }
+        }
+        
+        void close() {
+            exhausted = true;
+            try {
+                closePage();
+            } catch (SQLException e) {
+                // stream is being discarded
+            }
+        }
+    }
+}
@@ -2,28 +2,84 @@ package com.bank.repository;
 
 import com.bank.model.*;
 import java.sql.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class UserRepository {
+    private static final int BATCH_SIZE = 1000;
     
     public void save(User user) throws SQLException {
         String sql = "INSERT INTO users (id, name, email, password_hash, salt, role) VALUES (?, ?, ?, ?, ?, ?)";
         
-        Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(sql);
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, user.getId());
+            stmt.setString(2, user.getName());
+            stmt.setString(3, user.getEmail());
+            stmt.setString(4, user.getPasswordHash());
+            stmt.setString(5, user.getSalt());
+            stmt.setString(6, user.getRole().name());
             
-        stmt.setString(1, user.getId());
-        stmt.setString(2, user.getName());
-        stmt.setString(3, user.getEmail());
-        stmt.setString(4, user.getPasswordHash());
-        stmt.setString(5, user.getSalt());
-        stmt.setString(6, user.getRole().name());
+            stmt.executeUpdate();
+        }
+    }
+    
+    // Inserts on the caller's connection with JDBC batching; the caller owns the transaction
+    public void saveAll(Connection conn, List<User> users) throws SQLException {
+        String sql = "INSERT INTO users (id, name, email, password_hash, salt, role) VALUES (?, ?, ?, ?, ?, ?)";
         
-        stmt.executeUpdate();
-        stmt.close();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (User user : users) {
+                stmt.setString(1, user.getId());
+                stmt.setString(2, user.getName());
+                stmt.setString(3, user.getEmail());
+                stmt.setString(4, user.getPasswordHash());
+                stmt.setString(5, user.getSalt());
+                stmt.setString(6, user.getRole().name());
+                stmt.addBatch();
+                
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+    
+    // Which of the given emails are already registered, checked with one array-bound query
+    public Set<String> findExistingEmails(Collection<String> emails) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return new HashSet<>(findIdsByEmail(conn, emails).keySet());
+        }
+    }
+    
+    // email -> user id for the given emails that exist
+    public Map<String, String> findIdsByEmail(Connection conn, Collection<String> emails) throws SQLException {
+        String sql = "SELECT id, email FROM users WHERE email = ANY(?)";
+        Map<String, String> ids = new HashMap<>();
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("VARCHAR", emails.toArray()));
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                ids.put(rs.getString("email"), rs.getString("id"));
+            }
+        }
+        return ids;
     }
     
     public User findByEmail(String email) throws SQLException {
-        String sql = "SELECT * FROM users WHERE email = ?";
+        String sql = "SELECT " + RowMappers.USER_COLUMNS + " FROM users WHERE email = ?";
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -32,21 +88,17 @@ public class UserRepository {
             ResultSet rs = stmt.executeQuery();
             
             if (rs.next()) {
-                return new User(
-                    rs.getString("id"),
-                    rs.getString("name"),
-                    rs.getString("email"),
-                    rs.getString("password_hash"),
-                    rs.getString("salt"),
-                    Role.valueOf(rs.getString("role"))
-                );
+                return RowMappers.USER.map(rs);
             }
         }
         return null;
     }
     
     public User findById(String userId) throws SQLException {
-        String sql = "SELECT * FROM users WHERE id = ?";
+        if (!Ids.isValid(userId)) {
+            return null; // would fail the conversion to the UUID column instead of matching nothing
+        }
+        String sql = "SELECT " + RowMappers.USER_COLUMNS + " FROM users WHERE id = ?";
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -55,14 +107,7 @@ public class UserRepository {
             ResultSet rs = stmt.executeQuery();
             
             if (rs.next()) {
-                return new User(
-                    rs.getString("id"),
-                    rs.getString("name"),
-                    rs.getString("email"),
-                    rs.getString("password_hash"),
-                    rs.getString("salt"),
-                    Role.valueOf(rs.getString("role"))
-                );
+                return RowMappers.USER.map(rs);
             }
         }
         return null;
@@ -0,0 +1,8 @@
+package com.bank.service;
+
+import com.bank.model.Account;
+
+// Notified by AccountService after an account has been created or its status has changed
+public interface AccountListener {
+    void onAccountChanged(Account account);
+}
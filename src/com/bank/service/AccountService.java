@@ -2,20 +2,41 @@ package com.bank.service;
 
 import com.bank.exception.BankingException;
 import com.bank.model.*;
+import com.bank.readmodel.ReadModel;
 import com.bank.repository.*;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class AccountService {
     private final AccountRepository accountRepo;
     private final UserRepository userRepo;
     private final AuditLogRepository auditLogRepo;
+    private final LedgerEngine ledger;
+    private final List<AccountListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile ReadModel readModel;
     
     public AccountService(AccountRepository accountRepo, UserRepository userRepo, 
                           AuditLogRepository auditLogRepo) {
+        this(accountRepo, userRepo, auditLogRepo, null);
+    }
+    
+    public AccountService(AccountRepository accountRepo, UserRepository userRepo, 
+                          AuditLogRepository auditLogRepo, LedgerEngine ledger) {
         this.accountRepo = accountRepo;
         this.userRepo = userRepo;
         this.auditLogRepo = auditLogRepo;
+        this.ledger = ledger;
+    }
+    
+    // Listeners are told about every account once it has been created or its status saved
+    public void addListener(AccountListener listener) {
+        listeners.add(listener);
+    }
+    
+    // Serves account lists from the read model while it is ready; they may trail recent writes
+    public void routeReadsTo(ReadModel readModel) {
+        this.readModel = readModel;
     }
     
     public Account createAccount(String userId, AccountType type) throws BankingException {
@@ -29,6 +50,7 @@ public class AccountService {
             accountRepo.save(account);
             auditLogRepo.save(new AuditLog("ACCOUNT_CREATED", userId, 
                 "Created " + type + " account: " + account.getAccountNumber()));
+            notifyChanged(account);
             
             return account;
         } catch (SQLException e) {
@@ -44,9 +66,13 @@ public class AccountService {
             }
             
             account.setStatus(AccountStatus.FROZEN);
-            accountRepo.update(account);
+            accountRepo.updateStatus(accountId, AccountStatus.FROZEN);
+            if (ledger != null) {
+                ledger.updateStatus(accountId, AccountStatus.FROZEN);
+            }
             auditLogRepo.save(new AuditLog("ACCOUNT_FROZEN", adminUserId, 
                 "Account frozen: " + account.getAccountNumber()));
+            notifyChanged(account);
         } catch (SQLException e) {
             throw new BankingException("Freeze account failed: " + e.getMessage());
         }
@@ -60,9 +86,13 @@ public class AccountService {
             }
             
             account.setStatus(AccountStatus.ACTIVE);
-            accountRepo.update(account);
+            accountRepo.updateStatus(accountId, AccountStatus.ACTIVE);
+            if (ledger != null) {
+                ledger.updateStatus(accountId, AccountStatus.ACTIVE);
+            }
             auditLogRepo.save(new AuditLog("ACCOUNT_ACTIVATED", adminUserId, 
                 "Account activated: " + account.getAccountNumber()));
+            notifyChanged(account);
         } catch (SQLException e) {
             throw new BankingException("Activate account failed: " + e.getMessage());
         }
@@ -70,9 +100,28 @@ public class AccountService {
     
     public List<Account> getUserAccounts(String userId) throws BankingException {
         try {
+            ReadModel reads = readModel;
+            if (reads != null && reads.isReady()) {
+                List<Account> accounts = reads.findAccountsByUserId(userId);
+                // an empty list may just mean the user's first account is not projected yet
+                if (!accounts.isEmpty()) {
+                    return accounts;
+                }
+            }
             return accountRepo.findByUserId(userId);
         } catch (SQLException e) {
             throw new BankingException("Failed to retrieve accounts: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+    
+    private void notifyChanged(Account account) {
+        for (AccountListener listener : listeners) {
+            try {
+                listener.onAccountChanged(account);
+            } catch (RuntimeException e) {
+                // the change is already saved; a listener must not undo that
+                System.err.println("Account listener failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.bank.service;
+
+import com.bank.exception.BankingException;
+import com.bank.model.*;
+import com.bank.readmodel.ReadModel;
+import com.bank.repository.AuditLogRepository;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+public class AuditService {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private final AuditLogRepository auditLogRepo;
+    private volatile ReadModel readModel;
+
+    public AuditService(AuditLogRepository auditLogRepo) {
+        this.auditLogRepo = auditLogRepo;
+    }
+
+    // Serves latest() from the read model while it is ready; it may trail recent events
+    public void routeReadsTo(ReadModel readModel) {
+        this.readModel = readModel;
+    }
+
+    // The most recent events, newest first
+    public List<AuditLog> latest(int count) throws BankingException {
+        if (count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new BankingException("Count must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        try {
+            ReadModel reads = readModel;
+            if (reads != null && reads.isReady()) {
+                return reads.latestAuditLogs(count);
+            }
+            return auditLogRepo.latest(count);
+        } catch (SQLException e) {
+            throw new BankingException("Failed to retrieve audit logs: " + e.getMessage());
+        }
+    }
+
+    // Cursor-based page of matching events; pass the previous page's next cursor to continue
+    public AuditLogPage search(AuditLogQuery query, AuditCursor cursor, int pageSize) throws BankingException {
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new BankingException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        try {
+            // one extra row tells us whether another page exists
+            List<AuditLog> rows = auditLogRepo.find(query, cursor, pageSize + 1);
+            if (rows.size() <= pageSize) {
+                return new AuditLogPage(rows, null);
+            }
+            List<AuditLog> page = rows.subList(0, pageSize);
+            return new AuditLogPage(page, AuditCursor.after(page.get(pageSize - 1)));
+        } catch (SQLException e) {
+            throw new BankingException("Failed to retrieve audit logs: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes every matching event to a gzip-compressed NDJSON file, one JSON object per
+     * line, newest first. Rows are streamed a page at a time, so memory use does not grow
+     * with the size of the export. Returns the number of events written; a failed export
+     * deletes its partial file.
+     */
+    public long exportNdjson(AuditLogQuery query, Path file) throws BankingException {
+        long written = 0;
+        try (Stream<AuditLog> logs = auditLogRepo.stream(query, EXPORT_FETCH_SIZE);
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                 new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024), StandardCharsets.UTF_8))) {
+            StringBuilder line = new StringBuilder(256);
+            for (Iterator<AuditLog> it = logs.iterator(); it.hasNext(); ) {
+                AuditLog log = it.next();
+                line.setLength(0);
+                line.append("{\"id\":");
+                appendJson(line, log.getId());
+                line.append(",\"action\":");
+                appendJson(line, log.getAction());
+                line.append(",\"userId\":");
+                appendJson(line, log.getUserId());
+                line.append(",\"details\":");
+                appendJson(line, log.getDetails());
+                line.append(",\"timestamp\":");
+                appendJson(line, log.getTimestamp().toString());
+                line.append("}\n");
+                out.append(line);
+                written++;
+            }
+        } catch (IOException | UncheckedIOException | IllegalStateException e) {
+            deleteQuietly(file);
+            throw new BankingException("Audit export failed: " + e.getMessage());
+        }
+        return written;
+    }
+
+    private static void appendJson(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // the export error is the one worth reporting
+        }
+    }
+}
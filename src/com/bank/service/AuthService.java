@@ -3,15 +3,27 @@ package com.bank.service;
 import com.bank.exception.BankingException;
 import com.bank.model.*;
 import com.bank.repository.*;
-import java.sql.SQLException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class AuthService {
+    private static final int CREDENTIAL_CACHE_SIZE = 10_000;
+    
     private final UserRepository userRepo;
     private final AuditLogRepository auditLogRepo;
+    private final CredentialVerifier credentials;
     
     public AuthService(UserRepository userRepo, AuditLogRepository auditLogRepo) {
+        this(userRepo, auditLogRepo, new CredentialVerifier(userRepo, CREDENTIAL_CACHE_SIZE));
+    }
+    
+    public AuthService(UserRepository userRepo, AuditLogRepository auditLogRepo, CredentialVerifier credentials) {
         this.userRepo = userRepo;
         this.auditLogRepo = auditLogRepo;
+        this.credentials = credentials;
     }
     
     public User register(String name, String email, String password) throws BankingException {
@@ -22,6 +34,7 @@ public class AuthService {
             
             User user = new User(name, email, password, Role.USER);
             userRepo.save(user);
+            credentials.remember(user);
             
             auditLogRepo.save(new AuditLog("USER_REGISTERED", user.getId(), 
                 "New user registered: " + email));
@@ -34,8 +47,8 @@ public class AuthService {
     
     public User login(String email, String password) throws BankingException {
         try {
-            User user = userRepo.findByEmail(email);
-            if (user == null || !user.verifyPassword(password)) {
+            User user = credentials.verify(email, password);
+            if (user == null) {
                 throw new BankingException("Invalid credentials");
             }
             
@@ -46,4 +59,64 @@ public class AuthService {
             throw new BankingException("Login failed: " + e.getMessage());
         }
     }
+    
+    /**
+     * Registers many users in one transaction with batched inserts. The batch is
+     * all-or-nothing: an email already registered, or repeated within the batch,
+     * rejects the whole call before anything is written.
+     */
+    public List<User> registerAll(List<UserRegistration> registrations) throws BankingException {
+        Set<String> emails = new HashSet<>();
+        List<String> duplicates = new ArrayList<>();
+        for (UserRegistration registration : registrations) {
+            if (!emails.add(registration.getEmail())) {
+                duplicates.add(registration.getEmail());
+            }
+        }
+        
+        Connection conn = null;
+        try {
+            duplicates.addAll(userRepo.findExistingEmails(emails));
+            if (!duplicates.isEmpty()) {
+                throw new BankingException("Email already registered: " + String.join(", ", duplicates));
+            }
+            
+            List<User> users = new ArrayList<>(registrations.size());
+            List<AuditLog> logs = new ArrayList<>(registrations.size());
+            for (UserRegistration registration : registrations) {
+                User user = new User(registration.getName(), registration.getEmail(),
+                    registration.getPassword(), Role.USER);
+                users.add(user);
+                logs.add(new AuditLog("USER_REGISTERED", user.getId(), 
+                    "New user registered: " + user.getEmail()));
+            }
+            
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            userRepo.saveAll(conn, users);
+            auditLogRepo.saveAll(conn, logs);
+            conn.commit();
+            
+            users.forEach(credentials::remember);
+            return users;
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            throw new BankingException("Registration failed: " + e.getMessage());
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    // Connection already closed, ignore
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package com.bank.service;
+
+import com.bank.exception.BankingException;
+import com.bank.model.*;
+import com.bank.repository.*;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-in-time balances. Snapshot runs fold the transaction log into per-account
+ * checkpoints, so balanceAsOf only replays the transactions after the nearest one.
+ *
+ * Checkpoints are built from transactions rather than accounts.balance so they always
+ * agree with the log that balanceAsOf replays. A run stops settleLag before now, because
+ * a transaction's timestamp is taken before its commit and a run must not close a window
+ * that can still receive rows. Imports may still write older rows; they correct the
+ * checkpoints themselves and make a run that overlapped them start over.
+ */
+public class BalanceSnapshotService implements AutoCloseable {
+    private final BalanceSnapshotRepository snapshotRepo;
+    private final TransactionRepository transactionRepo;
+    private final AccountRepository accountRepo;
+    private final Duration settleLag;
+    private ScheduledExecutorService scheduler;
+
+    public BalanceSnapshotService(BalanceSnapshotRepository snapshotRepo, TransactionRepository transactionRepo,
+                                  AccountRepository accountRepo, Duration settleLag) {
+        this.snapshotRepo = snapshotRepo;
+        this.transactionRepo = transactionRepo;
+        this.accountRepo = accountRepo;
+        this.settleLag = settleLag;
+    }
+
+    // Balance including every transaction with timestamp <= at
+    public BigDecimal balanceAsOf(String accountId, LocalDateTime at) throws BankingException {
+        try {
+            if (accountRepo.findById(accountId) == null) {
+                throw new BankingException("Account not found");
+            }
+            BalanceSnapshot snapshot = snapshotRepo.findLatest(accountId, at);
+            if (snapshot == null) {
+                return transactionRepo.netFlow(accountId, null, at); // accounts open with a zero balance
+            }
+            return snapshot.getBalance().add(transactionRepo.netFlow(accountId, snapshot.getTakenAt(), at));
+        } catch (SQLException e) {
+            throw new BankingException("Balance lookup failed: " + e.getMessage());
+        }
+    }
+
+    // Checkpoints every account that had transactions since the previous run; returns how many
+    public synchronized int takeSnapshot() throws BankingException {
+        // the TIMESTAMP column keeps microseconds, so the stored cut-off must too
+        LocalDateTime cut = LocalDateTime.now().minus(settleLag).truncatedTo(ChronoUnit.MICROS);
+        Connection conn = null;
+        try {
+            long generation = snapshotRepo.findGeneration();
+            LocalDateTime previous = snapshotRepo.findLatestRun();
+            if (previous != null && !cut.isAfter(previous)) {
+                return 0;
+            }
+            Map<String, BigDecimal> flows = transactionRepo.netFlows(previous, cut);
+
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            Map<String, BigDecimal> balances = previous != null
+                ? snapshotRepo.findLatestBalances(conn, flows.keySet(), previous)
+                : new HashMap<>(flows.size() * 2);
+            for (Map.Entry<String, BigDecimal> flow : flows.entrySet()) {
+                balances.merge(flow.getKey(), flow.getValue(), BigDecimal::add);
+            }
+            snapshotRepo.saveRun(conn, cut, balances);
+            if (!snapshotRepo.claimGeneration(conn, generation)) {
+                conn.rollback(); // an import wrote into the windows read above; the next run retries
+                return 0;
+            }
+            conn.commit();
+            return balances.size();
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            throw new BankingException("Balance snapshot failed: " + e.getMessage());
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    // Connection already closed, ignore
+                }
+            }
+        }
+    }
+
+    // Runs takeSnapshot every period on a background thread until close()
+    public synchronized void start(Duration period) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "balance-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                takeSnapshot();
+            } catch (BankingException e) {
+                System.err.println(e.getMessage());
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = scheduler;
+            scheduler = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
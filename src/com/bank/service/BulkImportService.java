@@ -0,0 +1,547 @@
+package com.bank.service;
+
+import com.bank.exception.BankingException;
+import com.bank.model.*;
+import com.bank.repository.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Bulk loader for data migrated from another core system. CSV files are streamed in
+ * batches of batchSize rows; each batch is validated with set-based lookups and written
+ * with JDBC batches in one transaction that also advances the job's checkpoint, so
+ * re-running a failed job with the same id resumes after the last committed batch.
+ *
+ * Rows that fail validation (or that the database rejects when a batch is retried row
+ * by row) are appended to the rejects file with their row number and reason. Instead of
+ * one audit row per record, each job writes a single BULK_IMPORT summary when it completes.
+ *
+ * File layouts, by header name (column order is free):
+ *   users:        name, email, and password or password_hash + salt; optional id, role
+ *   accounts:     user_email, account_number, type; optional id, balance, status, opened_at
+ *   transactions: type, amount, from_account and/or to_account (account numbers);
+ *                 optional id, description, timestamp
+ *
+ * An account's balance column is its opening balance and is recorded as an opening
+ * DEPOSIT, so balances always equal the sum of the transaction log. Imported transactions
+ * move balances like live ones, but are historical: account status and overdraft checks
+ * are not applied, and listeners (fraud statistics) are not notified. Rows dated at or
+ * before the latest balance snapshot run are folded into its checkpoints in the same commit.
+ * Balances are written directly, so the service cannot be constructed beside a LedgerEngine.
+ */
+public class BulkImportService {
+    private static final String USERS = "USERS";
+    private static final String ACCOUNTS = "ACCOUNTS";
+    private static final String TRANSACTIONS = "TRANSACTIONS";
+    private static final int MAX_ACCOUNT_NUMBER = 12;
+    private static final int MAX_AMOUNT_DIGITS = 13; // DECIMAL(15, 2)
+
+    private final UserRepository userRepo;
+    private final AccountRepository accountRepo;
+    private final TransactionRepository transactionRepo;
+    private final AuditLogRepository auditLogRepo;
+    private final ImportCheckpointRepository checkpointRepo;
+    private final BalanceSnapshotRepository snapshotRepo;
+    private final int batchSize;
+
+    public BulkImportService(UserRepository userRepo, AccountRepository accountRepo,
+                             TransactionRepository transactionRepo, AuditLogRepository auditLogRepo,
+                             ImportCheckpointRepository checkpointRepo, LedgerEngine ledger, int batchSize) {
+        this(userRepo, accountRepo, transactionRepo, auditLogRepo, checkpointRepo,
+            new BalanceSnapshotRepository(), ledger, batchSize);
+    }
+
+    // ledger is the engine the other services post through, or null; imports refuse to run beside one
+    public BulkImportService(UserRepository userRepo, AccountRepository accountRepo,
+                             TransactionRepository transactionRepo, AuditLogRepository auditLogRepo,
+                             ImportCheckpointRepository checkpointRepo, BalanceSnapshotRepository snapshotRepo,
+                             LedgerEngine ledger, int batchSize) {
+        if (ledger != null) {
+            // the ledger checks postings against its in-memory balances, which would never see the imported ones
+            throw new IllegalStateException("Bulk imports write balances directly and cannot run while the ledger holds them");
+        }
+        if (accountRepo instanceof ShardedAccountRepository) {
+            // a batch is written on one connection together with the job's checkpoint
+            throw new IllegalStateException("Bulk imports cannot run on sharded accounts");
+        }
+        this.userRepo = userRepo;
+        this.accountRepo = accountRepo;
+        this.transactionRepo = transactionRepo;
+        this.auditLogRepo = auditLogRepo;
+        this.checkpointRepo = checkpointRepo;
+        this.snapshotRepo = snapshotRepo;
+        this.batchSize = batchSize;
+    }
+
+    public ImportReport importUsers(String jobId, Path csv, Path rejects, String operatorUserId)
+            throws BankingException {
+        return run(new Job(jobId, USERS, rejects, this::writeUsers), csv, operatorUserId,
+            "name", "email");
+    }
+
+    public ImportReport importAccounts(String jobId, Path csv, Path rejects, String operatorUserId)
+            throws BankingException {
+        return run(new Job(jobId, ACCOUNTS, rejects, this::writeAccounts), csv, operatorUserId,
+            "user_email", "account_number", "type");
+    }
+
+    public ImportReport importTransactions(String jobId, Path csv, Path rejects, String operatorUserId)
+            throws BankingException {
+        return run(new Job(jobId, TRANSACTIONS, rejects, this::writeTransactions), csv, operatorUserId,
+            "type", "amount");
+    }
+
+    // Validates a batch, writes the accepted rows on conn and returns the transactions it saved
+    @FunctionalInterface
+    private interface BatchWriter {
+        List<Transaction> write(Connection conn, List<Row> batch, List<Row> rejected) throws SQLException;
+    }
+
+    private static final class Job {
+        private final String id;
+        private final String kind;
+        private final Path rejects;
+        private final BatchWriter writer;
+        private BufferedWriter report;
+        private long rowsDone;
+        private long accepted;
+        private long rejected;
+
+        Job(String id, String kind, Path rejects, BatchWriter writer) {
+            this.id = id;
+            this.kind = kind;
+            this.rejects = rejects;
+            this.writer = writer;
+        }
+    }
+
+    private static final class Row {
+        private final long number;
+        private final String[] fields;
+        private final Map<String, Integer> columns;
+        private String reason;
+
+        Row(long number, String[] fields, Map<String, Integer> columns) {
+            this.number = number;
+            this.fields = fields;
+            this.columns = columns;
+        }
+
+        // trimmed value of the column, null when the column is absent or blank
+        String get(String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= fields.length) {
+                return null;
+            }
+            String value = fields[index].trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+
+    private ImportReport run(Job job, Path csv, String operatorUserId, String... required) throws BankingException {
+        long started = System.nanoTime();
+        try {
+            ImportCheckpoint checkpoint = checkpointRepo.findByJobId(job.id);
+            if (checkpoint != null && !checkpoint.getKind().equals(job.kind)) {
+                throw new BankingException("Import job " + job.id + " is a " + checkpoint.getKind() + " import");
+            }
+            if (checkpoint != null && checkpoint.isCompleted()) {
+                return new ImportReport(job.id, job.kind, checkpoint.getRowsDone(), checkpoint.getAccepted(),
+                    checkpoint.getRejected(), job.rejects, 0);
+            }
+            long resumedAt = 0;
+            if (checkpoint != null) {
+                resumedAt = job.rowsDone = checkpoint.getRowsDone();
+                job.accepted = checkpoint.getAccepted();
+                job.rejected = checkpoint.getRejected();
+            }
+
+            try (CsvReader reader = new CsvReader(Files.newBufferedReader(csv, StandardCharsets.UTF_8));
+                 BufferedWriter report = resumedAt > 0
+                     ? Files.newBufferedWriter(job.rejects, StandardCharsets.UTF_8,
+                         StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                     : Files.newBufferedWriter(job.rejects, StandardCharsets.UTF_8)) {
+                job.report = report;
+                String[] header = reader.next();
+                if (header == null) {
+                    throw new BankingException("Import file is empty: " + csv);
+                }
+                header[0] = header[0].replace("\uFEFF", ""); // a UTF-8 byte order mark would stick to the first column
+                Map<String, Integer> columns = columns(header, required);
+                if (resumedAt == 0) {
+                    report.write("row,reason," + String.join(",", header));
+                    report.newLine();
+                }
+
+                // rows committed by an earlier run of this job
+                for (long skipped = 0; skipped < resumedAt; skipped++) {
+                    if (reader.next() == null) {
+                        break;
+                    }
+                }
+
+                List<Row> batch = new ArrayList<>(batchSize);
+                long number = resumedAt;
+                for (String[] fields = reader.next(); fields != null; fields = reader.next()) {
+                    batch.add(new Row(++number, fields, columns));
+                    if (batch.size() == batchSize) {
+                        commitOrSplit(job, batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    commitOrSplit(job, batch);
+                }
+            }
+
+            complete(job, operatorUserId);
+            return new ImportReport(job.id, job.kind, resumedAt, job.accepted, job.rejected, job.rejects,
+                (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException e) {
+            throw new BankingException("Import failed: " + e.getMessage());
+        } catch (SQLException e) {
+            throw new BankingException("Import failed: " + e.getMessage());
+        }
+    }
+
+    // A batch the database refuses is retried row by row, so one bad row cannot stall the job
+    private void commitOrSplit(Job job, List<Row> batch) throws SQLException, IOException {
+        try {
+            commit(job, batch, false);
+            return;
+        } catch (SQLException e) {
+            if (batch.size() == 1) {
+                batch.get(0).reason = "Rejected by database: " + e.getMessage().lines().findFirst().orElse("");
+                commit(job, batch, true);
+                return;
+            }
+        }
+        for (Row row : batch) {
+            commitOrSplit(job, List.of(row));
+        }
+    }
+
+    private void commit(Job job, List<Row> batch, boolean allRejected) throws SQLException, IOException {
+        List<Row> rejected = new ArrayList<>();
+        List<Transaction> saved = List.of();
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            if (allRejected) {
+                rejected.addAll(batch);
+            } else {
+                saved = job.writer.write(conn, batch, rejected);
+            }
+            if (!saved.isEmpty()) {
+                // imported rows are usually older than the latest snapshot run
+                snapshotRepo.correct(conn, saved);
+            }
+            long accepted = job.accepted + batch.size() - rejected.size();
+            long rejectedTotal = job.rejected + rejected.size();
+            checkpointRepo.save(conn, new ImportCheckpoint(job.id, job.kind, job.rowsDone + batch.size(),
+                accepted, rejectedTotal, false));
+
+            // reported before the commit: a crash here repeats these lines on resume rather than losing them
+            rejected.sort(Comparator.comparingLong(row -> row.number));
+            for (Row row : rejected) {
+                job.report.write(row.number + "," + CsvReader.quote(row.reason));
+                for (String field : row.fields) {
+                    job.report.write("," + CsvReader.quote(field));
+                }
+                job.report.newLine();
+            }
+            job.report.flush();
+
+            conn.commit();
+            job.rowsDone += batch.size();
+            job.accepted = accepted;
+            job.rejected = rejectedTotal;
+        } catch (SQLException e) {
+            if (conn != null) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+                conn.close();
+            }
+        }
+        if (!saved.isEmpty()) {
+            transactionRepo.committed(saved);
+            snapshotRepo.bumpGeneration(); // a run may have read the log before a journal saw these rows
+        }
+        for (Transaction transaction : saved) {
+            if (transaction.getFromAccountId() != null) {
+                accountRepo.invalidate(transaction.getFromAccountId());
+            }
+            if (transaction.getToAccountId() != null) {
+                accountRepo.invalidate(transaction.getToAccountId());
+            }
+        }
+    }
+
+    // Marks the job done and writes its deferred audit summary in one transaction
+    private void complete(Job job, String operatorUserId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                checkpointRepo.save(conn, new ImportCheckpoint(job.id, job.kind, job.rowsDone,
+                    job.accepted, job.rejected, true));
+                auditLogRepo.saveAll(conn, List.of(new AuditLog("BULK_IMPORT", operatorUserId,
+                    String.format("%s import %s: %d accepted, %d rejected", job.kind, job.id,
+                        job.accepted, job.rejected))));
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private List<Transaction> writeUsers(Connection conn, List<Row> batch, List<Row> rejected) throws SQLException {
+        Map<String, Row> byEmail = new LinkedHashMap<>();
+        for (Row row : batch) {
+            String email = row.get("email");
+            if (row.get("name") == null) {
+                reject(row, "Name is required", rejected);
+            } else if (email == null || email.indexOf('@') < 1) {
+                reject(row, "Invalid email", rejected);
+            } else if (row.get("password") == null && (row.get("password_hash") == null || row.get("salt") == null)) {
+                reject(row, "Password or password_hash and salt required", rejected);
+            } else if (invalidId(row)) {
+                reject(row, "Invalid id", rejected);
+            } else if (invalidEnum(Role.class, row.get("role"))) {
+                reject(row, "Unknown role", rejected);
+            } else if (byEmail.putIfAbsent(email, row) != null) {
+                reject(row, "Duplicate email in file", rejected);
+            }
+        }
+
+        Map<String, String> existing = byEmail.isEmpty() ? Map.of() : userRepo.findIdsByEmail(conn, byEmail.keySet());
+        List<User> users = new ArrayList<>(byEmail.size());
+        for (Row row : byEmail.values()) {
+            if (existing.containsKey(row.get("email"))) {
+                reject(row, "Email already registered", rejected);
+                continue;
+            }
+            String salt = row.get("salt");
+            String hash = row.get("password_hash");
+            if (row.get("password") != null) {
+                byte[] saltBytes = PasswordHasher.newSalt();
+                salt = Base64.getEncoder().encodeToString(saltBytes);
+                hash = Base64.getEncoder().encodeToString(PasswordHasher.hash(saltBytes, row.get("password")));
+            }
+            users.add(new User(idOrNew(row), row.get("name"), row.get("email"), hash, salt,
+                row.get("role") != null ? Role.valueOf(row.get("role").toUpperCase()) : Role.USER));
+        }
+        userRepo.saveAll(conn, users);
+        return List.of();
+    }
+
+    private List<Transaction> writeAccounts(Connection conn, List<Row> batch, List<Row> rejected) throws SQLException {
+        Map<String, Row> byNumber = new LinkedHashMap<>();
+        Set<String> emails = new HashSet<>();
+        for (Row row : batch) {
+            String number = row.get("account_number");
+            String reason = null;
+            if (number == null || number.length() > MAX_ACCOUNT_NUMBER) {
+                reason = "Invalid account number";
+            } else if (row.get("user_email") == null) {
+                reason = "user_email is required";
+            } else if (invalidEnum(AccountType.class, row.get("type"))) {
+                reason = "Unknown account type";
+            } else if (invalidEnum(AccountStatus.class, row.get("status"))) {
+                reason = "Unknown account status";
+            } else if (invalidId(row)) {
+                reason = "Invalid id";
+            } else if (row.get("balance") != null && invalidAmount(row.get("balance"), true)) {
+                reason = "Invalid balance";
+            } else if (row.get("opened_at") != null && parseTimestamp(row.get("opened_at")) == null) {
+                reason = "Invalid opened_at";
+            } else if (byNumber.putIfAbsent(number, row) != null) {
+                reason = "Duplicate account number in file";
+            }
+            if (reason != null) {
+                reject(row, reason, rejected);
+            } else {
+                emails.add(row.get("user_email"));
+            }
+        }
+
+        Map<String, String> userIds = emails.isEmpty() ? Map.of() : userRepo.findIdsByEmail(conn, emails);
+        Map<String, String> existing = byNumber.isEmpty() ? Map.of() : accountRepo.findIdsByAccountNumber(conn, byNumber.keySet());
+        List<Account> accounts = new ArrayList<>(byNumber.size());
+        List<Transaction> openings = new ArrayList<>();
+        for (Row row : byNumber.values()) {
+            String userId = userIds.get(row.get("user_email"));
+            if (userId == null) {
+                reject(row, "Unknown user " + row.get("user_email"), rejected);
+                continue;
+            }
+            if (existing.containsKey(row.get("account_number"))) {
+                reject(row, "Account number already exists", rejected);
+                continue;
+            }
+            BigDecimal balance = row.get("balance") != null ? new BigDecimal(row.get("balance")) : BigDecimal.ZERO;
+            Account account = new Account(idOrNew(row), userId, row.get("account_number"),
+                AccountType.valueOf(row.get("type").toUpperCase()), balance,
+                row.get("status") != null ? AccountStatus.valueOf(row.get("status").toUpperCase()) : AccountStatus.ACTIVE);
+            accounts.add(account);
+            if (balance.signum() > 0) {
+                LocalDateTime openedAt = row.get("opened_at") != null ? parseTimestamp(row.get("opened_at")) : LocalDateTime.now();
+                openings.add(new Transaction(Ids.next(), null, account.getId(), balance,
+                    TransactionType.DEPOSIT, "Opening balance (import)", openedAt));
+            }
+        }
+        accountRepo.saveAll(conn, accounts);
+        transactionRepo.saveAll(conn, openings);
+        return openings;
+    }
+
+    private List<Transaction> writeTransactions(Connection conn, List<Row> batch, List<Row> rejected) throws SQLException {
+        List<Row> valid = new ArrayList<>(batch.size());
+        Set<String> numbers = new HashSet<>();
+        for (Row row : batch) {
+            String reason = null;
+            String from = row.get("from_account");
+            String to = row.get("to_account");
+            if (invalidEnum(TransactionType.class, row.get("type"))) {
+                reason = "Unknown transaction type";
+            } else if (invalidAmount(row.get("amount"), false)) {
+                reason = "Invalid amount";
+            } else if (invalidId(row)) {
+                reason = "Invalid id";
+            } else if (row.get("timestamp") != null && parseTimestamp(row.get("timestamp")) == null) {
+                reason = "Invalid timestamp";
+            } else {
+                switch (TransactionType.valueOf(row.get("type").toUpperCase())) {
+                    case DEPOSIT -> reason = to == null || from != null ? "Deposit needs only to_account" : null;
+                    case WITHDRAWAL -> reason = from == null || to != null ? "Withdrawal needs only from_account" : null;
+                    case TRANSFER -> reason = from == null || to == null ? "Transfer needs from_account and to_account" : null;
+                    case INTEREST -> reason = to == null || from != null ? "Interest needs only to_account" : null;
+                }
+            }
+            if (reason != null) {
+                reject(row, reason, rejected);
+                continue;
+            }
+            valid.add(row);
+            if (from != null) {
+                numbers.add(from);
+            }
+            if (to != null) {
+                numbers.add(to);
+            }
+        }
+
+        Map<String, String> accountIds = numbers.isEmpty() ? Map.of() : accountRepo.findIdsByAccountNumber(conn, numbers);
+        List<Transaction> transactions = new ArrayList<>(valid.size());
+        Map<String, BigDecimal> deltas = new HashMap<>();
+        for (Row row : valid) {
+            String from = row.get("from_account") != null ? accountIds.get(row.get("from_account")) : null;
+            String to = row.get("to_account") != null ? accountIds.get(row.get("to_account")) : null;
+            if ((row.get("from_account") != null && from == null) || (row.get("to_account") != null && to == null)) {
+                reject(row, "Unknown account", rejected);
+                continue;
+            }
+            BigDecimal amount = new BigDecimal(row.get("amount"));
+            TransactionType type = TransactionType.valueOf(row.get("type").toUpperCase());
+            String description = row.get("description") != null ? row.get("description") : defaultDescription(type);
+            LocalDateTime timestamp = row.get("timestamp") != null ? parseTimestamp(row.get("timestamp")) : LocalDateTime.now();
+            transactions.add(new Transaction(idOrNew(row), from, to, amount, type, description, timestamp));
+            if (from != null) {
+                deltas.merge(from, amount.negate(), BigDecimal::add);
+            }
+            if (to != null) {
+                deltas.merge(to, amount, BigDecimal::add);
+            }
+        }
+        accountRepo.addToBalances(conn, deltas);
+        transactionRepo.saveAll(conn, transactions);
+        return transactions;
+    }
+
+    private static Map<String, Integer> columns(String[] header, String... required) throws BankingException {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            columns.put(header[i].trim().toLowerCase(), i);
+        }
+        for (String column : required) {
+            if (!columns.containsKey(column)) {
+                throw new BankingException("Import file is missing column " + column);
+            }
+        }
+        return columns;
+    }
+
+    private static void reject(Row row, String reason, List<Row> rejected) {
+        row.reason = reason;
+        rejected.add(row);
+    }
+
+    private static String defaultDescription(TransactionType type) {
+        return switch (type) {
+            case DEPOSIT -> "Deposit to account";
+            case WITHDRAWAL -> "Withdrawal from account";
+            case TRANSFER -> "Transfer (import)";
+            case INTEREST -> "Interest credit (import)";
+        };
+    }
+
+    private static <E extends Enum<E>> boolean invalidEnum(Class<E> type, String value) {
+        if (value == null) {
+            return false; // optional columns fall back to a default; required ones are checked by the caller
+        }
+        try {
+            Enum.valueOf(type, value.toUpperCase());
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private static boolean invalidAmount(String value, boolean zeroAllowed) {
+        if (value == null) {
+            return true;
+        }
+        try {
+            BigDecimal amount = new BigDecimal(value);
+            return amount.scale() > 2 || amount.precision() - amount.scale() > MAX_AMOUNT_DIGITS
+                || amount.signum() < 0 || (!zeroAllowed && amount.signum() == 0);
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    // ids are stored in UUID columns, so a supplied id must be a UUID in its 36-character form
+    private static boolean invalidId(Row row) {
+        String id = row.get("id");
+        return id != null && !Ids.isValid(id);
+    }
+
+    private static String idOrNew(Row row) {
+        return row.get("id") != null ? row.get("id").toLowerCase() : Ids.next();
+    }
+
+    // ISO-8601 local date-time, with either 'T' or a space between date and time
+    private static LocalDateTime parseTimestamp(String value) {
+        try {
+            return LocalDateTime.parse(value.replace(' ', 'T'));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
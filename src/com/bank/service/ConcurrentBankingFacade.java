@@ -0,0 +1,168 @@
+package com.bank.service;
+
+import com.bank.exception.BankingException;
+import com.bank.model.*;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous front end for the blocking services. Every operation runs on its own
+ * virtual thread, so thousands of concurrent callers cost no platform threads.
+ *
+ * Operations on the same account are serialized through a per-account mailbox (a chain
+ * of futures keyed by account id) while different accounts run in parallel. A transfer
+ * is queued on the mailbox of the account it debits, which is where the funds check
+ * happens; the credit side is protected by the database updates themselves.
+ *
+ * An operation that has not started within the configured timeout fails with a
+ * TimeoutException and never runs; cancelling its future before it starts has the same
+ * effect. A started operation cannot be stopped, so the futures of the mutating ones
+ * (postings, status changes, account creation and registration) then report what it
+ * actually did however long it takes. A TimeoutException from them therefore always
+ * means nothing was changed. Read-only operations also time out while running.
+ */
+public class ConcurrentBankingFacade implements AutoCloseable {
+    private static final CompletableFuture<Void> IDLE = CompletableFuture.completedFuture(null);
+
+    private final TransactionService transactionService;
+    private final AccountService accountService;
+    private final AuthService authService;
+    private final long timeoutMillis;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // tail of each account's mailbox; removed again once the account goes idle
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> mailboxes = new ConcurrentHashMap<>();
+
+    public ConcurrentBankingFacade(TransactionService transactionService, AccountService accountService,
+                                   AuthService authService, long timeoutMillis) {
+        this.transactionService = transactionService;
+        this.accountService = accountService;
+        this.authService = authService;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public CompletableFuture<Void> deposit(String accountId, BigDecimal amount, String userId) {
+        return onAccount(accountId, true, () -> {
+            transactionService.deposit(accountId, amount, userId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> withdraw(String accountId, BigDecimal amount, String userId) {
+        return onAccount(accountId, true, () -> {
+            transactionService.withdraw(accountId, amount, userId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> transfer(String fromAccountId, String toAccountId,
+                                            BigDecimal amount, String userId) {
+        return onAccount(fromAccountId, true, () -> {
+            transactionService.transfer(fromAccountId, toAccountId, amount, userId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<Transaction>> getAccountHistory(String accountId) {
+        return onAccount(accountId, false, () -> transactionService.getAccountHistory(accountId));
+    }
+
+    public CompletableFuture<Void> freezeAccount(String accountId, String adminUserId) {
+        return onAccount(accountId, true, () -> {
+            accountService.freezeAccount(accountId, adminUserId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> activateAccount(String accountId, String adminUserId) {
+        return onAccount(accountId, true, () -> {
+            accountService.activateAccount(accountId, adminUserId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Account> createAccount(String userId, AccountType type) {
+        return parallel(true, () -> accountService.createAccount(userId, type));
+    }
+
+    public CompletableFuture<List<Account>> getUserAccounts(String userId) {
+        return parallel(false, () -> accountService.getUserAccounts(userId));
+    }
+
+    public CompletableFuture<User> register(String name, String email, String password) {
+        return parallel(true, () -> authService.register(name, email, password));
+    }
+
+    public CompletableFuture<User> login(String email, String password) {
+        return parallel(false, () -> authService.login(email, password));
+    }
+
+    // number of accounts with queued or running operations
+    public int getActiveMailboxCount() {
+        return mailboxes.size();
+    }
+
+    private <T> CompletableFuture<T> onAccount(String accountId, boolean mutating, Callable<T> operation) {
+        Task<T> task = new Task<>(operation, mutating);
+        CompletableFuture<Void> tail = mailboxes.compute(accountId, (id, previous) ->
+            (previous == null ? IDLE : previous).thenRunAsync(task::run, executor));
+        tail.whenComplete((ignored, error) -> mailboxes.remove(accountId, tail));
+        return task.result;
+    }
+
+    private <T> CompletableFuture<T> parallel(boolean mutating, Callable<T> operation) {
+        Task<T> task = new Task<>(operation, mutating);
+        executor.execute(task::run);
+        return task.result;
+    }
+
+    private final class Task<T> {
+        private final Callable<T> operation;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        // completed by whichever happens first: the operation starting, the timeout or a cancellation
+        private final CompletableFuture<Void> start = new CompletableFuture<>();
+
+        Task(Callable<T> operation, boolean mutating) {
+            this.operation = operation;
+            start.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                }
+            });
+            result.whenComplete((ignored, error) -> start.cancel(false));
+            if (!mutating) {
+                result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        // Never throws, so one failed operation cannot break the mailbox chain behind it
+        void run() {
+            if (!start.complete(null)) {
+                return; // timed out or cancelled while queued
+            }
+            try {
+                result.complete(operation.call());
+            } catch (BankingException e) {
+                result.completeExceptionally(e);
+            } catch (Exception e) {
+                result.completeExceptionally(new BankingException("Operation failed: " + e.getMessage()));
+            }
+        }
+    }
+
+    // Waits for every mailbox to drain, then for the remaining operations to finish
+    @Override
+    public void close() {
+        while (!mailboxes.isEmpty()) {
+            CompletableFuture.allOf(mailboxes.values().toArray(new CompletableFuture<?>[0]))
+                .exceptionally(error -> null)
+                .join();
+        }
+        executor.close();
+    }
+}
@@ -0,0 +1,109 @@
+package com.bank.service;
+
+import com.bank.model.*;
+import com.bank.repository.UserRepository;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Login-path credential check. Users are cached by email together with their salt and
+ * hash already Base64-decoded, so a repeat login costs one pooled digest and a
+ * constant-time compare instead of a query, two decodes and a provider lookup.
+ *
+ * A mismatch against a cached entry is trusted, so a storm of failed logins costs no
+ * queries. Code that changes a password must call invalidate(); a credential changed by
+ * another process is picked up by re-reading the entry on a mismatch at most once per
+ * RECHECK_INTERVAL.
+ */
+public class CredentialVerifier {
+    private static final long RECHECK_INTERVAL = TimeUnit.SECONDS.toNanos(30);
+
+    private final UserRepository userRepo;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Credential> credentials;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CredentialVerifier(UserRepository userRepo, int maxEntries) {
+        this.userRepo = userRepo;
+        this.maxEntries = maxEntries;
+        this.credentials = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Credential> eldest) {
+                return size() > CredentialVerifier.this.maxEntries;
+            }
+        };
+    }
+
+    private static final class Credential {
+        private final User user;
+        private final byte[] salt;
+        private final byte[] hash;
+        private final long loadedAt = System.nanoTime();
+
+        Credential(User user) {
+            Base64.Decoder decoder = Base64.getDecoder();
+            this.user = user;
+            this.salt = decoder.decode(user.getSalt());
+            this.hash = decoder.decode(user.getPasswordHash());
+        }
+
+        boolean matches(String password) {
+            return PasswordHasher.matches(salt, hash, password);
+        }
+
+        boolean isRecent() {
+            return System.nanoTime() - loadedAt < RECHECK_INTERVAL;
+        }
+    }
+
+    // Returns the user when the password matches, null for an unknown email or wrong password
+    public User verify(String email, String password) throws SQLException {
+        Credential cached;
+        synchronized (this) {
+            cached = credentials.get(email);
+        }
+        if (cached != null) {
+            hits.increment();
+            if (cached.matches(password)) {
+                return cached.user;
+            }
+            if (cached.isRecent()) {
+                return null; // the password is simply wrong
+            }
+        } else {
+            misses.increment();
+        }
+
+        User user = userRepo.findByEmail(email);
+        if (user == null) {
+            invalidate(email);
+            return null;
+        }
+        // re-reading an unchanged credential still restarts its recheck interval
+        Credential loaded = new Credential(user);
+        remember(loaded);
+        return loaded.matches(password) ? user : null;
+    }
+
+    // Primes the cache, e.g. right after registration
+    public void remember(User user) {
+        remember(new Credential(user));
+    }
+
+    // Must follow a password change, so the old credential stops being accepted
+    public synchronized void invalidate(String email) {
+        credentials.remove(email);
+    }
+
+    public long getHitCount() {return hits.sum();}
+    public long getMissCount() {return misses.sum();}
+
+    private synchronized void remember(Credential credential) {
+        credentials.put(credential.user.getEmail(), credential);
+    }
+}
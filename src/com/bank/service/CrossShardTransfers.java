@@ -0,0 +1,392 @@
+package com.bank.service;
+
+import com.bank.exception.BankingException;
+import com.bank.exception.PendingTransferException;
+import com.bank.model.*;
+import com.bank.repository.*;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Transfers between accounts on different shards. No database transaction spans both
+ * accounts, so a transfer is a saga of three local transactions, logged in the
+ * cross_shard_transfers table of the shard each step runs on:
+ *
+ *   1. sender's shard: debit the sender and log the transfer as DEBITED
+ *   2. receiver's shard: decide once, holding the receiver's row lock, whether it can be
+ *      credited, and log the decision under the transfer id: CREDITED together with the
+ *      credit and the receiver's copy of the transaction, or REJECTED with the reason
+ *   3. sender's shard: COMPLETED with the sender's copy of the transaction, or REFUNDED
+ *      with the debit reversed, as the decision says
+ *
+ * Every step is conditional on the logged state, so any number of callers may drive the
+ * same transfer: a repeated step 2 finds the decision instead of crediting again, and only
+ * one of them moves the sender's entry out of DEBITED. A crash or database error after step
+ * 1 leaves the transfer DEBITED until recover() picks it up; until then the amount has left
+ * the sender but is not visible to the receiver.
+ */
+public class CrossShardTransfers implements AutoCloseable {
+    private static final String DUPLICATE_KEY = "23505";
+    private static final String COLUMNS =
+        "id, from_account_id, to_account_id, amount, user_id, description, created_at";
+
+    private final ShardRouter router;
+    private final AccountRepository accountRepo;
+    private final TransactionRepository transactionRepo;
+    private final AuditLogRepository auditLogRepo;
+    // told about every transfer this coordinator completes, whichever caller drove it
+    private final Consumer<Transaction> completed;
+    private ScheduledExecutorService scheduler;
+
+    public CrossShardTransfers(ShardRouter router, AccountRepository accountRepo,
+                               TransactionRepository transactionRepo, AuditLogRepository auditLogRepo,
+                               Consumer<Transaction> completed) {
+        this.router = router;
+        this.accountRepo = accountRepo;
+        this.transactionRepo = transactionRepo;
+        this.auditLogRepo = auditLogRepo;
+        this.completed = completed;
+    }
+
+    public boolean isCrossShard(String fromAccountId, String toAccountId) {
+        return router.shardOf(fromAccountId) != router.shardOf(toAccountId);
+    }
+
+    /**
+     * Runs all three steps. Fails without moving money when the sender cannot pay, and after a
+     * refund when the receiver rejected the credit. A failure after the debit throws
+     * PendingTransferException and leaves the transfer to recover(), which completes or refunds it.
+     */
+    public Transaction transfer(String fromAccountId, String toAccountId, BigDecimal amount, String userId)
+            throws BankingException {
+        long cents = Money.requirePositive(amount);
+        Transaction transaction;
+        try {
+            Account to = accountRepo.findById(toAccountId);
+            if (to == null) {
+                throw new BankingException("Account not found");
+            }
+            transaction = debit(fromAccountId, to, amount, cents, userId);
+        } catch (SQLException | BankingException e) {
+            // same messages as a transfer within one shard
+            throw new BankingException("Transfer failed: " + e.getMessage());
+        }
+
+        String rejected;
+        try {
+            rejected = settle(transaction, userId);
+        } catch (SQLException | BankingException e) {
+            throw new PendingTransferException("Transfer " + transaction.getId()
+                + " is debited and will be completed or refunded by recovery: " + e.getMessage(), transaction.getId());
+        }
+        if (rejected != null) {
+            throw new BankingException("Transfer failed: " + rejected);
+        }
+        return transaction;
+    }
+
+    /**
+     * Settles every transfer still DEBITED whose last step is older than {@code olderThan}, so
+     * transfers in flight are left to their callers. Returns how many were settled.
+     */
+    public int recover(Duration olderThan) {
+        Timestamp before = Timestamp.valueOf(LocalDateTime.now().minus(olderThan));
+        String sql = "SELECT " + COLUMNS + " FROM cross_shard_transfers " +
+                     "WHERE state = 'DEBITED' AND updated_at < ? ORDER BY updated_at";
+        int settled = 0;
+        for (int shard = 0; shard < router.size(); shard++) {
+            List<Transaction> pending = new ArrayList<>();
+            List<String> users = new ArrayList<>();
+            try (Connection conn = router.shard(shard).getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setTimestamp(1, before);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    pending.add(new Transaction(rs.getString(1), rs.getString(2), rs.getString(3),
+                        rs.getBigDecimal(4), TransactionType.TRANSFER, rs.getString(6),
+                        rs.getTimestamp(7).toLocalDateTime()));
+                    users.add(rs.getString(5));
+                }
+            } catch (SQLException e) {
+                System.err.println("Cross-shard recovery could not read shard " + shard + ": " + e.getMessage());
+                continue;
+            }
+            for (int i = 0; i < pending.size(); i++) {
+                try {
+                    settle(pending.get(i), users.get(i));
+                    settled++;
+                } catch (SQLException | BankingException e) {
+                    System.err.println("Cross-shard transfer " + pending.get(i).getId()
+                        + " is still pending: " + e.getMessage());
+                }
+            }
+        }
+        if (settled > 0) {
+            System.out.println("✓ Recovered " + settled + " cross-shard transfers");
+        }
+        return settled;
+    }
+
+    // Runs recover every period on a background thread until close()
+    public synchronized void start(Duration period, Duration olderThan) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cross-shard-recovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> recover(olderThan),
+            period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = scheduler;
+            scheduler = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Step 1 on the sender's shard; the receiver was read beforehand and is checked again in step 2
+    private Transaction debit(String fromAccountId, Account to, BigDecimal amount, long cents, String userId)
+            throws SQLException, BankingException {
+        Connection conn = null;
+        try {
+            conn = router.shardFor(fromAccountId).getConnection();
+            conn.setAutoCommit(false);
+
+            AccountBalance from = accountRepo.findBalanceById(conn, fromAccountId, true);
+            if (from == null) {
+                throw new BankingException("Account not found");
+            }
+            if (from.getStatus() != AccountStatus.ACTIVE || to.getStatus() != AccountStatus.ACTIVE) {
+                throw new BankingException("Both accounts must be active");
+            }
+            if (from.getBalanceCents() < cents) {
+                throw new BankingException("Insufficient funds");
+            }
+            from.setBalanceCents(Money.subtract(from.getBalanceCents(), cents));
+            accountRepo.updateBalances(conn, List.of(from));
+
+            Transaction transaction = new Transaction(fromAccountId, to.getId(), amount,
+                TransactionType.TRANSFER,
+                String.format("Transfer from %s to %s", from.getAccountNumber(), to.getAccountNumber()));
+            log(conn, transaction, userId, "DEBITED", null);
+            conn.commit();
+            accountRepo.invalidate(fromAccountId);
+            return transaction;
+        } catch (SQLException | BankingException e) {
+            rollbackQuietly(conn);
+            throw e;
+        } finally {
+            closeQuietly(conn);
+        }
+    }
+
+    // Steps 2 and 3; returns the rejection reason if the transfer was refunded, null if it completed
+    private String settle(Transaction transaction, String userId) throws SQLException, BankingException {
+        String rejected = decide(transaction, userId);
+        if (rejected == null) {
+            complete(transaction, userId);
+        } else {
+            refund(transaction, userId, rejected);
+        }
+        return rejected;
+    }
+
+    // Step 2 on the receiver's shard; the first decision logged for a transfer id is final
+    private String decide(Transaction transaction, String userId) throws SQLException {
+        String toAccountId = transaction.getToAccountId();
+        Connection conn = null;
+        try {
+            conn = router.shardFor(toAccountId).getConnection();
+            conn.setAutoCommit(false);
+
+            String[] decided = findDecision(conn, transaction.getId());
+            if (decided != null) {
+                conn.rollback();
+                return decided[1];
+            }
+
+            String rejected = null;
+            AccountBalance to = accountRepo.findBalanceById(conn, toAccountId, true);
+            if (to == null) {
+                rejected = "Account not found";
+            } else if (to.getStatus() != AccountStatus.ACTIVE) {
+                rejected = "Both accounts must be active";
+            } else {
+                try {
+                    to.setBalanceCents(Money.credit(to.getBalanceCents(), Money.toCents(transaction.getAmount())));
+                } catch (BankingException e) {
+                    rejected = e.getMessage();
+                }
+            }
+            if (rejected == null) {
+                accountRepo.updateBalances(conn, List.of(to));
+                transactionRepo.saveAll(conn, List.of(transaction));
+            }
+            log(conn, transaction, userId, rejected == null ? "CREDITED" : "REJECTED", rejected);
+            conn.commit();
+            if (rejected == null) {
+                transactionRepo.committed(List.of(transaction));
+            }
+            accountRepo.invalidate(toAccountId);
+            return rejected;
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            if (!DUPLICATE_KEY.equals(e.getSQLState())) {
+                throw e;
+            }
+            // another caller logged the decision first
+            try (Connection reader = router.shardFor(toAccountId).getConnection()) {
+                String[] decided = findDecision(reader, transaction.getId());
+                if (decided == null) {
+                    throw e;
+                }
+                return decided[1];
+            }
+        } finally {
+            closeQuietly(conn);
+        }
+    }
+
+    // Step 3 when the receiver was credited
+    private void complete(Transaction transaction, String userId) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = router.shardFor(transaction.getFromAccountId()).getConnection();
+            conn.setAutoCommit(false);
+            if (!advance(conn, transaction.getId(), "COMPLETED")) {
+                conn.rollback();
+                return; // settled by another caller
+            }
+            transactionRepo.saveAll(conn, List.of(transaction));
+            conn.commit();
+            transactionRepo.committed(List.of(transaction));
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            throw e;
+        } finally {
+            closeQuietly(conn);
+        }
+
+        // audit rows live on the primary, so this one cannot join the shard's commit
+        auditQuietly(new AuditLog("TRANSFER", userId,
+            String.format("Transferred $%.2f: %s", transaction.getAmount(), transaction.getDescription())));
+        completed.accept(transaction);
+    }
+
+    // Step 3 when the receiver rejected the credit
+    private void refund(Transaction transaction, String userId, String reason)
+            throws SQLException, BankingException {
+        String fromAccountId = transaction.getFromAccountId();
+        Connection conn = null;
+        try {
+            conn = router.shardFor(fromAccountId).getConnection();
+            conn.setAutoCommit(false);
+            if (!advance(conn, transaction.getId(), "REFUNDED")) {
+                conn.rollback();
+                return;
+            }
+            AccountBalance from = accountRepo.findBalanceById(conn, fromAccountId, true);
+            from.setBalanceCents(Money.credit(from.getBalanceCents(), Money.toCents(transaction.getAmount())));
+            accountRepo.updateBalances(conn, List.of(from));
+            conn.commit();
+            accountRepo.invalidate(fromAccountId);
+        } catch (SQLException | BankingException e) {
+            rollbackQuietly(conn);
+            throw e;
+        } finally {
+            closeQuietly(conn);
+        }
+
+        auditQuietly(new AuditLog("TRANSFER_REFUNDED", userId,
+            String.format("Refunded $%.2f: %s (%s)", transaction.getAmount(), transaction.getDescription(), reason)));
+    }
+
+    private static void log(Connection conn, Transaction transaction, String userId, String state, String reason)
+            throws SQLException {
+        String sql = "INSERT INTO cross_shard_transfers (" + COLUMNS + ", state, reason) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, transaction.getId());
+            stmt.setString(2, transaction.getFromAccountId());
+            stmt.setString(3, transaction.getToAccountId());
+            stmt.setBigDecimal(4, transaction.getAmount());
+            stmt.setString(5, userId);
+            stmt.setString(6, transaction.getDescription());
+            stmt.setTimestamp(7, Timestamp.valueOf(transaction.getTimestamp()));
+            stmt.setString(8, state);
+            stmt.setString(9, reason);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Moves the sender's entry out of DEBITED; false if some other caller already did
+    private static boolean advance(Connection conn, String transferId, String state) throws SQLException {
+        String sql = "UPDATE cross_shard_transfers SET state = ?, updated_at = CURRENT_TIMESTAMP " +
+                     "WHERE id = ? AND state = 'DEBITED'";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, state);
+            stmt.setString(2, transferId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    // {state, reason} of the receiver's decision, or null if none was logged yet
+    private static String[] findDecision(Connection conn, String transferId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT state, reason FROM cross_shard_transfers WHERE id = ?")) {
+            stmt.setString(1, transferId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? new String[] { rs.getString(1), rs.getString(2) } : null;
+        }
+    }
+
+    private void auditQuietly(AuditLog log) {
+        try {
+            auditLogRepo.save(log);
+        } catch (SQLException e) {
+            System.err.println("Audit log could not be written: " + log + " (" + e.getMessage() + ")");
+        }
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+                conn.close(); // return connection to the pool
+            } catch (SQLException e) {
+                // Connection already closed, ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.bank.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streaming RFC 4180 reader: quoted fields, doubled quotes and line breaks inside quotes
+final class CsvReader implements Closeable {
+    private final BufferedReader in;
+    private final StringBuilder field = new StringBuilder();
+
+    CsvReader(BufferedReader in) {
+        this.in = in;
+    }
+
+    // Next record, or null at end of input; blank lines are skipped
+    String[] next() throws IOException {
+        String line = in.readLine();
+        while (line != null && line.isEmpty()) {
+            line = in.readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (!quoted) {
+                break;
+            }
+            line = in.readLine();
+            if (line == null) {
+                throw new IOException("Unterminated quoted field at end of input");
+            }
+            field.append('\n');
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
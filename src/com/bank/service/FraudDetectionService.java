@@ -3,56 +3,173 @@ package com.bank.service;
 import com.bank.model.*;
 import com.bank.repository.*;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.sql.SQLException;
-import java.util.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-public class FraudDetectionService {
-    private final TransactionRepository transactionRepo;
+/**
+ * Scores amounts against each account's running statistics. Committed transactions are
+ * folded into the statistics in memory on the committing thread; the changed rows are
+ * written to account_stats in batches by flush(), which start() runs periodically, so a
+ * posting never waits on a statistics write. Rows not yet flushed are lost on a crash and
+ * only make the scores slightly less informed.
+ */
+public class FraudDetectionService implements TransactionListener, AutoCloseable {
+    private final AccountStatsRepository statsRepo;
     private final AuditLogRepository auditLogRepo;
+    // running statistics per account, loaded from account_stats on first use
+    private final ConcurrentHashMap<String, AccountStats> stats = new ConcurrentHashMap<>();
+    // accounts whose statistics changed since they were last written
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
 
-    public FraudDetectionService(TransactionRepository transactionRepo, AuditLogRepository auditLogRepo){
-        this.transactionRepo = transactionRepo;
+    public FraudDetectionService(AccountStatsRepository statsRepo, AuditLogRepository auditLogRepo){
+        this.statsRepo = statsRepo;
         this.auditLogRepo = auditLogRepo;
     }
 
-    public void analyzeTransaction(String accountId, BigDecimal amount, String userId) 
+    public void analyzeTransaction(String accountId, BigDecimal amount, String userId)
             throws SQLException {
-        
-        List<Transaction> history = transactionRepo.findByAccountId(accountId);
-        
-        if (history.size() < 3) {
+        analyzeTransaction(accountId, Money.toCents(amount), userId);
+    }
+
+    public void analyzeTransaction(String accountId, long amountCents, String userId)
+            throws SQLException {
+
+        AccountStats current = statsFor(accountId);
+        long count;
+        double mean;
+        double stdDev;
+        synchronized (current) {
+            count = current.getCount();
+            mean = current.getMean();
+            stdDev = current.stdDev();
+        }
+
+        if (count < 3) {
             return; // Not enough data
         }
-        
-        // Mean
-        BigDecimal sum = BigDecimal.ZERO;
-        for (Transaction t : history) {
-            sum = sum.add(t.getAmount());
-        }
-        BigDecimal mean = sum.divide(new BigDecimal(history.size()), 2, RoundingMode.HALF_UP);
-        
-        // Standard dev
-        BigDecimal variance = BigDecimal.ZERO;
-        for (Transaction t : history) {
-            BigDecimal diff = t.getAmount().subtract(mean);
-            variance = variance.add(diff.multiply(diff));
-        }
-        variance = variance.divide(new BigDecimal(history.size()), 2, RoundingMode.HALF_UP);
-        double stdDev = Math.sqrt(variance.doubleValue());
-        
+
         // z-score
-        double zScore = (amount.doubleValue() - mean.doubleValue()) / stdDev;
-        
-        // Flag if z-score > 2.5 
+        double zScore = (Money.toDouble(amountCents) - mean) / stdDev;
+
+        // Flag if z-score > 2.5
         if (Math.abs(zScore) > 2.5) {
             String alert = String.format(
                 "ANOMALY_DETECTED: Transaction $%.2f deviates %.1f std devs from average $%.2f",
-                amount, Math.abs(zScore), mean
+                Money.toDecimal(amountCents), Math.abs(zScore), mean
             );
-            
+
             auditLogRepo.save(new AuditLog("FRAUD_ALERT_ML", userId, alert));
             System.out.println("🤖 ML FRAUD ALERT: " + alert);
         }
     }
+
+    // Folds a committed transaction into the statistics of both accounts it touched
+    @Override
+    public void onCommitted(Transaction transaction) {
+        double amount = transaction.getAmount().doubleValue();
+        String from = transaction.getFromAccountId();
+        String to = transaction.getToAccountId();
+        try {
+            if (from != null) {
+                record(from, amount);
+            }
+            if (to != null && !to.equals(from)) {
+                record(to, amount);
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to update account statistics: " + e.getMessage());
+        }
+    }
+
+    private void record(String accountId, double amount) throws SQLException {
+        AccountStats current = statsFor(accountId);
+        synchronized (current) {
+            current.add(amount);
+        }
+        dirty.add(accountId);
+    }
+
+    // Writes the statistics changed since the last flush in one batch; returns how many rows
+    public synchronized int flush() throws SQLException {
+        List<AccountStats> rows = new ArrayList<>();
+        for (String accountId : dirty) {
+            // unmarked before the copy, so a change made after it marks the account again
+            dirty.remove(accountId);
+            AccountStats current = stats.get(accountId);
+            synchronized (current) {
+                rows.add(new AccountStats(accountId, current.getCount(), current.getMean(), current.getM2()));
+            }
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        try {
+            statsRepo.saveAll(rows);
+        } catch (SQLException e) {
+            rows.forEach(row -> dirty.add(row.getAccountId()));
+            throw e;
+        }
+        return rows.size();
+    }
+
+    // Runs flush every period on a background thread until close()
+    public synchronized void start(Duration period) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "account-stats-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (SQLException e) {
+                System.err.println("Failed to update account statistics: " + e.getMessage());
+            }
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Stops the background writer and writes what is still pending
+    @Override
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = scheduler;
+            scheduler = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            flush();
+        } catch (SQLException e) {
+            System.err.println("Failed to update account statistics: " + e.getMessage());
+        }
+    }
+
+    private AccountStats statsFor(String accountId) throws SQLException {
+        AccountStats cached = stats.get(accountId);
+        if (cached != null) {
+            return cached;
+        }
+        AccountStats stored = statsRepo.findByAccountId(accountId);
+        AccountStats loaded = stored != null ? stored : new AccountStats(accountId);
+        AccountStats existing = stats.putIfAbsent(accountId, loaded);
+        return existing != null ? existing : loaded;
+    }
 }
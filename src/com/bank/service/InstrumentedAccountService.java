@@ -0,0 +1,46 @@
+package com.bank.service;
+
+import com.bank.exception.BankingException;
+import com.bank.metrics.MetricsRegistry;
+import com.bank.metrics.OperationMetrics;
+import com.bank.model.*;
+import com.bank.repository.*;
+import java.util.List;
+
+// AccountService that records latency, outcome and DB time of every operation
+public class InstrumentedAccountService extends AccountService {
+    private final OperationMetrics create;
+    private final OperationMetrics freeze;
+    private final OperationMetrics activate;
+    private final OperationMetrics list;
+
+    public InstrumentedAccountService(MetricsRegistry metrics, AccountRepository accountRepo,
+                                      UserRepository userRepo, AuditLogRepository auditLogRepo,
+                                      LedgerEngine ledger) {
+        super(accountRepo, userRepo, auditLogRepo, ledger);
+        this.create = metrics.operation("account.create");
+        this.freeze = metrics.operation("account.freeze");
+        this.activate = metrics.operation("account.activate");
+        this.list = metrics.operation("account.list");
+    }
+
+    @Override
+    public Account createAccount(String userId, AccountType type) throws BankingException {
+        return create.time(() -> super.createAccount(userId, type));
+    }
+
+    @Override
+    public void freezeAccount(String accountId, String adminUserId) throws BankingException {
+        freeze.run(() -> super.freezeAccount(accountId, adminUserId));
+    }
+
+    @Override
+    public void activateAccount(String accountId, String adminUserId) throws BankingException {
+        activate.run(() -> super.activateAccount(accountId, adminUserId));
+    }
+
+    @Override
+    public List<Account> getUserAccounts(String userId) throws BankingException {
+        return list.time(() -> super.getUserAccounts(userId));
+    }
+}
@@ -0,0 +1,38 @@
+package com.bank.service;
+
+import com.bank.exception.BankingException;
+import com.bank.metrics.MetricsRegistry;
+import com.bank.metrics.OperationMetrics;
+import com.bank.model.*;
+import com.bank.repository.*;
+import java.util.List;
+
+// AuthService that records latency, outcome and DB time of every operation
+public class InstrumentedAuthService extends AuthService {
+    private final OperationMetrics register;
+    private final OperationMetrics login;
+    private final OperationMetrics registerAll;
+
+    public InstrumentedAuthService(MetricsRegistry metrics, UserRepository userRepo,
+                                   AuditLogRepository auditLogRepo) {
+        super(userRepo, auditLogRepo);
+        this.register = metrics.operation("auth.register");
+        this.login = metrics.operation("auth.login");
+        this.registerAll = metrics.operation("auth.registerAll");
+    }
+
+    @Override
+    public User register(String name, String email, String password) throws BankingException {
+        return register.time(() -> super.register(name, email, password));
+    }
+
+    @Override
+    public User login(String email, String password) throws BankingException {
+        return login.time(() -> super.login(email, password));
+    }
+
+    @Override
+    public List<User> registerAll(List<UserRegistration> registrations) throws BankingException {
+        return registerAll.time(() -> super.registerAll(registrations));
+    }
+}
@@ -0,0 +1,32 @@
+package com.bank.service;
+
+import com.bank.metrics.MetricsRegistry;
+import com.bank.metrics.OperationMetrics;
+import com.bank.model.Transaction;
+import com.bank.repository.*;
+import java.sql.SQLException;
+
+// FraudDetectionService that records latency and DB time of scoring and statistics updates
+public class InstrumentedFraudDetectionService extends FraudDetectionService {
+    private final OperationMetrics analyze;
+    private final OperationMetrics record;
+
+    public InstrumentedFraudDetectionService(MetricsRegistry metrics, AccountStatsRepository statsRepo,
+                                             AuditLogRepository auditLogRepo) {
+        super(statsRepo, auditLogRepo);
+        this.analyze = metrics.operation("fraud.analyze");
+        this.record = metrics.operation("fraud.recordCommitted");
+    }
+
+    // the BigDecimal overload delegates here, so both are timed
+    @Override
+    public void analyzeTransaction(String accountId, long amountCents, String userId) throws SQLException {
+        analyze.run(() -> super.analyzeTransaction(accountId, amountCents, userId));
+    }
+
+    // runs inside the committing service call, so its time is also part of that operation
+    @Override
+    public void onCommitted(Transaction transaction) {
+        record.run(() -> super.onCommitted(transaction));
+    }
+}
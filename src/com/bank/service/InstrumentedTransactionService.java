@@ -0,0 +1,84 @@
+package com.bank.service;
+
+import com.bank.exception.BankingException;
+import com.bank.metrics.MetricsRegistry;
+import com.bank.metrics.OperationMetrics;
+import com.bank.model.*;
+import com.bank.repository.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// TransactionService that records latency, outcome and DB time of every operation
+public class InstrumentedTransactionService extends TransactionService {
+    private final OperationMetrics deposit;
+    private final OperationMetrics withdraw;
+    private final OperationMetrics transfer;
+    private final OperationMetrics transferBatch;
+    private final OperationMetrics history;
+    private final OperationMetrics historyPage;
+
+    public InstrumentedTransactionService(MetricsRegistry metrics, AccountRepository accountRepo,
+                                          TransactionRepository transactionRepo,
+                                          AuditLogRepository auditLogRepo, LedgerEngine ledger,
+                                          IdempotencyKeyRepository idempotencyKeys) {
+        super(accountRepo, transactionRepo, auditLogRepo, ledger, idempotencyKeys);
+        this.deposit = metrics.operation("transaction.deposit");
+        this.withdraw = metrics.operation("transaction.withdraw");
+        this.transfer = metrics.operation("transaction.transfer");
+        this.transferBatch = metrics.operation("transaction.transferBatch");
+        this.history = metrics.operation("transaction.history");
+        this.historyPage = metrics.operation("transaction.historyPage");
+    }
+
+    @Override
+    public void deposit(String accountId, BigDecimal amount, String userId) throws BankingException {
+        deposit.run(() -> super.deposit(accountId, amount, userId));
+    }
+
+    // replays are recorded too; being answered from the key store, they show up as the fast tail
+    @Override
+    public String deposit(String accountId, BigDecimal amount, String userId, String idempotencyKey)
+            throws BankingException {
+        return deposit.time(() -> super.deposit(accountId, amount, userId, idempotencyKey));
+    }
+
+    @Override
+    public void withdraw(String accountId, BigDecimal amount, String userId) throws BankingException {
+        withdraw.run(() -> super.withdraw(accountId, amount, userId));
+    }
+
+    @Override
+    public String withdraw(String accountId, BigDecimal amount, String userId, String idempotencyKey)
+            throws BankingException {
+        return withdraw.time(() -> super.withdraw(accountId, amount, userId, idempotencyKey));
+    }
+
+    @Override
+    public void transfer(String fromAccountId, String toAccountId, BigDecimal amount, String userId)
+            throws BankingException {
+        transfer.run(() -> super.transfer(fromAccountId, toAccountId, amount, userId));
+    }
+
+    @Override
+    public String transfer(String fromAccountId, String toAccountId, BigDecimal amount, String userId,
+                           String idempotencyKey) throws BankingException {
+        return transfer.time(() -> super.transfer(fromAccountId, toAccountId, amount, userId, idempotencyKey));
+    }
+
+    @Override
+    public BatchTransferResult transferBatch(List<TransferRequest> requests) throws BankingException {
+        return transferBatch.time(() -> super.transferBatch(requests));
+    }
+
+    @Override
+    public List<Transaction> getAccountHistory(String accountId) throws BankingException {
+        return history.time(() -> super.getAccountHistory(accountId));
+    }
+
+    @Override
+    public TransactionPage getAccountHistory(String accountId, LocalDateTime from, LocalDateTime to,
+                                             HistoryCursor cursor, int pageSize) throws BankingException {
+        return historyPage.time(() -> super.getAccountHistory(accountId, from, to, cursor, pageSize));
+    }
+}
@@ -0,0 +1,300 @@
+package com.bank.service;
+
+import com.bank.exception.BankingException;
+import com.bank.model.*;
+import com.bank.repository.*;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * End-of-day interest for savings accounts. A run for a business date splits the savings
+ * accounts into id ranges of about equal size, then credits the ranges in parallel on a
+ * fork/join pool. Each range is walked in id order in chunks of chunkSize accounts; a chunk
+ * is locked, credited with one batched balance UPDATE plus one INTEREST transaction per
+ * account, and committed together with the range's checkpoint. Re-running a date that
+ * failed part way resumes every range after its last committed chunk, with the ranges and
+ * rate of the first attempt, and a finished date is never credited twice.
+ *
+ * Daily interest is balance * annualRate / 365, rounded half-even to the cent; active
+ * accounts with a positive balance earn it. Balances are written directly, so the service
+ * refuses to be built beside a LedgerEngine, and listeners are not notified. Main runs it
+ * for -Dbank.interest.date when -Dbank.interest.rate is set.
+ */
+public class InterestAccrualService {
+    private static final BigDecimal DAYS_PER_YEAR = BigDecimal.valueOf(365);
+    // ranges are planned before accounts are locked, so the first range starts below every id
+    private static final String LOWEST_ID = Ids.MIN;
+
+    private final AccountRepository accountRepo;
+    private final TransactionRepository transactionRepo;
+    private final AuditLogRepository auditLogRepo;
+    private final InterestRunRepository runRepo;
+    private final BigDecimal annualRate;
+    private final int partitions;
+    private final int chunkSize;
+    private final int parallelism;
+
+    // ledger is the engine the other services post through, or null; accrual refuses to run beside one
+    public InterestAccrualService(AccountRepository accountRepo, TransactionRepository transactionRepo,
+                                  AuditLogRepository auditLogRepo, InterestRunRepository runRepo,
+                                  LedgerEngine ledger, BigDecimal annualRate, int partitions, int chunkSize,
+                                  int parallelism) {
+        if (ledger != null) {
+            // the ledger checks postings against its in-memory balances, which would never see the credits
+            throw new IllegalStateException("Interest accrual writes balances directly and cannot run while the ledger holds them");
+        }
+        if (accountRepo instanceof ShardedAccountRepository) {
+            // each chunk locks, credits and checkpoints a range of accounts on one connection
+            throw new IllegalStateException("Interest accrual cannot run on sharded accounts");
+        }
+        if (annualRate == null || annualRate.signum() < 0) {
+            throw new IllegalArgumentException("Annual interest rate must not be negative");
+        }
+        if (partitions <= 0 || chunkSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Partitions, chunk size and parallelism must be positive");
+        }
+        this.accountRepo = accountRepo;
+        this.transactionRepo = transactionRepo;
+        this.auditLogRepo = auditLogRepo;
+        this.runRepo = runRepo;
+        this.annualRate = annualRate;
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    public InterestAccrualReport accrue(LocalDate businessDate, String operatorUserId) throws BankingException {
+        long started = System.currentTimeMillis();
+        try {
+            InterestRun run = runRepo.findByDate(businessDate);
+            List<InterestPartition> planned;
+            int resumed = 0;
+            if (run == null) {
+                run = new InterestRun(businessDate, annualRate, false);
+                planned = plan(run);
+            } else {
+                planned = runRepo.findPartitions(businessDate);
+                for (InterestPartition partition : planned) {
+                    if (partition.isCompleted() || !partition.getLastId().equals(partition.getLowId())) {
+                        resumed++;
+                    }
+                }
+            }
+
+            if (!run.isCompleted()) {
+                BigDecimal dailyRate = run.getAnnualRate().divide(DAYS_PER_YEAR, MathContext.DECIMAL64);
+                List<InterestPartition> pending = new ArrayList<>();
+                for (InterestPartition partition : planned) {
+                    if (!partition.isCompleted()) {
+                        pending.add(partition);
+                    }
+                }
+                ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    pool.invoke(new AccrueRange(pending, 0, pending.size(), dailyRate, failures));
+                } finally {
+                    pool.shutdown();
+                }
+                if (!failures.isEmpty()) {
+                    throw new BankingException("Interest accrual failed in " + failures.size() +
+                        " of " + planned.size() + " partitions, re-run to resume: " + failures.peek());
+                }
+                planned = runRepo.findPartitions(businessDate);
+            }
+
+            long accounts = 0;
+            BigDecimal interest = BigDecimal.ZERO;
+            for (InterestPartition partition : planned) {
+                accounts += partition.getAccounts();
+                interest = interest.add(partition.getInterest());
+            }
+            if (!run.isCompleted()) {
+                complete(businessDate, accounts, interest, planned.size(), operatorUserId);
+            }
+            return new InterestAccrualReport(businessDate, planned.size(), resumed, accounts, interest,
+                System.currentTimeMillis() - started);
+        } catch (SQLException e) {
+            throw new BankingException("Interest accrual failed: " + e.getMessage());
+        }
+    }
+
+    // Splits the savings accounts into ranges of about equal size and stores them with the run
+    private List<InterestPartition> plan(InterestRun run) throws SQLException {
+        long count = accountRepo.countByType(AccountType.SAVINGS);
+        int every = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (count + partitions - 1) / partitions));
+        List<String> bounds = accountRepo.sampleIds(AccountType.SAVINGS, every);
+        if (bounds.size() >= partitions) {
+            // the last sample is the highest id, which would leave the open-ended last range empty
+            bounds = bounds.subList(0, partitions - 1);
+        }
+
+        List<InterestPartition> planned = new ArrayList<>(bounds.size() + 1);
+        String low = LOWEST_ID;
+        for (String high : bounds) {
+            planned.add(new InterestPartition(run.getBusinessDate(), planned.size(), low, high, low,
+                0, BigDecimal.ZERO, false));
+            low = high;
+        }
+        planned.add(new InterestPartition(run.getBusinessDate(), planned.size(), low, null, low,
+            0, BigDecimal.ZERO, false));
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                runRepo.create(conn, run, planned);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return planned;
+    }
+
+    // Credits one range chunk by chunk; each chunk commits with the range's checkpoint
+    private void accrue(InterestPartition partition, BigDecimal dailyRate) throws SQLException {
+        String description = "Interest for " + partition.getBusinessDate();
+        while (!partition.isCompleted()) {
+            Connection conn = null;
+            List<Transaction> credits = new ArrayList<>(chunkSize);
+            try {
+                conn = DatabaseConnection.getConnection();
+                conn.setAutoCommit(false);
+
+                // the chunk ends at its chunkSize-th account, or at the end of the range if fewer are left
+                String chunkEnd = accountRepo.findChunkEnd(conn, AccountType.SAVINGS,
+                    partition.getLastId(), partition.getHighId(), chunkSize);
+                List<AccountBalance> chunk = accountRepo.lockPositiveBalances(conn, AccountType.SAVINGS,
+                    partition.getLastId(), chunkEnd != null ? chunkEnd : partition.getHighId());
+                Map<String, BigDecimal> deltas = new LinkedHashMap<>();
+                BigDecimal total = BigDecimal.ZERO;
+                for (AccountBalance account : chunk) {
+                    BigDecimal interest = Money.toDecimal(account.getBalanceCents()).multiply(dailyRate).setScale(2, RoundingMode.HALF_EVEN);
+                    if (interest.signum() > 0) {
+                        deltas.put(account.getId(), interest);
+                        credits.add(new Transaction(null, account.getId(), interest, TransactionType.INTEREST, description));
+                        total = total.add(interest);
+                    }
+                }
+                accountRepo.addToBalances(conn, deltas);
+                transactionRepo.saveAll(conn, credits);
+
+                InterestPartition next = new InterestPartition(partition.getBusinessDate(), partition.getPartition(),
+                    partition.getLowId(), partition.getHighId(),
+                    chunkEnd != null ? chunkEnd : chunk.isEmpty() ? partition.getLastId() : chunk.get(chunk.size() - 1).getId(),
+                    partition.getAccounts() + credits.size(), partition.getInterest().add(total),
+                    chunkEnd == null);
+                runRepo.savePartition(conn, next);
+                conn.commit();
+                committedQuietly(credits);
+                partition = next;
+                for (String accountId : deltas.keySet()) {
+                    accountRepo.invalidate(accountId);
+                }
+            } catch (SQLException e) {
+                rollbackQuietly(conn);
+                throw e;
+            } finally {
+                if (conn != null) {
+                    try {
+                        conn.setAutoCommit(true);
+                        conn.close();
+                    } catch (SQLException e) {
+                        // Connection already closed, ignore
+                    }
+                }
+            }
+        }
+    }
+
+    // Marks the run done and writes its audit summary in one transaction
+    private void complete(LocalDate businessDate, long accounts, BigDecimal interest, int partitionCount,
+                          String operatorUserId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                runRepo.complete(conn, businessDate);
+                auditLogRepo.saveAll(conn, List.of(new AuditLog("INTEREST_ACCRUAL", operatorUserId,
+                    String.format("Interest for %s: $%.2f on %d savings accounts in %d partitions",
+                        businessDate, interest, accounts, partitionCount))));
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                // the original failure is what the caller needs to see
+            }
+        }
+    }
+
+    // The chunk is committed, so a store that keeps records outside the database must not fail the run
+    private void committedQuietly(List<Transaction> transactions) {
+        try {
+            transactionRepo.committed(transactions);
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Committed " + transactions.size() + " interest credit(s) but could not record them: " + e.getMessage());
+        }
+    }
+
+    // Halves the list of ranges until one is left; a failed range is recorded and the others carry on.
+    // ForkJoinTask is Serializable, but these tasks never leave the pool that runs them.
+    private final class AccrueRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<InterestPartition> pending;
+        private final int from;
+        private final int to;
+        private final BigDecimal dailyRate;
+        private final ConcurrentLinkedQueue<String> failures;
+
+        AccrueRange(List<InterestPartition> pending, int from, int to, BigDecimal dailyRate,
+                    ConcurrentLinkedQueue<String> failures) {
+            this.pending = pending;
+            this.from = from;
+            this.to = to;
+            this.dailyRate = dailyRate;
+            this.failures = failures;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new AccrueRange(pending, from, mid, dailyRate, failures),
+                    new AccrueRange(pending, mid, to, dailyRate, failures));
+                return;
+            }
+            if (to > from) {
+                InterestPartition partition = pending.get(from);
+                try {
+                    accrue(partition, dailyRate);
+                } catch (SQLException e) {
+                    failures.add("partition " + partition.getPartition() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
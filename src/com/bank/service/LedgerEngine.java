@@ -0,0 +1,343 @@
+package com.bank.service;
+
+import com.bank.exception.BankingException;
+import com.bank.model.*;
+import com.bank.repository.*;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional ledger mode: authoritative balances live in memory and are mutated under
+ * lock striping keyed by account id, as long cents so the checks and updates made under
+ * the lock allocate nothing. Every posting is handed to a LedgerWriteBehind
+ * which persists balances, transactions and audit rows in group-committed batches.
+ *
+ * With Durability.ASYNC a call returns as soon as the posting is applied in memory,
+ * so postings not yet flushed are lost on a crash. Durability.SYNC waits until the
+ * batch containing the posting has committed. A posting the database rejects is
+ * reverted in memory. Credits only become spendable once they are durable, so a debit is
+ * never accepted against funds a revert could take back and later persisted as an
+ * overdraft. A posting that is merely slow to flush stays applied, so a SYNC call
+ * that times out or is interrupted returns it and logs that durability is pending. A call
+ * that throws has left no posting applied.
+ */
+public class LedgerEngine implements AutoCloseable {
+    public enum Durability { ASYNC, SYNC }
+
+    private final AccountRepository accountRepo;
+    private final LedgerWriteBehind writer;
+    private final Durability durability;
+    private final long syncTimeoutMillis;
+    private final ReentrantLock[] stripes;
+    private final ConcurrentHashMap<String, LedgerAccount> accounts = new ConcurrentHashMap<>();
+
+    public LedgerEngine(AccountRepository accountRepo, LedgerWriteBehind writer, int stripeCount,
+                        Durability durability, long syncTimeoutMillis) {
+        this.accountRepo = accountRepo;
+        this.writer = writer;
+        this.durability = durability;
+        this.syncTimeoutMillis = syncTimeoutMillis;
+        // power of two so the stripe index is a mask
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    private static final class LedgerAccount {
+        private final String id;
+        private final String accountNumber;
+        private long balance; // cents
+        // cents of balance credited by postings not yet durable; released by the flusher without the stripe
+        private final AtomicLong pendingCredit = new AtomicLong();
+        private AccountStatus status;
+
+        LedgerAccount(String id, String accountNumber, long balance, AccountStatus status) {
+            this.id = id;
+            this.accountNumber = accountNumber;
+            this.balance = balance;
+            this.status = status;
+        }
+    }
+
+    // Loads every account balance from the database; call once before taking traffic
+    public void recover() throws SQLException {
+        String sql = "SELECT " + RowMappers.ACCOUNT_BALANCE_COLUMNS + " FROM accounts";
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                AccountBalance row = RowMappers.ACCOUNT_BALANCE.map(rs);
+                LedgerAccount account = new LedgerAccount(
+                    row.getId(), row.getAccountNumber(), row.getBalanceCents(), row.getStatus());
+                accounts.put(account.id, account);
+            }
+        }
+        System.out.println("✓ Ledger recovered " + accounts.size() + " account balances");
+    }
+
+    public Transaction deposit(String accountId, BigDecimal amount, String userId) throws BankingException {
+        long cents = Money.requirePositive(amount);
+        LedgerAccount account = load(accountId);
+        ReentrantLock lock = stripeFor(accountId);
+        LedgerWriteBehind.Posting posting;
+        CompletableFuture<Void> durable;
+
+        lock.lock();
+        try {
+            if (account.status != AccountStatus.ACTIVE) {
+                throw new BankingException("Account is not active");
+            }
+            account.balance = Money.credit(account.balance, cents);
+            account.pendingCredit.addAndGet(cents);
+
+            Transaction transaction = new Transaction(null, accountId, amount,
+                TransactionType.DEPOSIT, "Deposit to account");
+            AuditLog log = new AuditLog("DEPOSIT", userId,
+                String.format("Deposited $%.2f to %s", amount, account.accountNumber));
+            posting = new LedgerWriteBehind.Posting(transaction, log,
+                new String[] { accountId }, new long[] { cents });
+            durable = submit(posting);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(posting, durable);
+        return posting.getTransaction();
+    }
+
+    public Transaction withdraw(String accountId, BigDecimal amount, String userId) throws BankingException {
+        long cents = Money.requirePositive(amount);
+        LedgerAccount account = load(accountId);
+        ReentrantLock lock = stripeFor(accountId);
+        LedgerWriteBehind.Posting posting;
+        CompletableFuture<Void> durable;
+
+        lock.lock();
+        try {
+            if (account.status != AccountStatus.ACTIVE) {
+                throw new BankingException("Account is not active");
+            }
+            if (available(account) < cents) {
+                throw new BankingException("Insufficient funds");
+            }
+            account.balance = Money.subtract(account.balance, cents);
+
+            Transaction transaction = new Transaction(accountId, null, amount,
+                TransactionType.WITHDRAWAL, "Withdrawal from account");
+            AuditLog log = new AuditLog("WITHDRAWAL", userId,
+                String.format("Withdrew $%.2f from %s", amount, account.accountNumber));
+            posting = new LedgerWriteBehind.Posting(transaction, log,
+                new String[] { accountId }, new long[] { -cents });
+            durable = submit(posting);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(posting, durable);
+        return posting.getTransaction();
+    }
+
+    public Transaction transfer(String fromAccountId, String toAccountId, BigDecimal amount, String userId)
+            throws BankingException {
+        LedgerAccount from = load(fromAccountId);
+        LedgerAccount to = load(toAccountId);
+        long cents = Money.requirePositive(amount);
+
+        // lock stripes in index order so concurrent opposite transfers cannot deadlock
+        int a = stripeIndex(fromAccountId);
+        int b = stripeIndex(toAccountId);
+        ReentrantLock first = stripes[Math.min(a, b)];
+        ReentrantLock second = stripes[Math.max(a, b)];
+        LedgerWriteBehind.Posting posting;
+        CompletableFuture<Void> durable;
+
+        first.lock();
+        second.lock();
+        try {
+            if (from.status != AccountStatus.ACTIVE || to.status != AccountStatus.ACTIVE) {
+                throw new BankingException("Both accounts must be active");
+            }
+            if (available(from) < cents) {
+                throw new BankingException("Insufficient funds");
+            }
+            // checked before the debit so a failure leaves both balances untouched
+            long credited = Money.credit(to == from ? from.balance - cents : to.balance, cents);
+            from.balance = Money.subtract(from.balance, cents);
+            to.balance = credited;
+            to.pendingCredit.addAndGet(cents);
+
+            Transaction transaction = new Transaction(fromAccountId, toAccountId, amount,
+                TransactionType.TRANSFER,
+                String.format("Transfer from %s to %s", from.accountNumber, to.accountNumber));
+            AuditLog log = new AuditLog("TRANSFER", userId,
+                String.format("Transferred $%.2f from %s to %s",
+                    amount, from.accountNumber, to.accountNumber));
+            posting = new LedgerWriteBehind.Posting(transaction, log,
+                new String[] { fromAccountId, toAccountId },
+                new long[] { -cents, cents });
+            durable = submit(posting);
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
+        awaitDurable(posting, durable);
+        return posting.getTransaction();
+    }
+
+    public BigDecimal getBalance(String accountId) throws BankingException {
+        LedgerAccount account = load(accountId);
+        ReentrantLock lock = stripeFor(accountId);
+        lock.lock();
+        try {
+            return Money.toDecimal(account.balance);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called after an account status change has been written to the database
+    public void updateStatus(String accountId, AccountStatus status) {
+        LedgerAccount account = accounts.get(accountId);
+        if (account == null) {
+            return; // loaded from the database with the new status on first use
+        }
+        ReentrantLock lock = stripeFor(accountId);
+        lock.lock();
+        try {
+            account.status = status;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks until all postings applied so far are durable
+    public void flush() throws BankingException {
+        try {
+            writer.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BankingException("Interrupted while flushing ledger");
+        }
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+
+    private LedgerAccount load(String accountId) throws BankingException {
+        LedgerAccount account = accounts.get(accountId);
+        if (account != null) {
+            return account;
+        }
+        // accounts created after recovery start out in the database with no pending postings
+        try {
+            Account stored = accountRepo.findById(accountId);
+            if (stored == null) {
+                throw new BankingException("Account not found");
+            }
+            LedgerAccount loaded = new LedgerAccount(stored.getId(), stored.getAccountNumber(),
+                Money.toCents(stored.getBalance()), stored.getStatus());
+            LedgerAccount existing = accounts.putIfAbsent(accountId, loaded);
+            return existing != null ? existing : loaded;
+        } catch (SQLException e) {
+            throw new BankingException("Ledger failed to load account: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Queues a posting; the returned future completes once it is durable, or once it has been
+     * reverted if the database rejected it. The revert runs off the flusher thread because it
+     * needs the stripe locks, which a submitter blocked on a full queue may hold. Credits are
+     * released on the flusher thread itself, so they are spendable once flush() returns.
+     */
+    private CompletableFuture<Void> submit(LedgerWriteBehind.Posting posting) throws BankingException {
+        posting.durable().thenRun(() -> release(posting));
+        CompletableFuture<Void> durable = posting.durable().whenCompleteAsync((ignored, e) -> {
+            if (e != null) {
+                revert(posting);
+            }
+        });
+        try {
+            writer.submit(posting);
+        } catch (InterruptedException e) {
+            // never queued, so nothing will persist it; the caller holds the stripe lock revert takes
+            revert(posting);
+            Thread.currentThread().interrupt();
+            throw new BankingException("Interrupted while queueing ledger posting");
+        }
+        return durable;
+    }
+
+    // Takes a rejected posting's changes back out; later postings were persisted with their own deltas only
+    private void revert(LedgerWriteBehind.Posting posting) {
+        String[] accountIds = posting.getAccountIds();
+        long[] deltas = posting.getDeltas();
+        for (int i = 0; i < accountIds.length; i++) {
+            LedgerAccount account = accounts.get(accountIds[i]);
+            ReentrantLock lock = stripeFor(accountIds[i]);
+            lock.lock();
+            try {
+                account.balance -= deltas[i];
+                if (deltas[i] > 0) {
+                    account.pendingCredit.addAndGet(-deltas[i]);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Makes a durable posting's credits spendable; a debit racing with this only sees less than it could
+    private void release(LedgerWriteBehind.Posting posting) {
+        String[] accountIds = posting.getAccountIds();
+        long[] deltas = posting.getDeltas();
+        for (int i = 0; i < accountIds.length; i++) {
+            if (deltas[i] > 0) {
+                accounts.get(accountIds[i]).pendingCredit.addAndGet(-deltas[i]);
+            }
+        }
+    }
+
+    // caller holds the account's stripe; balance minus credits a revert could still take back
+    private static long available(LedgerAccount account) {
+        return account.balance - account.pendingCredit.get();
+    }
+
+    private void awaitDurable(LedgerWriteBehind.Posting posting, CompletableFuture<Void> durable)
+            throws BankingException {
+        if (durability == Durability.ASYNC) {
+            return;
+        }
+        try {
+            durable.get(syncTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // applied and retried until it commits; failing the call would invite a retry that posts twice
+            System.err.println("Ledger posting " + posting.getTransaction().getId()
+                + " applied, durability pending after " + syncTimeoutMillis + "ms");
+        } catch (ExecutionException e) {
+            throw new BankingException("Posting was rejected by the database and reverted: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            // queued and applied, so like a timeout it is returned rather than failed
+            Thread.currentThread().interrupt();
+            System.err.println("Ledger posting " + posting.getTransaction().getId()
+                + " applied, durability pending (interrupted while waiting)");
+        }
+    }
+
+    private int stripeIndex(String accountId) {
+        int h = accountId.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    private ReentrantLock stripeFor(String accountId) {
+        return stripes[stripeIndex(accountId)];
+    }
+}
@@ -0,0 +1,68 @@
+package com.bank.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Salted SHA-256 password hashing shared by registration and login. Digests are reused
+ * from a small pool instead of a ThreadLocal because logins also run on virtual threads,
+ * where a per-thread digest would be created and dropped on every call.
+ */
+public final class PasswordHasher {
+    public static final int SALT_LENGTH = 16;
+    private static final int MAX_POOLED_DIGESTS = 64;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final MessageDigest PROTOTYPE = newDigest();
+    private static final ConcurrentLinkedQueue<MessageDigest> DIGESTS = new ConcurrentLinkedQueue<>();
+
+    private PasswordHasher() {
+    }
+
+    public static byte[] newSalt() {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        return salt;
+    }
+
+    public static byte[] hash(byte[] salt, String password) {
+        MessageDigest md = borrow();
+        try {
+            md.update(salt);
+            return md.digest(password.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            md.reset();
+            if (DIGESTS.size() < MAX_POOLED_DIGESTS) {
+                DIGESTS.offer(md);
+            }
+        }
+    }
+
+    // Constant-time comparison so response time does not leak how much of the hash matched
+    public static boolean matches(byte[] salt, byte[] expectedHash, String password) {
+        return MessageDigest.isEqual(hash(salt, password), expectedHash);
+    }
+
+    private static MessageDigest borrow() {
+        MessageDigest md = DIGESTS.poll();
+        if (md != null) {
+            return md;
+        }
+        try {
+            return (MessageDigest) PROTOTYPE.clone(); // skips the provider lookup
+        } catch (CloneNotSupportedException e) {
+            return newDigest();
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.bank.service;
+
+import com.bank.model.Transaction;
+
+// Notified by TransactionService after a transaction has been committed
+public interface TransactionListener {
+    void onCommitted(Transaction transaction);
+}
@@ -1,63 +1,172 @@
 package com.bank.service;
 
 import com.bank.exception.BankingException;
+import com.bank.exception.PendingTransferException;
 import com.bank.model.*;
+import com.bank.readmodel.ReadModel;
 import com.bank.repository.*;
 import java.math.BigDecimal;
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
 
 public class TransactionService {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int STREAM_FETCH_SIZE = 500;
+    // bounded retry for compare-and-set conflicts on the accounts row
+    private static final int MAX_UPDATE_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MILLIS = 2;
+    private static final long MAX_BACKOFF_MILLIS = 100;
+    private static final String SERIALIZATION_FAILURE = "40001";
+    private static final int MAX_IDEMPOTENCY_KEY = 100;
+    
     private final AccountRepository accountRepo;
     private final TransactionRepository transactionRepo;
     private final AuditLogRepository auditLogRepo;
+    private final LedgerEngine ledger;
+    private final IdempotencyKeyRepository idempotencyKeys;
+    private final List<TransactionListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile ReadModel readModel;
+    private volatile ShardRouter shards;
+    private volatile CrossShardTransfers crossShard;
     
     public TransactionService(AccountRepository accountRepo, 
                               TransactionRepository transactionRepo,
                               AuditLogRepository auditLogRepo) {
+        this(accountRepo, transactionRepo, auditLogRepo, null);
+    }
+    
+    // With a ledger, balance mutations are applied in memory and persisted write-behind
+    public TransactionService(AccountRepository accountRepo, 
+                              TransactionRepository transactionRepo,
+                              AuditLogRepository auditLogRepo,
+                              LedgerEngine ledger) {
+        this(accountRepo, transactionRepo, auditLogRepo, ledger, null);
+    }
+    
+    // idempotencyKeys enables the overloads of deposit, withdraw and transfer that take a key
+    public TransactionService(AccountRepository accountRepo, 
+                              TransactionRepository transactionRepo,
+                              AuditLogRepository auditLogRepo,
+                              LedgerEngine ledger,
+                              IdempotencyKeyRepository idempotencyKeys) {
         this.accountRepo = accountRepo;
         this.transactionRepo = transactionRepo;
         this.auditLogRepo = auditLogRepo;
+        this.ledger = ledger;
+        this.idempotencyKeys = idempotencyKeys;
+    }
+    
+    // Listeners are told about every transaction once it has been committed (or posted to the ledger)
+    public void addListener(TransactionListener listener) {
+        listeners.add(listener);
+    }
+    
+    // Serves account history from the read model while it is ready; it may trail recent postings.
+    // Not for a journaled history, which the read model's rebuild cannot copy.
+    public void routeReadsTo(ReadModel readModel) {
+        this.readModel = readModel;
+    }
+    
+    /**
+     * Runs transfers on the shards of their accounts: one local transaction when both accounts
+     * share a shard, the returned saga coordinator otherwise. The repositories this service was
+     * built with must be the sharded ones over the same router.
+     */
+    public CrossShardTransfers shardAcross(ShardRouter router) {
+        CrossShardTransfers transfers = new CrossShardTransfers(router, accountRepo, transactionRepo,
+            auditLogRepo, this::notifyCommitted);
+        this.shards = router;
+        this.crossShard = transfers;
+        return transfers;
     }
     
     public void deposit(String accountId, BigDecimal amount, String userId) 
             throws BankingException {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new BankingException("Amount must be positive");
-        }
-        
-        try {
-            Account account = accountRepo.findById(accountId);
-            if (account == null) {
-                throw new BankingException("Account not found");
-            }
-            
-            if (account.getStatus() != AccountStatus.ACTIVE) {
-                throw new BankingException("Account is not active");
-            }
-            
-            account.setBalance(account.getBalance().add(amount));
-            accountRepo.update(account);
-            
-            Transaction transaction = new Transaction(null, accountId, amount, 
-                TransactionType.DEPOSIT, "Deposit to account");
-            transactionRepo.save(transaction);
-            
-            auditLogRepo.save(new AuditLog("DEPOSIT", userId, 
-                String.format("Deposited $%.2f to %s", amount, account.getAccountNumber())));
-        } catch (SQLException e) {
-            throw new BankingException("Deposit failed: " + e.getMessage());
+        postDeposit(accountId, amount, userId, null);
+    }
+    
+    /**
+     * Deposit that runs at most once per idempotency key: retrying with the same key and
+     * request returns the id of the transaction the first call posted, without touching
+     * the account. Keys of calls that failed before posting are released, so those can be retried.
+     */
+    public String deposit(String accountId, BigDecimal amount, String userId, String idempotencyKey)
+            throws BankingException {
+        return idempotent(idempotencyKey, fingerprint("DEPOSIT", accountId, null, amount, userId),
+            claim -> postDeposit(accountId, amount, userId, claim));
+    }
+    
+    private Transaction postDeposit(String accountId, BigDecimal amount, String userId, Claim claim) 
+            throws BankingException {
+        if (ledger != null) {
+            Transaction transaction = ledger.deposit(accountId, amount, userId);
+            notifyCommitted(transaction);
+            return transaction;
         }
+        return post(accountId, amount, true, userId, claim);
     }
     
     public void withdraw(String accountId, BigDecimal amount, String userId) 
             throws BankingException {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new BankingException("Amount must be positive");
+        postWithdrawal(accountId, amount, userId, null);
+    }
+    
+    // Withdrawal that runs at most once per idempotency key, see deposit
+    public String withdraw(String accountId, BigDecimal amount, String userId, String idempotencyKey)
+            throws BankingException {
+        return idempotent(idempotencyKey, fingerprint("WITHDRAWAL", accountId, null, amount, userId),
+            claim -> postWithdrawal(accountId, amount, userId, claim));
+    }
+    
+    private Transaction postWithdrawal(String accountId, BigDecimal amount, String userId, Claim claim) 
+            throws BankingException {
+        if (ledger != null) {
+            Transaction transaction = ledger.withdraw(accountId, amount, userId);
+            notifyCommitted(transaction);
+            return transaction;
         }
-        
+        return post(accountId, amount, false, userId, claim);
+    }
+    
+    /**
+     * Deposit or withdrawal as one transaction on the account's database: the balance, the
+     * transaction row, the audit row and the claimed idempotency key commit together, so a
+     * call that throws has written nothing. Sharded, the audit row and key live on the primary
+     * and are written after the shard commits.
+     */
+    private Transaction post(String accountId, BigDecimal amount, boolean credit, String userId, Claim claim)
+            throws BankingException {
+        long cents = Money.requirePositive(amount);
+        for (int attempt = 1; ; attempt++) {
+            Transaction committed = attemptPosting(accountId, amount, cents, credit, userId, claim);
+            if (committed != null) {
+                notifyCommitted(committed);
+                return committed;
+            }
+            backoff(attempt); // someone else changed the row since we read it
+        }
+    }
+    
+    // Runs one posting transaction; returns null if the compare-and-set lost a race
+    private Transaction attemptPosting(String accountId, BigDecimal amount, long cents, boolean credit,
+                                       String userId, Claim claim) throws BankingException {
+        ShardRouter router = shards;
+        Connection conn = null;
         try {
-            Account account = accountRepo.findById(accountId);
+            conn = router != null ? router.shardFor(accountId).getConnection() : DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            
+            AccountBalance account = accountRepo.findBalanceById(conn, accountId, false);
             if (account == null) {
                 throw new BankingException("Account not found");
             }
@@ -66,74 +175,187 @@ public class TransactionService {
                 throw new BankingException("Account is not active");
             }
             
-            if (account.getBalance().compareTo(amount) < 0) {
+            if (credit) {
+                account.setBalanceCents(Money.credit(account.getBalanceCents(), cents));
+            } else if (account.getBalanceCents() < cents) {
                 throw new BankingException("Insufficient funds");
+            } else {
+                account.setBalanceCents(Money.subtract(account.getBalanceCents(), cents));
+            }
+            if (!accountRepo.updateBalance(conn, account)) {
+                conn.rollback();
+                return null;
             }
             
-            account.setBalance(account.getBalance().subtract(amount));
-            accountRepo.update(account);
+            Transaction transaction = credit
+                ? new Transaction(null, accountId, amount, TransactionType.DEPOSIT, "Deposit to account")
+                : new Transaction(accountId, null, amount, TransactionType.WITHDRAWAL, "Withdrawal from account");
+            transactionRepo.save(conn, transaction);
             
-            Transaction transaction = new Transaction(accountId, null, amount, 
-                TransactionType.WITHDRAWAL, "Withdrawal from account");
-            transactionRepo.save(transaction);
+            AuditLog log = credit
+                ? new AuditLog("DEPOSIT", userId,
+                    String.format("Deposited $%.2f to %s", amount, account.getAccountNumber()))
+                : new AuditLog("WITHDRAWAL", userId,
+                    String.format("Withdrew $%.2f from %s", amount, account.getAccountNumber()));
+            if (router == null) {
+                saveAuditLog(conn, log);
+                if (claim != null) {
+                    claim.complete(conn, transaction);
+                }
+            }
             
-            auditLogRepo.save(new AuditLog("WITHDRAWAL", userId, 
-                String.format("Withdrew $%.2f from %s", amount, account.getAccountNumber())));
+            conn.commit();
+            if (claim != null) {
+                claim.posted(transaction.getId());
+            }
+            committedQuietly(List.of(transaction));
+            accountRepo.invalidate(accountId);
+            if (router != null) {
+                saveAuditLogQuietly(log);
+            }
+            return transaction;
         } catch (SQLException e) {
-            throw new BankingException("Withdrawal failed: " + e.getMessage());
+            rollbackQuietly(conn);
+            if (SERIALIZATION_FAILURE.equals(e.getSQLState())) {
+                return null; // lock timeout, safe to retry
+            }
+            throw new BankingException((credit ? "Deposit" : "Withdrawal") + " failed: " + e.getMessage());
+        } catch (BankingException | RuntimeException e) {
+            rollbackQuietly(conn);
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close(); // return connection to the pool
+                } catch (SQLException e) {
+                    // Connection already closed, ignore
+                }
+            }
         }
     }
     
     public void transfer(String fromAccountId, String toAccountId, 
                     BigDecimal amount, String userId) throws BankingException {
+        postTransfer(fromAccountId, toAccountId, amount, userId, null);
+    }
+    
+    // Transfer that runs at most once per idempotency key, see deposit
+    public String transfer(String fromAccountId, String toAccountId, BigDecimal amount, String userId,
+                           String idempotencyKey) throws BankingException {
+        return idempotent(idempotencyKey, fingerprint("TRANSFER", fromAccountId, toAccountId, amount, userId),
+            claim -> postTransfer(fromAccountId, toAccountId, amount, userId, claim));
+    }
+    
+    private Transaction postTransfer(String fromAccountId, String toAccountId, 
+                    BigDecimal amount, String userId, Claim claim) throws BankingException {
+    if (ledger != null) {
+        Transaction transaction = ledger.transfer(fromAccountId, toAccountId, amount, userId);
+        notifyCommitted(transaction);
+        return transaction;
+    }
+    CrossShardTransfers transfers = crossShard;
+    if (transfers != null && transfers.isCrossShard(fromAccountId, toAccountId)) {
+        try {
+            return transfers.transfer(fromAccountId, toAccountId, amount, userId); // it notifies on completion
+        } catch (PendingTransferException e) {
+            if (claim != null) {
+                claim.posted(e.getTransactionId()); // a retry gets the id instead of a second debit
+            }
+            throw e;
+        }
+    }
+    for (int attempt = 1; ; attempt++) {
+        Transaction committed = attemptTransfer(fromAccountId, toAccountId, amount, userId, claim);
+        if (committed != null) {
+            notifyCommitted(committed);
+            return committed;
+        }
+        backoff(attempt); // an account changed between read and write, start over
+    }
+}
+
+    // Runs one transfer transaction; returns null if a compare-and-set lost a race
+    private Transaction attemptTransfer(String fromAccountId, String toAccountId, 
+                    BigDecimal amount, String userId, Claim claim) throws BankingException {
+    ShardRouter router = shards;
     Connection conn = null;
+    Transaction transaction = null;
     try {
-        conn = DatabaseConnection.getConnection();
+        conn = router != null ? router.shardFor(fromAccountId).getConnection() : DatabaseConnection.getConnection();
         conn.setAutoCommit(false); // START TRANSACTION
         
         // Fetch accounts without auto-closing connection
-        Account fromAccount = findAccountById(conn, fromAccountId);
-        Account toAccount = findAccountById(conn, toAccountId);
+        AccountBalance fromAccount = accountRepo.findBalanceById(conn, fromAccountId, false);
+        // a self-transfer must update a single row once, not two stale copies of it
+        AccountBalance toAccount = toAccountId.equals(fromAccountId)
+            ? fromAccount : accountRepo.findBalanceById(conn, toAccountId, false);
         
         if (fromAccount == null || toAccount == null) {
             throw new BankingException("Account not found");
         }
         
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new BankingException("Amount must be positive");
-        }
+        long cents = Money.requirePositive(amount);
         
         if (fromAccount.getStatus() != AccountStatus.ACTIVE || 
             toAccount.getStatus() != AccountStatus.ACTIVE) {
             throw new BankingException("Both accounts must be active");
         }
         
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
+        if (fromAccount.getBalanceCents() < cents) {
             throw new BankingException("Insufficient funds");
         }
         
         // Update balances
-        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
-        toAccount.setBalance(toAccount.getBalance().add(amount));
+        fromAccount.setBalanceCents(Money.subtract(fromAccount.getBalanceCents(), cents));
+        toAccount.setBalanceCents(Money.credit(toAccount.getBalanceCents(), cents));
         
-        updateAccount(conn, fromAccount);
-        updateAccount(conn, toAccount);
+        // write rows in id order so opposite transfers cannot deadlock on row locks
+        AccountBalance first = fromAccountId.compareTo(toAccountId) <= 0 ? fromAccount : toAccount;
+        AccountBalance second = first == fromAccount ? toAccount : fromAccount;
+        if (!accountRepo.updateBalance(conn, first) ||
+            (second != first && !accountRepo.updateBalance(conn, second))) {
+            conn.rollback();
+            return null;
+        }
         
         // Save transaction
-        Transaction transaction = new Transaction(fromAccountId, toAccountId, amount, 
+        transaction = new Transaction(fromAccountId, toAccountId, amount, 
             TransactionType.TRANSFER, 
             String.format("Transfer from %s to %s", 
                 fromAccount.getAccountNumber(), toAccount.getAccountNumber()));
-        saveTransaction(conn, transaction);
+        transactionRepo.save(conn, transaction);
         
         // Save audit log
         AuditLog log = new AuditLog("TRANSFER", userId, 
             String.format("Transferred $%.2f from %s to %s", 
                 amount, fromAccount.getAccountNumber(), toAccount.getAccountNumber()));
-        saveAuditLog(conn, log);
+        if (router == null) {
+            saveAuditLog(conn, log);
+            if (claim != null) {
+                claim.complete(conn, transaction);
+            }
+        }
         
         conn.commit(); // COMMIT TRANSACTION
+        if (claim != null) {
+            claim.posted(transaction.getId());
+        }
+        committedQuietly(List.of(transaction));
+        accountRepo.invalidate(fromAccountId);
+        accountRepo.invalidate(toAccountId);
+        if (router != null) {
+            // audit rows live on the primary, so on a shard the row cannot join the commit
+            saveAuditLogQuietly(log);
+        }
+        return transaction;
         
+    } catch (SQLException e) {
+        rollbackQuietly(conn);
+        if (SERIALIZATION_FAILURE.equals(e.getSQLState())) {
+            return null; // deadlock victim or lock timeout, safe to retry
+        }
+        throw new BankingException("Transfer failed: " + e.getMessage());
     } catch (Exception e) {
         if (conn != null) {
             try {
@@ -147,6 +369,7 @@ public class TransactionService {
         if (conn != null) {
             try {
                 conn.setAutoCommit(true);
+                conn.close(); // return connection to the pool
             } catch (SQLException e) {
                 // Connection already closed, ignore
             }
@@ -154,49 +377,146 @@ public class TransactionService {
     }
 }
 
-    // Helper methods to use the same connection
-    private Account findAccountById(Connection conn, String accountId) throws SQLException {
-        String sql = "SELECT * FROM accounts WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, accountId);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return new Account(
-                    rs.getString("id"),
-                    rs.getString("user_id"),
-                    rs.getString("account_number"),
-                    AccountType.valueOf(rs.getString("type")),
-                    rs.getBigDecimal("balance"),
-                    AccountStatus.valueOf(rs.getString("status"))
-                );
+    /**
+     * Executes many transfers in one database transaction. Every touched account is
+     * locked in id order, requests are validated in submission order against the
+     * running balances, and the balance updates, transactions and audit rows are
+     * written with JDBC batches in a single commit. Requests that fail validation
+     * are skipped and reported; a database error fails the whole batch.
+     */
+    public BatchTransferResult transferBatch(List<TransferRequest> requests) throws BankingException {
+        List<BatchTransferResult.Failure> failures = new ArrayList<>();
+        if (ledger != null) {
+            for (int i = 0; i < requests.size(); i++) {
+                TransferRequest request = requests.get(i);
+                try {
+                    requireAccountIds(request);
+                    notifyCommitted(ledger.transfer(request.getFromAccountId(), request.getToAccountId(),
+                        request.getAmount(), request.getUserId()));
+                } catch (BankingException e) {
+                    failures.add(new BatchTransferResult.Failure(i, request, e.getMessage()));
+                }
             }
+            return new BatchTransferResult(requests.size(), failures);
         }
-        return null;
-    }
-
-    private void updateAccount(Connection conn, Account account) throws SQLException {
-        String sql = "UPDATE accounts SET balance = ?, status = ? WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setBigDecimal(1, account.getBalance());
-            stmt.setString(2, account.getStatus().name());
-            stmt.setString(3, account.getId());
-            stmt.executeUpdate();
+        if (shards != null) {
+            // one transaction cannot lock accounts on several databases, so each request runs on its own
+            for (int i = 0; i < requests.size(); i++) {
+                TransferRequest request = requests.get(i);
+                try {
+                    requireAccountIds(request);
+                    postTransfer(request.getFromAccountId(), request.getToAccountId(),
+                        request.getAmount(), request.getUserId(), null);
+                } catch (BankingException e) {
+                    failures.add(new BatchTransferResult.Failure(i, request, e.getMessage()));
+                }
+            }
+            return new BatchTransferResult(requests.size(), failures);
+        }
+        
+        Set<String> accountIds = new TreeSet<>();
+        for (TransferRequest request : requests) {
+            if (request != null && request.getFromAccountId() != null && request.getToAccountId() != null) {
+                accountIds.add(request.getFromAccountId());
+                accountIds.add(request.getToAccountId());
+            }
+        }
+        
+        Connection conn = null;
+        List<Transaction> transactions = new ArrayList<>();
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            
+            // deterministic lock order keeps concurrent batches from deadlocking
+            Map<String, AccountBalance> accounts = new HashMap<>();
+            for (String accountId : accountIds) {
+                AccountBalance account = accountRepo.findBalanceById(conn, accountId, true);
+                if (account != null) {
+                    accounts.put(accountId, account);
+                }
+            }
+            
+            Set<AccountBalance> changed = new LinkedHashSet<>();
+            List<AuditLog> logs = new ArrayList<>();
+            
+            for (int i = 0; i < requests.size(); i++) {
+                TransferRequest request = requests.get(i);
+                AccountBalance fromAccount;
+                AccountBalance toAccount;
+                BigDecimal amount;
+                
+                try {
+                    requireAccountIds(request);
+                    fromAccount = accounts.get(request.getFromAccountId());
+                    toAccount = accounts.get(request.getToAccountId());
+                    amount = request.getAmount();
+                    if (fromAccount == null || toAccount == null) {
+                        throw new BankingException("Account not found");
+                    }
+                    long cents = Money.requirePositive(amount);
+                    if (fromAccount.getStatus() != AccountStatus.ACTIVE || 
+                        toAccount.getStatus() != AccountStatus.ACTIVE) {
+                        throw new BankingException("Both accounts must be active");
+                    }
+                    if (fromAccount.getBalanceCents() < cents) {
+                        throw new BankingException("Insufficient funds");
+                    }
+                    // checked before the debit so a rejected request leaves both balances untouched
+                    long credited = Money.credit(toAccount == fromAccount
+                        ? fromAccount.getBalanceCents() - cents : toAccount.getBalanceCents(), cents);
+                    fromAccount.setBalanceCents(Money.subtract(fromAccount.getBalanceCents(), cents));
+                    toAccount.setBalanceCents(credited);
+                } catch (BankingException e) {
+                    failures.add(new BatchTransferResult.Failure(i, request, e.getMessage()));
+                    continue;
+                }
+                
+                changed.add(fromAccount);
+                changed.add(toAccount);
+                
+                transactions.add(new Transaction(fromAccount.getId(), toAccount.getId(), amount, 
+                    TransactionType.TRANSFER, 
+                    String.format("Transfer from %s to %s", 
+                        fromAccount.getAccountNumber(), toAccount.getAccountNumber())));
+                logs.add(new AuditLog("TRANSFER", request.getUserId(), 
+                    String.format("Transferred $%.2f from %s to %s", 
+                        amount, fromAccount.getAccountNumber(), toAccount.getAccountNumber())));
+            }
+            
+            accountRepo.updateBalances(conn, changed);
+            transactionRepo.saveAll(conn, transactions);
+            auditLogRepo.saveAll(conn, logs);
+            conn.commit();
+            committedQuietly(transactions);
+            for (AccountBalance account : changed) {
+                accountRepo.invalidate(account.getId());
+            }
+            transactions.forEach(this::notifyCommitted);
+            
+            return new BatchTransferResult(requests.size(), failures);
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            throw new BankingException("Batch transfer failed: " + e.getMessage());
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    // Connection already closed, ignore
+                }
+            }
         }
     }
 
-    private void saveTransaction(Connection conn, Transaction transaction) throws SQLException {
-        String sql = "INSERT INTO transactions (id, from_account_id, to_account_id, amount, type, description) VALUES (?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, transaction.getId());
-            stmt.setString(2, transaction.getFromAccountId());
-            stmt.setString(3, transaction.getToAccountId());
-            stmt.setBigDecimal(4, transaction.getAmount());
-            stmt.setString(5, transaction.getType().name());
-            stmt.setString(6, transaction.getDescription());
-            stmt.executeUpdate();
+    // A malformed request fails on its own instead of aborting the batch
+    private static void requireAccountIds(TransferRequest request) throws BankingException {
+        if (request == null || request.getFromAccountId() == null || request.getToAccountId() == null) {
+            throw new BankingException("Transfer request must name both accounts");
         }
     }
-
+    
     private void saveAuditLog(Connection conn, AuditLog log) throws SQLException {
         String sql = "INSERT INTO audit_logs (id, action, user_id, details) VALUES (?, ?, ?, ?)";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -208,8 +528,185 @@ public class TransactionService {
         }
     }
     
+    private void saveAuditLogQuietly(AuditLog log) {
+        try {
+            auditLogRepo.save(log);
+        } catch (SQLException e) {
+            System.err.println("Audit log could not be written: " + log + " (" + e.getMessage() + ")");
+        }
+    }
+    
+    private void notifyCommitted(Transaction transaction) {
+        for (TransactionListener listener : listeners) {
+            try {
+                listener.onCommitted(transaction);
+            } catch (RuntimeException e) {
+                // the transaction is already committed; a listener must not undo that
+                System.err.println("Transaction listener failed: " + e.getMessage());
+            }
+        }
+    }
+    
+    private static void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback(); // ROLLBACK ON ERROR
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+    
+    // Hands committed records to a store that keeps them outside the database (the journal);
+    // the balances are already committed, so a failure here is reported rather than thrown.
+    // The journal kept an outbox row on the committed connection and appends it when next opened.
+    private void committedQuietly(List<Transaction> transactions) {
+        try {
+            transactionRepo.committed(transactions);
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Committed " + transactions.size() + " transaction(s) but could not record them: " + e.getMessage());
+        }
+    }
+    
+    // Exponential backoff with jitter; gives up once the attempts are exhausted
+    private static void backoff(int attempt) throws BankingException {
+        if (attempt >= MAX_UPDATE_ATTEMPTS) {
+            throw new BankingException("Account is busy, concurrent update conflict");
+        }
+        long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << attempt);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap / 2, cap + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BankingException("Interrupted while retrying update");
+        }
+    }
+    
+    private interface Posting {
+        Transaction post(Claim claim) throws BankingException;
+    }
+    
+    // An idempotency key held by one posting; completing it on the posting's connection commits both together
+    private final class Claim {
+        private final String key;
+        private final String fingerprint;
+        private boolean completed;
+        private boolean lost;
+        private String posted;
+        
+        Claim(String key, String fingerprint) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+        }
+        
+        // Joins conn's transaction; the key counts as completed once posted() reports the commit
+        void complete(Connection conn, Transaction transaction) throws SQLException {
+            if (idempotencyKeys.complete(conn, key, fingerprint, transaction.getId()) == null) {
+                lost = true; // rolls the posting back: the key now belongs to another request
+                throw new SQLException("Idempotency key " + key + " is no longer held by this request");
+            }
+            completed = true;
+        }
+        
+        void posted(String transactionId) {
+            posted = transactionId;
+        }
+    }
+    
+    /**
+     * Runs posting once per key. The key is claimed in idempotency_keys before posting and
+     * completed with the transaction id in the posting's own transaction, so a concurrent retry
+     * of an unfinished call is refused instead of posting twice; a claim left by a crash holds
+     * until it expires.
+     */
+    private String idempotent(String key, String fingerprint, Posting posting) throws BankingException {
+        if (idempotencyKeys == null) {
+            throw new BankingException("Idempotency keys are not enabled");
+        }
+        if (key == null || key.isEmpty() || key.length() > MAX_IDEMPOTENCY_KEY) {
+            throw new BankingException("Idempotency key must be 1 to " + MAX_IDEMPOTENCY_KEY + " characters");
+        }
+        
+        try {
+            IdempotencyRecord record = idempotencyKeys.findByKey(key);
+            if (record == null) {
+                if (idempotencyKeys.claim(key, fingerprint)) {
+                    return postOnce(new Claim(key, fingerprint), posting);
+                }
+                record = idempotencyKeys.findByKey(key);
+            }
+            if (record == null) {
+                // released by a failed call between our claim and our read
+                throw new BankingException("Request with this idempotency key is in progress, retry");
+            }
+            if (!record.getFingerprint().equals(fingerprint)) {
+                throw new BankingException("Idempotency key was already used for a different request");
+            }
+            if (!record.isCompleted()) {
+                throw new BankingException("Request with this idempotency key is in progress, retry");
+            }
+            return record.getTransactionId();
+        } catch (SQLException e) {
+            throw new BankingException("Idempotency check failed: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * The claim is released only when the posting failed before its commit. On the primary the
+     * key is completed in that commit; postings that commit elsewhere (the ledger, a shard) get
+     * it completed here, including when they fail after committing, as a cross-shard transfer
+     * left pending does.
+     */
+    private String postOnce(Claim claim, Posting posting) throws BankingException {
+        Transaction transaction;
+        try {
+            transaction = posting.post(claim);
+        } catch (BankingException | RuntimeException e) {
+            if (claim.posted != null) {
+                completeQuietly(claim, claim.posted);
+            } else if (!claim.lost) {
+                try {
+                    idempotencyKeys.release(claim.key);
+                } catch (SQLException ex) {
+                    System.err.println("Failed to release idempotency key " + claim.key + ": " + ex.getMessage());
+                }
+            }
+            throw e;
+        }
+        completeQuietly(claim, transaction.getId());
+        return transaction.getId();
+    }
+    
+    private void completeQuietly(Claim claim, String transactionId) {
+        if (claim.completed) {
+            return; // in the posting's commit
+        }
+        try {
+            if (idempotencyKeys.complete(claim.key, claim.fingerprint, transactionId) == null) {
+                System.err.println("Idempotency key " + claim.key + " expired and was taken over before "
+                    + transactionId + " could be recorded");
+            }
+        } catch (SQLException e) {
+            // posted but not recorded: the claim stays, so retries are refused rather than posted again
+            System.err.println("Failed to record idempotency key " + claim.key + ": " + e.getMessage());
+        }
+    }
+    
+    private static String fingerprint(String operation, String fromAccountId, String toAccountId,
+                                      BigDecimal amount, String userId) {
+        return operation + "|" + fromAccountId + "|" + toAccountId + "|" +
+            (amount == null ? null : amount.stripTrailingZeros().toPlainString()) + "|" + userId;
+    }
+    
     public List<Transaction> getAccountHistory(String accountId) throws BankingException {
         try {
+            ReadModel reads = readModel;
+            if (reads != null && reads.isReady()) {
+                List<Transaction> history = reads.findHistory(accountId);
+                if (history != null) {
+                    return history;
+                }
+            }
             Account account = accountRepo.findById(accountId);
             if (account == null) {
                 throw new BankingException("Account not found");
@@ -219,4 +716,49 @@ public class TransactionService {
             throw new BankingException("Failed to retrieve history: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+    
+    // Cursor-based page of history in [from, to); pass the previous page's next cursor to continue
+    public TransactionPage getAccountHistory(String accountId, LocalDateTime from, LocalDateTime to,
+                                             HistoryCursor cursor, int pageSize) throws BankingException {
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new BankingException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        
+        try {
+            // one extra row tells us whether another page exists
+            List<Transaction> rows = null;
+            ReadModel reads = readModel;
+            if (reads != null && reads.isReady()) {
+                rows = reads.findHistory(accountId, from, to, cursor, pageSize + 1);
+            }
+            if (rows == null) {
+                Account account = accountRepo.findById(accountId);
+                if (account == null) {
+                    throw new BankingException("Account not found");
+                }
+                rows = transactionRepo.findByAccountId(accountId, from, to, cursor, pageSize + 1);
+            }
+            if (rows.size() <= pageSize) {
+                return new TransactionPage(rows, null);
+            }
+            List<Transaction> page = rows.subList(0, pageSize);
+            return new TransactionPage(page, HistoryCursor.after(page.get(pageSize - 1)));
+        } catch (SQLException e) {
+            throw new BankingException("Failed to retrieve history: " + e.getMessage());
+        }
+    }
+    
+    // Lazily streams the whole history in [from, to); callers must close the stream
+    public Stream<Transaction> streamAccountHistory(String accountId, LocalDateTime from, LocalDateTime to)
+            throws BankingException {
+        try {
+            Account account = accountRepo.findById(accountId);
+            if (account == null) {
+                throw new BankingException("Account not found");
+            }
+            return transactionRepo.streamByAccountId(accountId, from, to, STREAM_FETCH_SIZE);
+        } catch (SQLException e) {
+            throw new BankingException("Failed to retrieve history: " + e.getMessage());
+        }
+    }
+}
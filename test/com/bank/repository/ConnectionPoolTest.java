@@ -0,0 +1,46 @@
+package com.bank.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.jupiter.api.Test;
+
+class ConnectionPoolTest {
+    private static final String SQL = "SELECT X FROM SYSTEM_RANGE(1, 3)";
+
+    @Test
+    void sqlPreparedTwiceOnOneConnectionGetsTwoStatements() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement outer = conn.prepareStatement(SQL);
+             PreparedStatement inner = conn.prepareStatement(SQL)) {
+            assertNotSame(outer, inner);
+
+            int rows = 0;
+            ResultSet outerRows = outer.executeQuery();
+            while (outerRows.next()) {
+                // executing the second statement must not close the first one's result set
+                ResultSet innerRows = inner.executeQuery();
+                assertTrue(innerRows.next());
+                rows++;
+            }
+            assertEquals(3, rows);
+        }
+    }
+
+    @Test
+    void closedStatementIsReusedFromTheCache() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            PreparedStatement first = conn.prepareStatement(SQL);
+            first.close();
+            assertTrue(first.isClosed());
+
+            try (PreparedStatement second = conn.prepareStatement(SQL)) {
+                assertSame(first, second);
+                assertFalse(second.isClosed());
+            }
+        }
+    }
+}
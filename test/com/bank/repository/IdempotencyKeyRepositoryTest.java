@@ -0,0 +1,26 @@
+package com.bank.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.bank.model.Ids;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class IdempotencyKeyRepositoryTest {
+    private final IdempotencyKeyRepository keys = new IdempotencyKeyRepository(Duration.ofHours(1));
+
+    @Test
+    void completesOnlyAnOpenClaimOfTheSameRequest() throws SQLException {
+        String key = "claim-" + UUID.randomUUID();
+        String first = Ids.next();
+        assertTrue(keys.claim(key, "DEPOSIT|a"));
+
+        assertNull(keys.complete(key, "DEPOSIT|b", first));
+        assertNotNull(keys.complete(key, "DEPOSIT|a", first));
+        // a late completion of a request that lost the key must not overwrite the outcome
+        assertNull(keys.complete(key, "DEPOSIT|a", Ids.next()));
+        assertEquals(first, keys.findByKey(key).getTransactionId());
+    }
+}
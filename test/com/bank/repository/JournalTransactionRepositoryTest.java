@@ -0,0 +1,49 @@
+package com.bank.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.bank.model.*;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalTransactionRepositoryTest {
+    @TempDir
+    Path directory;
+
+    private static Transaction withdrawal(String accountId, String description) {
+        return new Transaction(accountId, null, new BigDecimal("1.00"), TransactionType.WITHDRAWAL, description);
+    }
+
+    @Test
+    void committedRecordsTheJournalMissedAreAppendedOnOpen() throws Exception {
+        String accountId = Ids.next();
+        Transaction appended = withdrawal(accountId, "appended");
+        Transaction missed = withdrawal(accountId, "missed");
+        Transaction rolledBack = withdrawal(accountId, "rolled back");
+
+        try (JournalTransactionRepository journal = JournalTransactionRepository.open(directory, 1 << 20, 5)) {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                journal.saveAll(conn, List.of(appended, missed));
+                conn.commit();
+                journal.save(conn, rolledBack);
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            // the append of the second record failed after the commit
+            journal.committed(List.of(appended));
+        }
+
+        try (JournalTransactionRepository journal = JournalTransactionRepository.open(directory, 1 << 20, 5)) {
+            List<String> history = journal.findByAccountId(accountId).stream().map(Transaction::getId).toList();
+            assertEquals(List.of(missed.getId(), appended.getId()), history);
+        }
+        try (JournalTransactionRepository journal = JournalTransactionRepository.open(directory, 1 << 20, 5)) {
+            assertEquals(2, journal.findByAccountId(accountId).size());
+        }
+    }
+}
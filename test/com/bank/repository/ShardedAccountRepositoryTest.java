@@ -0,0 +1,94 @@
+package com.bank.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.bank.model.*;
+import com.bank.service.BulkImportService;
+import com.bank.service.InterestAccrualService;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ShardedAccountRepositoryTest {
+    private ShardRouter router;
+    private ShardedAccountRepository accounts;
+
+    @BeforeEach
+    void openShards() throws SQLException {
+        System.setProperty("bank.shard.1.url", "jdbc:h2:mem:accounts_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        router = ShardRouter.open(2);
+        accounts = new ShardedAccountRepository(router, AccountRepository::new);
+    }
+
+    @AfterEach
+    void closeShards() {
+        router.close();
+    }
+
+    // An account with the given number whose id routes to the given shard
+    private Account onShard(int shard, String accountNumber) {
+        while (true) {
+            String id = Ids.next();
+            if (router.shardOf(id) == shard) {
+                return new Account(id, Ids.next(), accountNumber, AccountType.CHECKING, BigDecimal.ZERO,
+                    AccountStatus.ACTIVE);
+            }
+        }
+    }
+
+    private static String randomNumber() {
+        return String.valueOf(ThreadLocalRandom.current().nextLong(100_000_000_000L, 1_000_000_000_000L));
+    }
+
+    @Test
+    void accountNumbersAreUniqueAcrossShards() throws SQLException {
+        String number = randomNumber();
+        accounts.save(onShard(0, number));
+
+        Account duplicate = onShard(1, number);
+        assertThrows(SQLException.class, () -> accounts.save(duplicate));
+        assertNull(accounts.findById(duplicate.getId()));
+    }
+
+    @Test
+    void failedSaveReleasesTheNumber() throws SQLException {
+        Account first = onShard(1, randomNumber());
+        accounts.save(first);
+        // same id on the same shard fails there, after the number was registered
+        Account clash = new Account(first.getId(), first.getUserId(), randomNumber(), AccountType.CHECKING,
+            BigDecimal.ZERO, AccountStatus.ACTIVE);
+        assertThrows(SQLException.class, () -> accounts.save(clash));
+
+        accounts.save(onShard(0, clash.getAccountNumber()));
+    }
+
+    @Test
+    void changingTheShardCountIsRefused() throws SQLException {
+        Account moved;
+        do {
+            moved = onShard(1, randomNumber());
+        } while (Long.parseLong(moved.getId(), 24, 36, 16) % 3 == 1);
+        accounts.save(moved);
+
+        // accounts of the other tests on the primary may be reported first
+        assertThrows(IllegalStateException.class, () -> ShardRouter.open(3));
+    }
+
+    @Test
+    void batchMethodsRefuseToRunOnOneShard() {
+        assertThrows(UnsupportedOperationException.class, () -> accounts.sampleIds(AccountType.SAVINGS, 10));
+    }
+
+    @Test
+    void batchJobsRefuseShardedAccountsWhenConstructed() {
+        assertThrows(IllegalStateException.class, () -> new BulkImportService(new UserRepository(), accounts,
+            new TransactionRepository(), new AuditLogRepository(), new ImportCheckpointRepository(), null, 100));
+        assertThrows(IllegalStateException.class, () -> new InterestAccrualService(accounts,
+            new TransactionRepository(), new AuditLogRepository(), new InterestRunRepository(), null,
+            new BigDecimal("0.01"), 4, 100, 2));
+    }
+}
@@ -0,0 +1,42 @@
+package com.bank.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.bank.model.*;
+import com.bank.service.AccountService;
+import com.bank.service.AuthService;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class TransactionRepositoryTest {
+    private final TransactionRepository transactions = new TransactionRepository();
+
+    @Test
+    void savedRowsKeepTheTransactionsTimestamp() throws Exception {
+        AuditLogRepository auditLogRepo = new AuditLogRepository();
+        String userId = new AuthService(new UserRepository(), auditLogRepo)
+            .register("Test", UUID.randomUUID() + "@example.com", "password").getId();
+        String accountId = new AccountService(new AccountRepository(), new UserRepository(), auditLogRepo)
+            .createAccount(userId, AccountType.CHECKING).getId();
+        // far enough from now that the database clock could not produce it
+        LocalDateTime timestamp = LocalDateTime.of(2020, 1, 2, 3, 4, 5);
+        Transaction onConnection = new Transaction(Ids.next(), null, accountId, new BigDecimal("1.00"),
+            TransactionType.DEPOSIT, "on connection", timestamp);
+        Transaction standalone = new Transaction(Ids.next(), null, accountId, new BigDecimal("2.00"),
+            TransactionType.DEPOSIT, "standalone", timestamp.plusSeconds(1));
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            transactions.save(conn, onConnection);
+        }
+        transactions.save(standalone);
+
+        for (Transaction saved : transactions.findByAccountId(accountId)) {
+            Transaction expected = saved.getId().equals(onConnection.getId()) ? onConnection : standalone;
+            assertEquals(expected.getTimestamp(), saved.getTimestamp());
+        }
+        assertEquals(2, transactions.findByAccountId(accountId).size());
+    }
+}
@@ -0,0 +1,279 @@
+package com.bank.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.bank.exception.BankingException;
+import com.bank.exception.PendingTransferException;
+import com.bank.model.*;
+import com.bank.repository.*;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CrossShardTransfersTest {
+    private static final BigDecimal AMOUNT = new BigDecimal("30.00");
+
+    private ShardRouter router;
+    private HookedAccounts accounts;
+    private FailingTransactions transactions;
+    private AuditLogRepository auditLogRepo;
+    private CrossShardTransfers transfers;
+    private String userId;
+    private Account sender;
+    private Account receiver;
+
+    private interface Hook {
+        void run() throws SQLException;
+    }
+
+    // Runs the next queued hook of an account each time a saga step locks its row
+    private static class HookedAccounts extends ShardedAccountRepository {
+        private final Map<String, Deque<Hook>> hooks = new ConcurrentHashMap<>();
+
+        HookedAccounts(ShardRouter router) {
+            super(router, AccountRepository::new);
+        }
+
+        void onLock(String accountId, Hook... steps) {
+            hooks.put(accountId, new ArrayDeque<>(List.of(steps)));
+        }
+
+        @Override
+        public AccountBalance findBalanceById(Connection conn, String accountId, boolean forUpdate)
+                throws SQLException {
+            Deque<Hook> queued = hooks.get(accountId);
+            Hook hook = queued == null ? null : queued.poll();
+            if (hook != null) {
+                hook.run();
+            }
+            return super.findBalanceById(conn, accountId, forUpdate);
+        }
+    }
+
+    // Fails the saveAll call numbered failingCall, counting from 1
+    private static class FailingTransactions extends ShardedTransactionRepository {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile int failingCall;
+
+        FailingTransactions(ShardRouter router) {
+            super(router);
+        }
+
+        @Override
+        public void saveAll(Connection conn, List<Transaction> transactions) throws SQLException {
+            if (calls.incrementAndGet() == failingCall) {
+                throw new SQLException("injected failure");
+            }
+            super.saveAll(conn, transactions);
+        }
+    }
+
+    private static final Hook PASS = () -> { };
+    private static final Hook FAIL = () -> {
+        throw new SQLException("injected failure");
+    };
+
+    @BeforeEach
+    void openShards() throws Exception {
+        // a fresh second shard per test, so no test sees another's pending transfers there
+        System.setProperty("bank.shard.1.url", "jdbc:h2:mem:saga_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        router = ShardRouter.open(2);
+        accounts = new HookedAccounts(router);
+        transactions = new FailingTransactions(router);
+        auditLogRepo = new AuditLogRepository();
+        transfers = new CrossShardTransfers(router, accounts, transactions, auditLogRepo, t -> { });
+        userId = new AuthService(new UserRepository(), auditLogRepo)
+            .register("Test", UUID.randomUUID() + "@example.com", "password").getId();
+        sender = createAccount(0, new BigDecimal("100.00"));
+        receiver = createAccount(1, BigDecimal.ZERO);
+    }
+
+    @AfterEach
+    void closeShards() {
+        transfers.close();
+        router.close();
+    }
+
+    private Account createAccount(int shard, BigDecimal balance) throws SQLException {
+        while (true) {
+            String id = Ids.next();
+            if (router.shardOf(id) == shard) {
+                String number = String.valueOf(ThreadLocalRandom.current().nextLong(100_000_000_000L, 1_000_000_000_000L));
+                Account account = new Account(id, userId, number, AccountType.CHECKING, balance, AccountStatus.ACTIVE);
+                accounts.save(account);
+                return account;
+            }
+        }
+    }
+
+    private BigDecimal balance(Account account) throws SQLException {
+        return accounts.findById(account.getId()).getBalance();
+    }
+
+    private void assertBalances(String senderBalance, String receiverBalance) throws SQLException {
+        assertEquals(0, new BigDecimal(senderBalance).compareTo(balance(sender)));
+        assertEquals(0, new BigDecimal(receiverBalance).compareTo(balance(receiver)));
+    }
+
+    // Logged state of a transfer on the shard of the given account, null if none
+    private String state(Account account, String transferId) throws SQLException {
+        try (Connection conn = router.shardFor(account.getId()).getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT state FROM cross_shard_transfers WHERE id = ?")) {
+            stmt.setString(1, transferId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    private int historyCount(Account account, String transferId) throws SQLException {
+        int count = 0;
+        for (Transaction transaction : transactions.findByAccountId(account.getId())) {
+            if (transaction.getId().equals(transferId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private String pendingTransfer() {
+        PendingTransferException e = assertThrows(PendingTransferException.class,
+            () -> transfers.transfer(sender.getId(), receiver.getId(), AMOUNT, userId));
+        return e.getTransactionId();
+    }
+
+    // A horizon in the future, so recovery takes every pending transfer however recently it was updated
+    private void recoverNow() {
+        transfers.recover(Duration.ofMinutes(-1));
+    }
+
+    @Test
+    void completesAcrossShards() throws Exception {
+        Transaction transfer = transfers.transfer(sender.getId(), receiver.getId(), AMOUNT, userId);
+
+        assertEquals("COMPLETED", state(sender, transfer.getId()));
+        assertEquals("CREDITED", state(receiver, transfer.getId()));
+        assertBalances("70.00", "30.00");
+        assertEquals(1, historyCount(sender, transfer.getId()));
+        assertEquals(1, historyCount(receiver, transfer.getId()));
+    }
+
+    @Test
+    void rejectedCreditIsRefunded() throws Exception {
+        // the receiver is frozen between the debit and the decision
+        accounts.onLock(receiver.getId(), () -> accounts.updateStatus(receiver.getId(), AccountStatus.FROZEN));
+
+        BankingException e = assertThrows(BankingException.class,
+            () -> transfers.transfer(sender.getId(), receiver.getId(), AMOUNT, userId));
+
+        assertFalse(e instanceof PendingTransferException);
+        assertEquals("Transfer failed: Both accounts must be active", e.getMessage());
+        assertBalances("100.00", "0.00");
+    }
+
+    @Test
+    void failureBeforeTheDecisionIsCompletedByRecovery() throws Exception {
+        accounts.onLock(receiver.getId(), FAIL);
+        String transferId = pendingTransfer();
+
+        assertEquals("DEBITED", state(sender, transferId));
+        assertNull(state(receiver, transferId));
+        assertBalances("70.00", "0.00");
+
+        recoverNow();
+        assertEquals("COMPLETED", state(sender, transferId));
+        assertEquals("CREDITED", state(receiver, transferId));
+        assertBalances("70.00", "30.00");
+        assertEquals(1, historyCount(receiver, transferId));
+    }
+
+    @Test
+    void failureAfterTheDecisionIsNotCreditedTwice() throws Exception {
+        transactions.failingCall = 2; // the receiver's copy is saved, the sender's fails
+        String transferId = pendingTransfer();
+
+        assertEquals("DEBITED", state(sender, transferId));
+        assertEquals("CREDITED", state(receiver, transferId));
+        assertBalances("70.00", "30.00");
+
+        recoverNow();
+        assertEquals("COMPLETED", state(sender, transferId));
+        assertBalances("70.00", "30.00");
+        assertEquals(1, historyCount(sender, transferId));
+        assertEquals(1, historyCount(receiver, transferId));
+    }
+
+    @Test
+    void failedRefundIsRefundedOnceByRecovery() throws Exception {
+        accounts.onLock(receiver.getId(), () -> accounts.updateStatus(receiver.getId(), AccountStatus.FROZEN));
+        accounts.onLock(sender.getId(), PASS, FAIL); // the debit locks the sender, then the refund does
+        String transferId = pendingTransfer();
+
+        assertEquals("DEBITED", state(sender, transferId));
+        assertEquals("REJECTED", state(receiver, transferId));
+        assertBalances("70.00", "0.00");
+
+        recoverNow();
+        assertEquals("REFUNDED", state(sender, transferId));
+        assertBalances("100.00", "0.00");
+        recoverNow();
+        assertEquals("REFUNDED", state(sender, transferId));
+        assertBalances("100.00", "0.00");
+    }
+
+    @Test
+    void concurrentRecoveriesSettleOnce() throws Exception {
+        accounts.onLock(receiver.getId(), FAIL);
+        String transferId = pendingTransfer();
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                runs.add(pool.submit(this::recoverNow));
+            }
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals("COMPLETED", state(sender, transferId));
+        assertEquals("CREDITED", state(receiver, transferId));
+        assertBalances("70.00", "30.00");
+        assertEquals(1, historyCount(sender, transferId));
+        assertEquals(1, historyCount(receiver, transferId));
+    }
+
+    @Test
+    void pendingTransferKeepsItsIdempotencyKey() throws Exception {
+        TransactionService service = new TransactionService(accounts, transactions, auditLogRepo, null,
+            new IdempotencyKeyRepository(Duration.ofHours(1)));
+        service.shardAcross(router).close();
+        String key = "pending-" + UUID.randomUUID();
+        accounts.onLock(receiver.getId(), FAIL);
+
+        PendingTransferException e = assertThrows(PendingTransferException.class,
+            () -> service.transfer(sender.getId(), receiver.getId(), AMOUNT, userId, key));
+
+        assertEquals(e.getTransactionId(), service.transfer(sender.getId(), receiver.getId(), AMOUNT, userId, key));
+        assertBalances("70.00", "0.00");
+        recoverNow();
+        assertBalances("70.00", "30.00");
+    }
+}
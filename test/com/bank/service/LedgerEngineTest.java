@@ -0,0 +1,63 @@
+package com.bank.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.bank.exception.BankingException;
+import com.bank.model.*;
+import com.bank.repository.*;
+import java.math.BigDecimal;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LedgerEngineTest {
+    // cached like Main's, so a read after a flush shows whether the write-behind invalidated it
+    private final AccountRepository accountRepo = new CachingAccountRepository(1_000, 30_000);
+    private final AuditLogRepository auditLogRepo = new AuditLogRepository();
+    private LedgerEngine ledger;
+    private String userId;
+    private Account account;
+
+    @BeforeEach
+    void openLedger() throws Exception {
+        userId = new AuthService(new UserRepository(), auditLogRepo)
+            .register("Test", UUID.randomUUID() + "@example.com", "password").getId();
+        account = new AccountService(accountRepo, new UserRepository(), auditLogRepo)
+            .createAccount(userId, AccountType.CHECKING);
+        // a long flush interval keeps postings queued while the test runs against them
+        ledger = new LedgerEngine(accountRepo, LedgerWriteBehind.start(accountRepo, 100, 10, 200), 16,
+            LedgerEngine.Durability.ASYNC, 5_000);
+        ledger.recover();
+    }
+
+    @AfterEach
+    void closeLedger() {
+        ledger.close();
+    }
+
+    @Test
+    void creditsAreNotSpendableBeforeTheyAreDurable() throws Exception {
+        // the audit row of an unknown user fails its foreign key, so the database rejects the deposit
+        ledger.deposit(account.getId(), new BigDecimal("100.00"), Ids.next());
+
+        BankingException e = assertThrows(BankingException.class,
+            () -> ledger.withdraw(account.getId(), new BigDecimal("100.00"), userId));
+        assertEquals("Insufficient funds", e.getMessage());
+
+        ledger.flush();
+        assertEquals(0, BigDecimal.ZERO.compareTo(accountRepo.findById(account.getId()).getBalance()));
+    }
+
+    @Test
+    void durableCreditsBecomeSpendable() throws Exception {
+        assertEquals(0, BigDecimal.ZERO.compareTo(accountRepo.findById(account.getId()).getBalance()));
+        ledger.deposit(account.getId(), new BigDecimal("100.00"), userId);
+        ledger.flush();
+        assertEquals(0, new BigDecimal("100.00").compareTo(accountRepo.findById(account.getId()).getBalance()));
+
+        ledger.withdraw(account.getId(), new BigDecimal("100.00"), userId);
+        ledger.flush();
+        assertEquals(0, BigDecimal.ZERO.compareTo(accountRepo.findById(account.getId()).getBalance()));
+    }
+}
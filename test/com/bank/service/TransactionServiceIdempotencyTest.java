@@ -0,0 +1,90 @@
+package com.bank.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.bank.exception.BankingException;
+import com.bank.model.*;
+import com.bank.repository.*;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TransactionServiceIdempotencyTest {
+    private final AccountRepository accountRepo = new AccountRepository();
+    private final TransactionRepository transactionRepo = new TransactionRepository();
+    private final AuditLogRepository auditLogRepo = new AuditLogRepository();
+    private final IdempotencyKeyRepository keys = new IdempotencyKeyRepository(Duration.ofHours(1));
+    private String userId;
+    private Account from;
+    private Account to;
+
+    // Fails every posting after its commit, where the cache would be invalidated
+    private static class FailingAfterCommit extends AccountRepository {
+        @Override
+        public void invalidate(String accountId) {
+            throw new IllegalStateException("injected failure after commit");
+        }
+    }
+
+    @BeforeEach
+    void createAccounts() throws BankingException {
+        User user = new AuthService(new UserRepository(), auditLogRepo)
+            .register("Test", UUID.randomUUID() + "@example.com", "password");
+        AccountService accounts = new AccountService(accountRepo, new UserRepository(), auditLogRepo);
+        userId = user.getId();
+        from = accounts.createAccount(userId, AccountType.CHECKING);
+        to = accounts.createAccount(userId, AccountType.CHECKING);
+    }
+
+    @Test
+    void depositFailingAfterCommitKeepsItsKey() throws Exception {
+        TransactionService failing = new TransactionService(new FailingAfterCommit(), transactionRepo,
+            auditLogRepo, null, keys);
+        assertThrows(IllegalStateException.class,
+            () -> failing.deposit(from.getId(), new BigDecimal("100.00"), userId, "deposit-after-commit"));
+
+        TransactionService service = new TransactionService(accountRepo, transactionRepo, auditLogRepo, null, keys);
+        String retried = service.deposit(from.getId(), new BigDecimal("100.00"), userId, "deposit-after-commit");
+
+        List<Transaction> history = transactionRepo.findByAccountId(from.getId());
+        assertEquals(1, history.size());
+        assertEquals(history.get(0).getId(), retried);
+        assertEquals(0, new BigDecimal("100.00").compareTo(accountRepo.findById(from.getId()).getBalance()));
+    }
+
+    @Test
+    void transferFailingAfterCommitKeepsItsKey() throws Exception {
+        TransactionService service = new TransactionService(accountRepo, transactionRepo, auditLogRepo, null, keys);
+        service.deposit(from.getId(), new BigDecimal("100.00"), userId);
+        TransactionService failing = new TransactionService(new FailingAfterCommit(), transactionRepo,
+            auditLogRepo, null, keys);
+        assertThrows(BankingException.class,
+            () -> failing.transfer(from.getId(), to.getId(), new BigDecimal("40.00"), userId, "transfer-after-commit"));
+
+        String retried = service.transfer(from.getId(), to.getId(), new BigDecimal("40.00"), userId,
+            "transfer-after-commit");
+
+        List<Transaction> history = transactionRepo.findByAccountId(to.getId());
+        assertEquals(1, history.size());
+        assertEquals(history.get(0).getId(), retried);
+        assertEquals(0, new BigDecimal("60.00").compareTo(accountRepo.findById(from.getId()).getBalance()));
+        assertEquals(0, new BigDecimal("40.00").compareTo(accountRepo.findById(to.getId()).getBalance()));
+    }
+
+    @Test
+    void failureBeforeAnyWriteReleasesItsKey() throws Exception {
+        TransactionService service = new TransactionService(accountRepo, transactionRepo, auditLogRepo, null, keys);
+        BankingException e = assertThrows(BankingException.class,
+            () -> service.withdraw(from.getId(), new BigDecimal("30.00"), userId, "withdraw-unfunded"));
+        assertEquals("Insufficient funds", e.getMessage());
+
+        service.deposit(from.getId(), new BigDecimal("50.00"), userId);
+        String posted = service.withdraw(from.getId(), new BigDecimal("30.00"), userId, "withdraw-unfunded");
+
+        assertEquals(posted, service.withdraw(from.getId(), new BigDecimal("30.00"), userId, "withdraw-unfunded"));
+        assertEquals(0, new BigDecimal("20.00").compareTo(accountRepo.findById(from.getId()).getBalance()));
+    }
+}